@@ -13,6 +13,8 @@ CREATE TABLE air_quality_data (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     city VARCHAR(255) NOT NULL,
     country VARCHAR(100) NOT NULL,
+    city_key VARCHAR(255) COLLATE utf8mb4_bin NOT NULL,      -- Case/accent-folded city (LookupKeys.normalize)
+    country_key VARCHAR(100) COLLATE utf8mb4_bin NOT NULL,   -- Case/accent-folded country (LookupKeys.normalize)
     location_id VARCHAR(100),
     aqi INT,
     pm25 DOUBLE,
@@ -34,7 +36,11 @@ CREATE TABLE air_quality_data (
     INDEX idx_country (country),
     INDEX idx_aqi (aqi),
     INDEX idx_city (city),
-    INDEX idx_last_updated (last_updated)
+    INDEX idx_last_updated (last_updated),
+    
+    -- Indexes for normalized lookups and (city_key, id) page order (id is implicit in InnoDB)
+    INDEX idx_city_key (city_key),
+    INDEX idx_country_key (country_key, city_key)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Display confirmation
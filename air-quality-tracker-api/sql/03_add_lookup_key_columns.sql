@@ -0,0 +1,23 @@
+-- ============================================
+-- Migration: Normalized Lookup Key Columns
+-- Run on databases created before city_key/country_key existed
+-- ============================================
+
+USE air_quality_db;
+
+-- Add normalized key columns (nullable until backfilled)
+-- The application backfills accent-folded keys on startup (AirQualityDataInitializer);
+-- then run 06_require_lookup_keys.sql to make them NOT NULL
+ALTER TABLE air_quality_data
+    ADD COLUMN city_key VARCHAR(255) NULL AFTER country,
+    ADD COLUMN country_key VARCHAR(100) NULL AFTER city_key;
+
+-- Indexes for normalized lookups (findByCity, findByCountry, existsByCityAndCountry)
+ALTER TABLE air_quality_data
+    ADD INDEX idx_city_key (city_key, country_key),
+    ADD INDEX idx_country_key (country_key, city);
+
+-- Index use by the repository's lookup queries is checked by JdbcQueryPlanTest
+
+-- Display confirmation
+SELECT 'Lookup key columns added successfully!' AS status;
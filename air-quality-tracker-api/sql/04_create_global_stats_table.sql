@@ -0,0 +1,36 @@
+-- ============================================
+-- Global Statistics Table Creation Script
+-- Run after 02_create_air_quality_data_table.sql
+-- ============================================
+
+USE air_quality_db;
+
+-- Drop table if exists (for fresh setup)
+DROP TABLE IF EXISTS air_quality_global_stats;
+
+-- Single-row table (id = 1) holding materialized global statistics
+-- Rewritten inside the same transaction as every bulk upsert,
+-- so GET /api/global is one primary-key read
+CREATE TABLE air_quality_global_stats (
+    id TINYINT PRIMARY KEY,
+    total_cities INT NOT NULL,
+    total_countries INT NOT NULL,
+    average_aqi DOUBLE,
+    good_count INT NOT NULL,              -- AQI 0-50
+    moderate_count INT NOT NULL,          -- AQI 51-100
+    unhealthy_count INT NOT NULL,         -- AQI 101-500
+    cleanest_city VARCHAR(255),
+    cleanest_country VARCHAR(100),
+    cleanest_aqi INT,
+    most_polluted_city VARCHAR(255),
+    most_polluted_country VARCHAR(100),
+    most_polluted_aqi INT,
+    generation BIGINT NOT NULL DEFAULT 0, -- bumped by every rebuild (ETag / cross-node change detection)
+    refreshed_at DATETIME NOT NULL        -- UTC
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Display confirmation
+SELECT 'Table air_quality_global_stats created successfully!' AS status;
+
+-- Show table structure
+DESCRIBE air_quality_global_stats;
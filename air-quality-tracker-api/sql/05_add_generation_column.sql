@@ -0,0 +1,17 @@
+-- ============================================
+-- Migration: data generation counter on the global statistics row
+-- Run on databases created before generation existed
+-- (04_create_global_stats_table.sql already includes it)
+-- ============================================
+
+USE air_quality_db;
+
+-- Bumped by every statistics rebuild, i.e. by every refresh (upsert or swap)
+-- Nodes poll it to detect refreshes made elsewhere; it also backs the API's ETag headers
+ALTER TABLE air_quality_global_stats
+    ADD COLUMN generation BIGINT NOT NULL DEFAULT 0 AFTER most_polluted_aqi;
+
+-- Display confirmation
+SELECT 'Column generation added to air_quality_global_stats!' AS status;
+
+DESCRIBE air_quality_global_stats;
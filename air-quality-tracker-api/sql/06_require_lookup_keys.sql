@@ -0,0 +1,23 @@
+-- ============================================
+-- Migration: make city_key/country_key NOT NULL
+-- Run after 03_add_lookup_key_columns.sql once the application has started
+-- and backfilled the keys (AirQualityDataInitializer logs "Backfilled lookup keys")
+-- (02_create_air_quality_data_table.sql already declares them NOT NULL)
+-- ============================================
+
+USE air_quality_db;
+
+-- Must be 0 before the ALTER below; otherwise start the application once more to backfill
+SELECT COUNT(*) AS rows_missing_keys
+FROM air_quality_data
+WHERE city_key IS NULL OR country_key IS NULL;
+
+-- Every writer sets both keys; NOT NULL keeps a missed one from silently dropping out of lookups
+ALTER TABLE air_quality_data
+    MODIFY city_key VARCHAR(255) NOT NULL,
+    MODIFY country_key VARCHAR(100) NOT NULL;
+
+-- Display confirmation
+SELECT 'Lookup key columns are now NOT NULL!' AS status;
+
+DESCRIBE air_quality_data;
@@ -0,0 +1,26 @@
+-- ============================================
+-- Migration: page cities in (city_key, id) order
+-- Run after 06_require_lookup_keys.sql
+-- (02_create_air_quality_data_table.sql already includes it)
+-- ============================================
+
+USE air_quality_db;
+
+-- Keys are already case/accent-folded by LookupKeys.normalize, so they are compared as plain
+-- code points: the same order the application uses when it pages the in-memory snapshot
+ALTER TABLE air_quality_data
+    MODIFY city_key VARCHAR(255) COLLATE utf8mb4_bin NOT NULL,
+    MODIFY country_key VARCHAR(100) COLLATE utf8mb4_bin NOT NULL;
+
+-- InnoDB appends the primary key to secondary indexes, so these serve
+-- ORDER BY city_key, id (all cities) and country_key = ? ORDER BY city_key, id (one country)
+ALTER TABLE air_quality_data
+    DROP INDEX idx_city_key,
+    ADD INDEX idx_city_key (city_key),
+    DROP INDEX idx_country_key,
+    ADD INDEX idx_country_key (country_key, city_key);
+
+-- Display confirmation
+SELECT 'Lookup keys now order city pages!' AS status;
+
+DESCRIBE air_quality_data;
@@ -0,0 +1,39 @@
+package com.airquality.api.core.config;
+
+import com.airquality.api.core.interceptor.ConditionalGetInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers ConditionalGetInterceptor on the endpoints served from the snapshot
+ * New snapshot-backed read endpoints should be added here
+ */
+@Configuration
+public class ConditionalGetConfig implements WebMvcConfigurer {
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+    public ConditionalGetConfig(ConditionalGetInterceptor conditionalGetInterceptor) {
+        this.conditionalGetInterceptor = conditionalGetInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(conditionalGetInterceptor)
+                .addPathPatterns(
+                    "/api/global",
+                    "/api/cities",
+                    "/api/city/**",
+                    "/api/countries",
+                    "/api/regions",
+                    "/api/distribution",
+                    "/api/country/**",
+                    "/api/rankings/**",
+                    "/api/filter/**",
+                    "/api/nearby",
+                    "/api/area",
+                    "/api/map/clusters",
+                    "/api/search");
+    }
+}
@@ -1,13 +1,33 @@
 package com.airquality.api.core.controller;
 
 import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.AqiDistribution;
+import com.airquality.api.core.model.BoundingBox;
+import com.airquality.api.core.model.CityBatchResult;
+import com.airquality.api.core.model.CityKey;
+import com.airquality.api.core.model.CityPercentile;
+import com.airquality.api.core.model.CityQuery;
 import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.MapCluster;
+import com.airquality.api.core.model.NearbyCity;
 import com.airquality.api.core.model.RefreshDataResponse;
+import com.airquality.api.core.model.RegionStats;
+import com.airquality.api.core.model.SearchSuggestion;
 import com.airquality.api.core.service.AirQualityService;
+import com.airquality.api.core.snapshot.EncodedBody;
+import com.airquality.api.core.snapshot.SnapshotResponseCache;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springdoc.api.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,34 +44,125 @@ public class AirQualityController {
 
     private static final Logger logger = LoggerFactory.getLogger(AirQualityController.class);
 
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
     private final AirQualityService airQualityService;
+    private final SnapshotResponseCache responseCache;
 
-    public AirQualityController(AirQualityService airQualityService) {
+    public AirQualityController(AirQualityService airQualityService, SnapshotResponseCache responseCache) {
         this.airQualityService = airQualityService;
+        this.responseCache = responseCache;
     }
 
     /**
      * GET /api/global - Returns aggregated global air quality statistics
+     * Served from bytes pre-serialized once per snapshot generation (gzip if accepted) when the
+     * client wants JSON; CBOR/Smile requests go through the message converters
      */
     @GetMapping("/global")
     @Operation(summary = "Get global statistics", description = "Returns aggregated worldwide air quality statistics")
-    public ResponseEntity<GlobalAirQualityStats> getGlobalStats() {
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = GlobalAirQualityStats.class)))
+    public ResponseEntity<?> getGlobalStats(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         logger.info("GET /api/global - Fetching global air quality statistics");
+        EncodedBody body = prefersJson(accept) ? responseCache.globalStats() : null;
+        if (body != null) {
+            return encodedResponse(body, acceptEncoding);
+        }
         GlobalAirQualityStats stats = airQualityService.getGlobalStats();
         return ResponseEntity.ok(stats);
     }
 
     /**
      * GET /api/cities - Returns air quality data for all cities
+     * With any of after/limit/filters/fields: returns a keyset-paginated CityPage instead
      */
     @GetMapping("/cities")
-    @Operation(summary = "Get all cities", description = "Returns air quality data for all monitored cities")
-    public ResponseEntity<List<AirQualityData>> getAllCities() {
+    @Operation(summary = "Get all cities", description = "Returns air quality data for all monitored cities. " +
+            "Pass limit/after for cursor pagination, country/minAqi/maxAqi/maxPm25/... to filter, " +
+            "and fields=city,country,aqi to project; the response is then a page with nextCursor")
+    @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = AirQualityData.class))))
+    public ResponseEntity<?> getAllCities(@ParameterObject CityQuery query,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (query.hasCriteria()) {
+            logger.info("GET /api/cities - Fetching city page (limit={}, after={})", query.getLimit(), query.getAfter());
+            return ResponseEntity.ok(airQualityService.getCitiesPage(query));
+        }
+        
         logger.info("GET /api/cities - Fetching air quality data for all cities");
+        EncodedBody body = prefersJson(accept) ? responseCache.allCities() : null;
+        if (body != null) {
+            return encodedResponse(body, acceptEncoding);
+        }
         List<AirQualityData> cities = airQualityService.getAllCities();
         return ResponseEntity.ok(cities);
     }
 
+    // Writes pre-serialized JSON as-is: gzip bytes when the client accepts gzip, identity otherwise
+    private static ResponseEntity<byte[]> encodedResponse(EncodedBody body, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? body.getGzip() : body.getIdentity());
+    }
+
+    // True unless the client's most preferred acceptable type is a binary format (CBOR/Smile)
+    private static boolean prefersJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return true;
+        }
+        MediaType.sortBySpecificityAndQuality(types);
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_CBOR) || type.isCompatibleWith(SMILE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // True if Accept-Encoding allows gzip: listed (or covered by *) and not q=0
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String coding = parts[0].trim();
+            boolean allowed = true;
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].replace(" ", "").matches("q=0(\\.0*)?")) {
+                    allowed = false;
+                }
+            }
+            if (coding.equalsIgnoreCase("gzip")) {
+                return allowed;
+            }
+            if (coding.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return wildcard;
+    }
+
     /**
      * GET /api/city/{name} - Returns air quality data for a specific city
      */
@@ -63,6 +174,30 @@ public class AirQualityController {
         return ResponseEntity.ok(cityData);
     }
 
+    /**
+     * GET /api/city/{name}/percentile - Returns how a city's AQI compares with all cities
+     */
+    @GetMapping("/city/{name}/percentile")
+    @Operation(summary = "Get city percentile rank", description = "Returns the share of cities with a lower AQI " +
+            "(ties count half) and how many cities are cleaner or more polluted")
+    public ResponseEntity<CityPercentile> getCityPercentile(@PathVariable String name) {
+        logger.info("GET /api/city/{}/percentile - Fetching percentile rank for city", name);
+        return ResponseEntity.ok(airQualityService.getCityPercentile(name));
+    }
+
+    /**
+     * POST /api/cities/batch - Returns air quality data for a list of cities in one call
+     */
+    @PostMapping("/cities/batch")
+    @Operation(summary = "Get many cities", description = "Looks up to 500 cities in one request. Each key is " +
+            "{\"city\": ..., \"country\": ...} with country optional; cities without data are listed in 'missing' " +
+            "instead of failing the request")
+    public ResponseEntity<CityBatchResult> getCitiesBatch(@RequestBody List<CityKey> keys) {
+        logger.info("POST /api/cities/batch - Fetching air quality data for {} cities", keys.size());
+        CityBatchResult result = airQualityService.getCitiesData(keys);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * GET /api/countries - Returns list of all countries
      */
@@ -85,6 +220,39 @@ public class AirQualityController {
         return ResponseEntity.ok(cities);
     }
 
+    /**
+     * GET /api/country/{name}/stats - Returns aggregated statistics for a country
+     */
+    @GetMapping("/country/{name}/stats")
+    @Operation(summary = "Get country statistics", description = "Returns city count, mean/median/max AQI, " +
+            "per-category counts and the worst city for a country")
+    public ResponseEntity<RegionStats> getCountryStats(@PathVariable String name) {
+        logger.info("GET /api/country/{}/stats - Fetching statistics for country", name);
+        return ResponseEntity.ok(airQualityService.getCountryStats(name));
+    }
+
+    /**
+     * GET /api/regions - Returns aggregated statistics per continent and country
+     */
+    @GetMapping("/regions")
+    @Operation(summary = "Get regional statistics", description = "Returns per-continent statistics, " +
+            "each with the statistics of its countries")
+    public ResponseEntity<List<RegionStats>> getRegions() {
+        logger.info("GET /api/regions - Fetching continent and country statistics");
+        return ResponseEntity.ok(airQualityService.getRegions());
+    }
+
+    /**
+     * GET /api/distribution - Returns the AQI histogram and quantiles over all cities
+     */
+    @GetMapping("/distribution")
+    @Operation(summary = "Get AQI distribution", description = "Returns a histogram of city AQI values " +
+            "(bucket = AQI values per bar, 1-100) and the p10/p25/p50/p75/p90/p95/p99 quantiles")
+    public ResponseEntity<AqiDistribution> getAqiDistribution(@RequestParam(defaultValue = "10") int bucket) {
+        logger.info("GET /api/distribution - Fetching AQI distribution (bucket={})", bucket);
+        return ResponseEntity.ok(airQualityService.getAqiDistribution(bucket));
+    }
+
     /**
      * GET /api/rankings/polluted - Returns most polluted cities
      */
@@ -131,6 +299,61 @@ public class AirQualityController {
         return ResponseEntity.ok(cities);
     }
 
+    /**
+     * GET /api/nearby - Returns the cities closest to a point
+     */
+    @GetMapping("/nearby")
+    @Operation(summary = "Get nearest cities", description = "Returns the k cities nearest to lat/lon by great-circle distance, " +
+            "nearest first, each with distanceKm (k: 1-100)")
+    public ResponseEntity<List<NearbyCity>> getNearbyCities(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "10") int k) {
+        logger.info("GET /api/nearby - Fetching {} cities nearest to {},{}", k, lat, lon);
+        List<NearbyCity> cities = airQualityService.getNearbyCities(lat, lon, k);
+        return ResponseEntity.ok(cities);
+    }
+
+    /**
+     * GET /api/area - Returns cities inside a bounding box
+     */
+    @GetMapping("/area")
+    @Operation(summary = "Get cities in area", description = "Returns all cities inside bbox=minLon,minLat,maxLon,maxLat " +
+            "(minLon > maxLon crosses the antimeridian)")
+    public ResponseEntity<List<AirQualityData>> getCitiesInArea(@RequestParam String bbox) {
+        logger.info("GET /api/area - Fetching cities in bbox {}", bbox);
+        List<AirQualityData> cities = airQualityService.getCitiesInArea(BoundingBox.parse(bbox));
+        return ResponseEntity.ok(cities);
+    }
+
+    /**
+     * GET /api/map/clusters - Returns map markers for the visible area
+     */
+    @GetMapping("/map/clusters")
+    @Operation(summary = "Get map clusters", description = "Returns city clusters (centroid, count, max and average AQI, " +
+            "expansionZoom) and single cities inside bbox=minLon,minLat,maxLon,maxLat at a web map zoom (0-22)")
+    public ResponseEntity<List<MapCluster>> getMapClusters(
+            @RequestParam String bbox,
+            @RequestParam int zoom) {
+        logger.info("GET /api/map/clusters - Fetching clusters in bbox {} at zoom {}", bbox, zoom);
+        List<MapCluster> clusters = airQualityService.getMapClusters(BoundingBox.parse(bbox), zoom);
+        return ResponseEntity.ok(clusters);
+    }
+
+    /**
+     * GET /api/search - Autocomplete suggestions for city and country names
+     */
+    @GetMapping("/search")
+    @Operation(summary = "Search cities and countries", description = "Returns ranked name suggestions for a partly typed " +
+            "query: exact, then prefix (any word), then near-miss spellings; case- and accent-insensitive (limit: 1-50)")
+    public ResponseEntity<List<SearchSuggestion>> searchNames(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        logger.debug("GET /api/search - Suggesting names for '{}'", q);
+        List<SearchSuggestion> suggestions = airQualityService.searchNames(q, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
     /**
      * POST /api/refresh - Manually refresh data from OpenAQ API
      */
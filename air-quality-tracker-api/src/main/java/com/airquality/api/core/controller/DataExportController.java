@@ -0,0 +1,69 @@
+package com.airquality.api.core.controller;
+
+import com.airquality.api.core.export.ExportFormat;
+import com.airquality.api.core.service.AirQualityService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * REST Controller for bulk data export
+ * Streams rows from the database cursor straight to the response (constant memory)
+ */
+@RestController
+@RequestMapping("/api")
+@Tag(name = "Air Quality", description = "Air Quality Monitoring Endpoints")
+public class DataExportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExportController.class);
+
+    private final AirQualityService airQualityService;
+
+    public DataExportController(AirQualityService airQualityService) {
+        this.airQualityService = airQualityService;
+    }
+
+    /**
+     * GET /api/export - Streams all cities as CSV or NDJSON, optionally gzip-compressed
+     */
+    @GetMapping("/export")
+    @Operation(summary = "Export all cities", description = "Streams air quality data for all cities as CSV or NDJSON " +
+            "(format=csv|ndjson). Set gzip=true to download a .gz file")
+    public ResponseEntity<StreamingResponseBody> exportCities(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        logger.info("GET /api/export - Exporting cities as {} (gzip={})", format, gzip);
+        
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        String fileName = "air-quality-data." + exportFormat.getFileExtension() + (gzip ? ".gz" : "");
+        MediaType contentType = gzip 
+                ? MediaType.parseMediaType("application/gzip") 
+                : MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8");
+        
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024, true);
+                airQualityService.exportCities(exportFormat, gzipOut);
+                gzipOut.finish();
+            } else {
+                airQualityService.exportCities(exportFormat, out);
+            }
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,57 @@
+package com.airquality.api.core.controller;
+
+import com.airquality.api.core.stream.DataUpdateBroadcaster;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+/**
+ * REST Controller for pushed data updates (Server-Sent Events)
+ * Replaces polling /api/global and /api/cities: clients get one event per data refresh
+ */
+@RestController
+@RequestMapping("/api")
+@Tag(name = "Air Quality", description = "Air Quality Monitoring Endpoints")
+public class EventStreamController {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamController.class);
+
+    private final DataUpdateBroadcaster broadcaster;
+
+    public EventStreamController(DataUpdateBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    /**
+     * GET /api/events - Stream of data update events
+     * The response stays open; the broadcaster writes frames to the emitter after this method returns
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to data updates", description = "Server-Sent Events stream. 'connected' carries the " +
+            "current generation; 'data-update' is sent after each refresh with the generation, new global statistics " +
+            "and the changed/removed cities (or reload=true when too many changed)")
+    public ResponseEntity<ResponseBodyEmitter> streamEvents() {
+        logger.info("GET /api/events - Opening event stream ({} open)", broadcaster.getSubscriberCount());
+        ResponseBodyEmitter emitter = broadcaster.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noCache())
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+}
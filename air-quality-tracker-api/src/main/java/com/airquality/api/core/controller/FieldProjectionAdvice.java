@@ -0,0 +1,100 @@
+package com.airquality.api.core.controller;
+
+import com.airquality.api.core.mapper.AirQualityProjectionRowMapper;
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.CityBatchResult;
+import com.airquality.api.core.model.NearbyCity;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse fieldsets for city rows: ?fields=city,country,aqi on any AirQualityController endpoint
+ * that returns cities (/city, /country, /rankings, /filter, /nearby, /area, /cities/batch)
+ *
+ * Rows are replaced by field maps with only the requested fields (AirQualityProjectionRowMapper),
+ * in any response format. Nearby results keep distanceKm. Paged /api/cities already projects in SQL.
+ * Responses without city rows (e.g. /global) are left unchanged.
+ *
+ * Also marks every response Vary: Accept, since the same URL can be rendered as JSON, CBOR or Smile.
+ */
+@RestControllerAdvice(assignableTypes = AirQualityController.class)
+public class FieldProjectionAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final String FIELDS_PARAM = "fields";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!response.getHeaders().getVary().contains(HttpHeaders.ACCEPT)) {
+            response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        if (body == null || !(request instanceof ServletServerHttpRequest)) {
+            return body;
+        }
+        String fieldsParam = ((ServletServerHttpRequest) request).getServletRequest().getParameter(FIELDS_PARAM);
+        if (fieldsParam == null) {
+            return body;
+        }
+
+        if (body instanceof AirQualityData) {
+            return AirQualityProjectionRowMapper.toFieldMap((AirQualityData) body, fields(fieldsParam));
+        }
+        if (body instanceof CityBatchResult) {
+            CityBatchResult result = (CityBatchResult) body;
+            Map<String, Object> projected = new LinkedHashMap<>();
+            projected.put("found", project(result.getFound(), fields(fieldsParam)));
+            projected.put("missing", result.getMissing());
+            return projected;
+        }
+        if (body instanceof List && isRowList((List<?>) body)) {
+            return project((List<?>) body, fields(fieldsParam));
+        }
+        return body;
+    }
+
+    private static List<String> fields(String fieldsParam) {
+        return AirQualityProjectionRowMapper.resolveFields(Arrays.asList(fieldsParam.split(",")));
+    }
+
+    private static boolean isRowList(List<?> list) {
+        if (list.isEmpty()) {
+            return false;
+        }
+        Object first = list.get(0);
+        return first instanceof AirQualityData || first instanceof NearbyCity;
+    }
+
+    private static List<Map<String, Object>> project(List<?> rows, List<String> fields) {
+        List<Map<String, Object>> projected = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            if (row instanceof NearbyCity) {
+                NearbyCity nearby = (NearbyCity) row;
+                Map<String, Object> map = AirQualityProjectionRowMapper.toFieldMap(nearby.getCity(), fields);
+                map.put("distanceKm", nearby.getDistanceKm());
+                projected.add(map);
+            } else {
+                projected.add(AirQualityProjectionRowMapper.toFieldMap((AirQualityData) row, fields));
+            }
+        }
+        return projected;
+    }
+}
@@ -0,0 +1,27 @@
+package com.airquality.api.core.export;
+
+import com.airquality.api.core.model.AirQualityData;
+
+import java.io.IOException;
+
+/**
+ * Writes air quality rows one at a time to an export stream
+ * Implementations hold no rows in memory, so exports run in constant space
+ */
+public interface AirQualityExportWriter {
+
+    /**
+     * Write any leading content (e.g. CSV header) and flush it so the first byte leaves immediately
+     */
+    void writeHeader() throws IOException;
+
+    /**
+     * Write a single row
+     */
+    void writeRow(AirQualityData data) throws IOException;
+
+    /**
+     * Flush buffered output (does not close the underlying stream)
+     */
+    void finish() throws IOException;
+}
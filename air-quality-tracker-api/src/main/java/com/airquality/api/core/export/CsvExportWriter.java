@@ -0,0 +1,79 @@
+package com.airquality.api.core.export;
+
+import com.airquality.api.core.model.AirQualityData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 4180 CSV export writer (UTF-8, CRLF line endings, empty cell for null)
+ */
+public class CsvExportWriter implements AirQualityExportWriter {
+
+    private static final String HEADER = "id,city,country,location_id,aqi,aqi_category,pm25,pm10,no2,o3,co,so2," +
+                                         "latitude,longitude,last_updated";
+
+    private final Writer writer;
+
+    public CsvExportWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public void writeHeader() throws IOException {
+        writer.write(HEADER);
+        writer.write("\r\n");
+        writer.flush();
+    }
+
+    @Override
+    public void writeRow(AirQualityData data) throws IOException {
+        writeValue(data.getId());
+        writeText(data.getCity());
+        writeText(data.getCountry());
+        writeText(data.getLocationId());
+        writeValue(data.getAqi());
+        writeText(data.getAqiCategory());
+        writeValue(data.getPm25());
+        writeValue(data.getPm10());
+        writeValue(data.getNo2());
+        writeValue(data.getO3());
+        writeValue(data.getCo());
+        writeValue(data.getSo2());
+        writeValue(data.getLatitude());
+        writeValue(data.getLongitude());
+        writer.write(data.getLastUpdated() != null ? data.getLastUpdated().toString() : "");
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value != null) {
+            writer.write(value.toString());
+        }
+        writer.write(',');
+    }
+
+    // Quotes values containing separators, quotes or line breaks (e.g. "Washington, D.C.")
+    private void writeText(String value) throws IOException {
+        if (value != null) {
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write(',');
+    }
+}
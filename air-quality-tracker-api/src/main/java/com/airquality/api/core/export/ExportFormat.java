@@ -0,0 +1,57 @@
+package com.airquality.api.core.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.OutputStream;
+
+/**
+ * Supported bulk export formats for GET /api/export
+ */
+public enum ExportFormat {
+
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    ExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Parse the format request parameter (case-insensitive)
+     * 
+     * @throws IllegalArgumentException for unsupported formats (400 Bad Request)
+     */
+    public static ExportFormat fromParameter(String value) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + value + ". Supported formats: csv, ndjson");
+    }
+
+    /**
+     * Create a row writer for this format over the given stream
+     */
+    public AirQualityExportWriter createWriter(OutputStream out, ObjectMapper objectMapper) {
+        switch (this) {
+            case NDJSON:
+                return new NdjsonExportWriter(out, objectMapper);
+            case CSV:
+            default:
+                return new CsvExportWriter(out);
+        }
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
@@ -0,0 +1,44 @@
+package com.airquality.api.core.export;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Newline-delimited JSON export writer: one AirQualityData object per line
+ * Uses the application ObjectMapper so rows match the /api/cities JSON shape
+ */
+public class NdjsonExportWriter implements AirQualityExportWriter {
+
+    private final OutputStream out;
+    private final ObjectWriter rowWriter;
+
+    public NdjsonExportWriter(OutputStream out, ObjectMapper objectMapper) {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        // Don't let Jackson close or flush the shared stream after each row
+        this.rowWriter = objectMapper.writerFor(AirQualityData.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    }
+
+    @Override
+    public void writeHeader() throws IOException {
+        // NDJSON has no header; nothing to flush
+    }
+
+    @Override
+    public void writeRow(AirQualityData data) throws IOException {
+        rowWriter.writeValue(out, data);
+        out.write('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+}
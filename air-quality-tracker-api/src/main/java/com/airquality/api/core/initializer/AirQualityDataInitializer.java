@@ -2,6 +2,7 @@ package com.airquality.api.core.initializer;
 
 import com.airquality.api.core.repository.AirQualityRepository;
 import com.airquality.api.core.service.AirQualityService;
+import com.airquality.api.core.snapshot.AirQualitySnapshotHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -9,7 +10,7 @@ import org.springframework.stereotype.Component;
 
 /**
  * Initializes air quality data on application startup
- * Loads data from OpenAQ API if database is empty
+ * Loads data from OpenAQ API if database is empty, then publishes the first in-memory snapshot
  */
 @Component
 public class AirQualityDataInitializer implements CommandLineRunner {
@@ -18,11 +19,14 @@ public class AirQualityDataInitializer implements CommandLineRunner {
 
     private final AirQualityRepository airQualityRepository;
     private final AirQualityService airQualityService;
+    private final AirQualitySnapshotHolder snapshotHolder;
 
     public AirQualityDataInitializer(AirQualityRepository airQualityRepository,
-                                      AirQualityService airQualityService) {
+                                      AirQualityService airQualityService,
+                                      AirQualitySnapshotHolder snapshotHolder) {
         this.airQualityRepository = airQualityRepository;
         this.airQualityService = airQualityService;
+        this.snapshotHolder = snapshotHolder;
     }
 
     @Override
@@ -30,12 +34,26 @@ public class AirQualityDataInitializer implements CommandLineRunner {
         logger.info("=== Air Quality Data Initializer Started ===");
         
         try {
+            int backfilled = airQualityRepository.backfillLookupKeys();
+            if (backfilled > 0) {
+                logger.info("Backfilled lookup keys for {} existing records", backfilled);
+                logger.info("Run sql/06_require_lookup_keys.sql to make city_key/country_key NOT NULL");
+            }
+            
             if (airQualityRepository.isEmpty()) {
                 logger.info("Database is empty. Loading initial data from OpenAQ API...");
                 loadInitialData();
             } else {
                 int count = airQualityRepository.count();
                 logger.info("Database already contains {} records. Skipping initial load.", count);
+                
+                if (airQualityRepository.findGlobalStats() == null) {
+                    logger.info("Global statistics not materialized yet. Building from existing records...");
+                    airQualityRepository.refreshGlobalStats();
+                }
+                
+                // refreshData() publishes the snapshot itself; here the data was already present
+                snapshotHolder.rebuild();
             }
         } catch (Exception e) {
             logger.error("Error during data initialization: {}", e.getMessage(), e);
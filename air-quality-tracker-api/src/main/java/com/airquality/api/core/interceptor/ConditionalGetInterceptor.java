@@ -0,0 +1,103 @@
+package com.airquality.api.core.interceptor;
+
+import com.airquality.api.core.snapshot.AirQualitySnapshot;
+import com.airquality.api.core.snapshot.AirQualitySnapshotHolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Objects;
+
+/**
+ * Conditional GET for read endpoints, keyed on the data generation of the current snapshot
+ *
+ * Successful (2xx) responses carry ETag W/"<generation>" and Last-Modified (time of the last data
+ * write); they are added by ConditionalGetValidatorAdvice once the status is known, so a 404 or 400
+ * never gets validators a cache could revalidate against.
+ * A request whose If-None-Match / If-Modified-Since still matches gets 304 without reaching the
+ * controller, so polling clients pay for a body only after a refresh.
+ * Cache-Control: no-cache lets browsers keep the body but makes them revalidate on every use.
+ *
+ * The same URL is rendered as JSON, CBOR or Smile (Accept) and as identity or gzip (Accept-Encoding),
+ * so every response says Vary: Accept, Accept-Encoding. The Accept header and the fields= projection
+ * are also folded into the tag (W/"<generation>-<hash>"), so a tag only matches the representation
+ * it was sent with. It stays weak because gzip and identity bodies share it.
+ *
+ * Before the first snapshot is loaded, requests pass through without validators.
+ * The generation is read before the handler runs and snapshots only move forward, so a body is
+ * never older than the ETag sent with it (at worst newer, which only costs one extra 200).
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    // ETag and Last-Modified for ConditionalGetValidatorAdvice to send with a 2xx response
+    static final String VALIDATORS_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".validators";
+
+    private static final String FIELDS_PARAM = "fields";
+
+    private final AirQualitySnapshotHolder snapshotHolder;
+
+    public ConditionalGetInterceptor(AirQualitySnapshotHolder snapshotHolder) {
+        this.snapshotHolder = snapshotHolder;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        if (!snapshot.isLoaded()) {
+            return true;
+        }
+
+        String etag = etag(snapshot.getGeneration(), request);
+        long lastModified = snapshot.getLastModified() != null ? snapshot.getLastModified().toEpochMilli() : -1;
+
+        // Checked without the response, so nothing is written to it unless the client copy is current
+        Validators validators = new Validators(etag, lastModified);
+        if (new ServletWebRequest(request).checkNotModified(etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            validators.writeTo(response);
+            return false;
+        }
+        request.setAttribute(VALIDATORS_ATTRIBUTE, validators);
+        return true;
+    }
+
+    // Plain W/"<generation>" for the default representation; otherwise a hash of Accept and fields=
+    private static String etag(long generation, HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String fields = request.getParameter(FIELDS_PARAM);
+        if (accept == null && fields == null) {
+            return "W/\"" + generation + "\"";
+        }
+        return "W/\"" + generation + "-" + Integer.toHexString(Objects.hash(accept, fields)) + "\"";
+    }
+
+    static final class Validators {
+
+        private final String etag;
+        private final long lastModified;   // epoch millis, -1 if unknown
+
+        Validators(String etag, long lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        void writeTo(HttpServletResponse response) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            if (lastModified > 0) {
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.airquality.api.core.interceptor;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Sends the ETag / Last-Modified prepared by ConditionalGetInterceptor, but only with a 2xx response
+ *
+ * Runs just before the body is written, when the status is final: error responses from
+ * GlobalExceptionHandler (404, 400, 503) go out without validators.
+ */
+@RestControllerAdvice
+public class ConditionalGetValidatorAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest) || !(response instanceof ServletServerHttpResponse)) {
+            return body;
+        }
+        Object validators = ((ServletServerHttpRequest) request).getServletRequest()
+            .getAttribute(ConditionalGetInterceptor.VALIDATORS_ATTRIBUTE);
+        HttpServletResponse servletResponse = ((ServletServerHttpResponse) response).getServletResponse();
+        int status = servletResponse.getStatus();
+        if (validators instanceof ConditionalGetInterceptor.Validators && status >= 200 && status < 300) {
+            ((ConditionalGetInterceptor.Validators) validators).writeTo(servletResponse);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,129 @@
+package com.airquality.api.core.mapper;
+
+import com.airquality.api.core.model.AirQualityData;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RowMapper for field-projected city queries (e.g. fields=city,country,aqi)
+ * Maps only the requested columns into an ordered field map
+ */
+public class AirQualityProjectionRowMapper implements RowMapper<Map<String, Object>> {
+
+    // JSON field name → database column, in AirQualityData field order
+    public static final Map<String, String> FIELD_COLUMNS;
+
+    static {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", "id");
+        columns.put("city", "city");
+        columns.put("country", "country");
+        columns.put("locationId", "location_id");
+        columns.put("aqi", "aqi");
+        columns.put("pm25", "pm25");
+        columns.put("pm10", "pm10");
+        columns.put("no2", "no2");
+        columns.put("o3", "o3");
+        columns.put("co", "co");
+        columns.put("so2", "so2");
+        columns.put("latitude", "latitude");
+        columns.put("longitude", "longitude");
+        columns.put("lastUpdated", "last_updated");
+        FIELD_COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
+    private final List<String> fields;
+
+    public AirQualityProjectionRowMapper(List<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Validates requested field names and returns them in canonical order
+     * 
+     * @param requested Field names from the request (blank entries ignored)
+     * @return Known field names, deduplicated
+     * @throws IllegalArgumentException if a field name is unknown
+     */
+    public static List<String> resolveFields(List<String> requested) {
+        List<String> resolved = new ArrayList<>();
+        for (String field : requested) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!FIELD_COLUMNS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + 
+                    ". Allowed fields: " + String.join(",", FIELD_COLUMNS.keySet()));
+            }
+            if (!resolved.contains(name)) {
+                resolved.add(name);
+            }
+        }
+        if (resolved.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be requested");
+        }
+        return resolved;
+    }
+
+    /**
+     * Projects an in-memory AirQualityData onto the given fields (same shape as mapRow)
+     * 
+     * @param data Source object
+     * @param fields Validated field names
+     * @return Ordered field map
+     */
+    public static Map<String, Object> toFieldMap(AirQualityData data, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        
+        for (String field : fields) {
+            switch (field) {
+                case "id": row.put(field, data.getId()); break;
+                case "city": row.put(field, data.getCity()); break;
+                case "country": row.put(field, data.getCountry()); break;
+                case "locationId": row.put(field, data.getLocationId()); break;
+                case "aqi": row.put(field, data.getAqi()); break;
+                case "pm25": row.put(field, data.getPm25()); break;
+                case "pm10": row.put(field, data.getPm10()); break;
+                case "no2": row.put(field, data.getNo2()); break;
+                case "o3": row.put(field, data.getO3()); break;
+                case "co": row.put(field, data.getCo()); break;
+                case "so2": row.put(field, data.getSo2()); break;
+                case "latitude": row.put(field, data.getLatitude()); break;
+                case "longitude": row.put(field, data.getLongitude()); break;
+                case "lastUpdated": row.put(field, data.getLastUpdated()); break;
+                default: throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+        
+        return row;
+    }
+
+    @Override
+    public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        
+        for (String field : fields) {
+            String column = FIELD_COLUMNS.get(field);
+            Object value = rs.getObject(column);
+            
+            // Match AirQualityData JSON: DATETIME → LocalDateTime, INT → Integer
+            if (value instanceof Timestamp) {
+                value = ((Timestamp) value).toLocalDateTime();
+            } else if ("aqi".equals(field) && value instanceof Number) {
+                value = ((Number) value).intValue();
+            }
+            row.put(field, value);
+        }
+        
+        return row;
+    }
+}
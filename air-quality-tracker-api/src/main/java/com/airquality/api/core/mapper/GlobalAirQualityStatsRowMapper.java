@@ -0,0 +1,55 @@
+package com.airquality.api.core.mapper;
+
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * RowMapper for converting the materialized air_quality_global_stats row to GlobalAirQualityStats
+ */
+public class GlobalAirQualityStatsRowMapper implements RowMapper<GlobalAirQualityStats> {
+
+    // Display format for GlobalAirQualityStats.lastUpdated (e.g. "March 3, 2025, 6:00 AM UTC")
+    public static final DateTimeFormatter LAST_UPDATED_FORMAT =
+            DateTimeFormatter.ofPattern("MMMM d, yyyy, h:mm a 'UTC'");
+
+    @Override
+    public GlobalAirQualityStats mapRow(ResultSet rs, int rowNum) throws SQLException {
+        GlobalAirQualityStats stats = new GlobalAirQualityStats();
+        
+        stats.setTotalCities(rs.getInt("total_cities"));
+        stats.setTotalCountries(rs.getInt("total_countries"));
+        
+        // Average is NULL when no city has an AQI yet
+        double averageAqi = rs.getDouble("average_aqi");
+        stats.setAverageGlobalAqi(rs.wasNull() ? 0 : Math.round(averageAqi * 10) / 10.0);
+        
+        stats.setCitiesWithGoodAir(rs.getInt("good_count"));
+        stats.setCitiesWithModerateAir(rs.getInt("moderate_count"));
+        stats.setCitiesWithUnhealthyAir(rs.getInt("unhealthy_count"));
+        
+        // Cleanest city (nullable when table is empty)
+        stats.setCleanestCity(rs.getString("cleanest_city"));
+        stats.setCleanestCountry(rs.getString("cleanest_country"));
+        int cleanestAqi = rs.getInt("cleanest_aqi");
+        stats.setCleanestAqi(rs.wasNull() ? null : cleanestAqi);
+        
+        // Most polluted city (nullable when table is empty)
+        stats.setMostPollutedCity(rs.getString("most_polluted_city"));
+        stats.setMostPollutedCountry(rs.getString("most_polluted_country"));
+        int mostPollutedAqi = rs.getInt("most_polluted_aqi");
+        stats.setMostPollutedAqi(rs.wasNull() ? null : mostPollutedAqi);
+        
+        // refreshed_at is a UTC DATETIME, read as-is without time zone conversion
+        LocalDateTime refreshedAt = rs.getObject("refreshed_at", LocalDateTime.class);
+        if (refreshedAt != null) {
+            stats.setLastUpdated(refreshedAt.format(LAST_UPDATED_FORMAT));
+        }
+        
+        return stats;
+    }
+}
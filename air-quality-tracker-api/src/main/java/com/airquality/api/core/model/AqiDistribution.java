@@ -0,0 +1,81 @@
+package com.airquality.api.core.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AQI distribution over all cities with an AQI, from GET /api/distribution
+ * Buckets cover [minAqi, maxAqi] inclusive and run from 0 up to the highest bucket with cities;
+ * quantiles are keyed "p10" ... "p99" (nearest-rank, so each is an AQI some city actually has)
+ */
+public class AqiDistribution {
+
+    private final int ratedCities;
+    private final Integer minAqi;
+    private final Integer maxAqi;
+    private final int bucketWidth;
+    private final List<Bucket> buckets;
+    private final Map<String, Integer> quantiles;
+
+    public AqiDistribution(int ratedCities, Integer minAqi, Integer maxAqi, int bucketWidth,
+                           List<Bucket> buckets, Map<String, Integer> quantiles) {
+        this.ratedCities = ratedCities;
+        this.minAqi = minAqi;
+        this.maxAqi = maxAqi;
+        this.bucketWidth = bucketWidth;
+        this.buckets = buckets;
+        this.quantiles = quantiles;
+    }
+
+    public int getRatedCities() {
+        return ratedCities;
+    }
+
+    public Integer getMinAqi() {
+        return minAqi;
+    }
+
+    public Integer getMaxAqi() {
+        return maxAqi;
+    }
+
+    public int getBucketWidth() {
+        return bucketWidth;
+    }
+
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public Map<String, Integer> getQuantiles() {
+        return quantiles;
+    }
+
+    /**
+     * Number of cities with minAqi <= AQI <= maxAqi
+     */
+    public static class Bucket {
+
+        private final int minAqi;
+        private final int maxAqi;
+        private final int count;
+
+        public Bucket(int minAqi, int maxAqi, int count) {
+            this.minAqi = minAqi;
+            this.maxAqi = maxAqi;
+            this.count = count;
+        }
+
+        public int getMinAqi() {
+            return minAqi;
+        }
+
+        public int getMaxAqi() {
+            return maxAqi;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
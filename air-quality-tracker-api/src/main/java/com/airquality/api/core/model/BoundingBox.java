@@ -0,0 +1,84 @@
+package com.airquality.api.core.model;
+
+/**
+ * Geographic box given as minLon,minLat,maxLon,maxLat (the GeoJSON / OGC bbox order)
+ * minLon > maxLon means the box crosses the antimeridian, e.g. 170,-20,-170,20 spans Fiji
+ */
+public class BoundingBox {
+
+    private final double minLon;
+    private final double minLat;
+    private final double maxLon;
+    private final double maxLat;
+
+    public BoundingBox(double minLon, double minLat, double maxLon, double maxLat) {
+        if (!inRange(minLon, 180) || !inRange(maxLon, 180)) {
+            throw new IllegalArgumentException("bbox longitudes must be between -180 and 180");
+        }
+        if (!inRange(minLat, 90) || !inRange(maxLat, 90)) {
+            throw new IllegalArgumentException("bbox latitudes must be between -90 and 90");
+        }
+        if (minLat > maxLat) {
+            throw new IllegalArgumentException("bbox minLat must not be greater than maxLat");
+        }
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.maxLon = maxLon;
+        this.maxLat = maxLat;
+    }
+
+    // Parses "minLon,minLat,maxLon,maxLat"; rejects anything else with 400 Bad Request
+    public static BoundingBox parse(String bbox) {
+        String[] parts = bbox != null ? bbox.split(",") : new String[0];
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox must be minLon,minLat,maxLon,maxLat, got: " + bbox);
+        }
+        try {
+            return new BoundingBox(
+                Double.parseDouble(parts[0].trim()),
+                Double.parseDouble(parts[1].trim()),
+                Double.parseDouble(parts[2].trim()),
+                Double.parseDouble(parts[3].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox must be minLon,minLat,maxLon,maxLat, got: " + bbox, e);
+        }
+    }
+
+    public boolean crossesAntimeridian() {
+        return minLon > maxLon;
+    }
+
+    public boolean contains(double lat, double lon) {
+        if (lat < minLat || lat > maxLat) {
+            return false;
+        }
+        return crossesAntimeridian()
+            ? lon >= minLon || lon <= maxLon
+            : lon >= minLon && lon <= maxLon;
+    }
+
+    private static boolean inRange(double value, double limit) {
+        return value >= -limit && value <= limit;
+    }
+
+    public double getMinLon() {
+        return minLon;
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getMaxLon() {
+        return maxLon;
+    }
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    @Override
+    public String toString() {
+        return minLon + "," + minLat + "," + maxLon + "," + maxLat;
+    }
+}
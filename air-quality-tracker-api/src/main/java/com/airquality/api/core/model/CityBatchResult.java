@@ -0,0 +1,38 @@
+package com.airquality.api.core.model;
+
+import java.util.List;
+
+/**
+ * Result of POST /api/cities/batch
+ * found is in request order (duplicate keys resolved once); missing lists the keys with no data
+ */
+public class CityBatchResult {
+
+    private List<AirQualityData> found;
+    private List<CityKey> missing;
+
+    public CityBatchResult() {
+    }
+
+    public CityBatchResult(List<AirQualityData> found, List<CityKey> missing) {
+        this.found = found;
+        this.missing = missing;
+    }
+
+    // Getters and Setters
+    public List<AirQualityData> getFound() {
+        return found;
+    }
+
+    public void setFound(List<AirQualityData> found) {
+        this.found = found;
+    }
+
+    public List<CityKey> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<CityKey> missing) {
+        this.missing = missing;
+    }
+}
@@ -0,0 +1,50 @@
+package com.airquality.api.core.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the (city key, id) ordering used by paged city listing (see LookupKeys.KEY_ORDER)
+ * Encoded as an opaque URL-safe token so clients never build cursors themselves
+ */
+public class CityCursor {
+
+    private final String city;
+    private final long id;
+
+    public CityCursor(String city, long id) {
+        this.city = city;
+        this.id = id;
+    }
+
+    // Encodes as base64url("<id>:<city>")
+    public String encode() {
+        String raw = id + ":" + city;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decodes a token produced by encode(); rejects anything else with 400 Bad Request
+    public static CityCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            long id = Long.parseLong(raw.substring(0, separator));
+            return new CityCursor(raw.substring(separator + 1), id);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and Base64 errors are IllegalArgumentExceptions too
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,36 @@
+package com.airquality.api.core.model;
+
+/**
+ * A city to look up in POST /api/cities/batch
+ * country is optional; without it the first city with that name is returned (as in GET /api/city/{name})
+ */
+public class CityKey {
+
+    private String city;
+    private String country;
+
+    public CityKey() {
+    }
+
+    public CityKey(String city, String country) {
+        this.city = city;
+        this.country = country;
+    }
+
+    // Getters and Setters
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+}
@@ -0,0 +1,48 @@
+package com.airquality.api.core.model;
+
+import java.util.List;
+
+/**
+ * One page of cities from GET /api/cities
+ * Pass nextCursor as the "after" parameter to fetch the following page
+ */
+public class CityPage {
+
+    private List<?> items;         // AirQualityData, or field maps when "fields" is set
+    private int count;
+    private String nextCursor;     // null on the last page
+
+    public CityPage() {
+    }
+
+    public CityPage(List<?> items, String nextCursor) {
+        this.items = items;
+        this.count = items.size();
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<?> getItems() {
+        return items;
+    }
+
+    public void setItems(List<?> items) {
+        this.items = items;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
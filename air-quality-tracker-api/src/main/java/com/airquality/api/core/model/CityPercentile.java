@@ -0,0 +1,57 @@
+package com.airquality.api.core.model;
+
+/**
+ * Where one city's AQI sits among all cities with an AQI, from GET /api/city/{name}/percentile
+ * percentileRank is the share of cities with a lower AQI, counting ties as half (0-100)
+ */
+public class CityPercentile {
+
+    private final String city;
+    private final String country;
+    private final int aqi;
+    private final double percentileRank;
+    private final int cleanerCities;
+    private final int morePollutedCities;
+    private final int ratedCities;
+
+    public CityPercentile(String city, String country, int aqi, double percentileRank,
+                          int cleanerCities, int morePollutedCities, int ratedCities) {
+        this.city = city;
+        this.country = country;
+        this.aqi = aqi;
+        this.percentileRank = percentileRank;
+        this.cleanerCities = cleanerCities;
+        this.morePollutedCities = morePollutedCities;
+        this.ratedCities = ratedCities;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public int getAqi() {
+        return aqi;
+    }
+
+    public double getPercentileRank() {
+        return percentileRank;
+    }
+
+    // Cities with a lower AQI
+    public int getCleanerCities() {
+        return cleanerCities;
+    }
+
+    // Cities with a higher AQI
+    public int getMorePollutedCities() {
+        return morePollutedCities;
+    }
+
+    public int getRatedCities() {
+        return ratedCities;
+    }
+}
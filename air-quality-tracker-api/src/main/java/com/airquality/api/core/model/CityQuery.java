@@ -0,0 +1,134 @@
+package com.airquality.api.core.model;
+
+import java.util.List;
+
+/**
+ * Query parameters for paged and filtered city listing (GET /api/cities)
+ * All filters are optional; they run over the snapshot's CityColumns, or in SQL before it is loaded
+ */
+public class CityQuery {
+
+    private String after;          // Opaque cursor from the previous page's nextCursor
+    private Integer limit;         // Page size
+    private String country;        // Country name (case- and accent-insensitive)
+    private Integer minAqi;        // Minimum AQI (inclusive)
+    private Integer maxAqi;        // Maximum AQI (inclusive)
+    private Double maxPm25;        // Pollutant thresholds (inclusive upper bounds)
+    private Double maxPm10;
+    private Double maxNo2;
+    private Double maxO3;
+    private Double maxCo;
+    private Double maxSo2;
+    private List<String> fields;   // Field projection, e.g. fields=city,country,aqi
+
+    public CityQuery() {
+    }
+
+    /**
+     * Returns true if any paging, filter or projection parameter was supplied
+     */
+    public boolean hasCriteria() {
+        return after != null || limit != null || country != null
+                || minAqi != null || maxAqi != null
+                || maxPm25 != null || maxPm10 != null || maxNo2 != null
+                || maxO3 != null || maxCo != null || maxSo2 != null
+                || (fields != null && !fields.isEmpty());
+    }
+
+    // Getters and Setters
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public Integer getMinAqi() {
+        return minAqi;
+    }
+
+    public void setMinAqi(Integer minAqi) {
+        this.minAqi = minAqi;
+    }
+
+    public Integer getMaxAqi() {
+        return maxAqi;
+    }
+
+    public void setMaxAqi(Integer maxAqi) {
+        this.maxAqi = maxAqi;
+    }
+
+    public Double getMaxPm25() {
+        return maxPm25;
+    }
+
+    public void setMaxPm25(Double maxPm25) {
+        this.maxPm25 = maxPm25;
+    }
+
+    public Double getMaxPm10() {
+        return maxPm10;
+    }
+
+    public void setMaxPm10(Double maxPm10) {
+        this.maxPm10 = maxPm10;
+    }
+
+    public Double getMaxNo2() {
+        return maxNo2;
+    }
+
+    public void setMaxNo2(Double maxNo2) {
+        this.maxNo2 = maxNo2;
+    }
+
+    public Double getMaxO3() {
+        return maxO3;
+    }
+
+    public void setMaxO3(Double maxO3) {
+        this.maxO3 = maxO3;
+    }
+
+    public Double getMaxCo() {
+        return maxCo;
+    }
+
+    public void setMaxCo(Double maxCo) {
+        this.maxCo = maxCo;
+    }
+
+    public Double getMaxSo2() {
+        return maxSo2;
+    }
+
+    public void setMaxSo2(Double maxSo2) {
+        this.maxSo2 = maxSo2;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<String> fields) {
+        this.fields = fields;
+    }
+}
@@ -0,0 +1,47 @@
+package com.airquality.api.core.model;
+
+import java.util.List;
+
+/**
+ * Payload of the data-update event pushed on GET /api/events after each refresh
+ * changedCities holds new or changed rows and removedCities the last known rows that disappeared.
+ * When too many rows changed to send inline, reload is true and both lists are empty:
+ * clients should refetch /api/cities instead.
+ */
+public class DataUpdate {
+
+    private final long generation;
+    private final GlobalAirQualityStats globalStats;
+    private final boolean reload;
+    private final List<AirQualityData> changedCities;
+    private final List<AirQualityData> removedCities;
+
+    public DataUpdate(long generation, GlobalAirQualityStats globalStats, boolean reload,
+                      List<AirQualityData> changedCities, List<AirQualityData> removedCities) {
+        this.generation = generation;
+        this.globalStats = globalStats;
+        this.reload = reload;
+        this.changedCities = changedCities;
+        this.removedCities = removedCities;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public GlobalAirQualityStats getGlobalStats() {
+        return globalStats;
+    }
+
+    public boolean isReload() {
+        return reload;
+    }
+
+    public List<AirQualityData> getChangedCities() {
+        return changedCities;
+    }
+
+    public List<AirQualityData> getRemovedCities() {
+        return removedCities;
+    }
+}
@@ -0,0 +1,27 @@
+package com.airquality.api.core.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version of the stored air quality data
+ * generation is bumped by every committed write (refresh, delete, stats rebuild) and is the same
+ * on every node reading the same database, so it can back ETags and cross-node change detection
+ */
+public class DataVersion {
+
+    private final long generation;             // 0 when no write has completed yet
+    private final LocalDateTime refreshedAt;   // UTC, null when no write has completed yet
+
+    public DataVersion(long generation, LocalDateTime refreshedAt) {
+        this.generation = generation;
+        this.refreshedAt = refreshedAt;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+}
@@ -0,0 +1,84 @@
+package com.airquality.api.core.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One map marker from GET /api/map/clusters: either a cluster of nearby cities or a single city
+ *
+ * latitude/longitude is the centroid of the cities in the marker. AQI figures cover cities with an
+ * AQI and are null when there are none. A cluster (count > 1) carries expansionZoom, the zoom at
+ * which it splits into smaller markers; a single city carries its city, country and aqi instead.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MapCluster {
+
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+    private final Integer maxAqi;
+    private final Double averageAqi;
+    private final Integer expansionZoom;
+    private final String city;
+    private final String country;
+    private final Integer aqi;
+
+    private MapCluster(double latitude, double longitude, int count, Integer maxAqi, Double averageAqi,
+                       Integer expansionZoom, String city, String country, Integer aqi) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.maxAqi = maxAqi;
+        this.averageAqi = averageAqi;
+        this.expansionZoom = expansionZoom;
+        this.city = city;
+        this.country = country;
+        this.aqi = aqi;
+    }
+
+    public static MapCluster cluster(double latitude, double longitude, int count, Integer maxAqi,
+                                     Double averageAqi, int expansionZoom) {
+        return new MapCluster(latitude, longitude, count, maxAqi, averageAqi, expansionZoom, null, null, null);
+    }
+
+    public static MapCluster city(AirQualityData data) {
+        Integer aqi = data.getAqi();
+        return new MapCluster(data.getLatitude(), data.getLongitude(), 1, aqi,
+            aqi != null ? aqi.doubleValue() : null, null, data.getCity(), data.getCountry(), aqi);
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Integer getMaxAqi() {
+        return maxAqi;
+    }
+
+    public Double getAverageAqi() {
+        return averageAqi;
+    }
+
+    public Integer getExpansionZoom() {
+        return expansionZoom;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public Integer getAqi() {
+        return aqi;
+    }
+}
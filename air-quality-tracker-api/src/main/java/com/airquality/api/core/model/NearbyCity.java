@@ -0,0 +1,27 @@
+package com.airquality.api.core.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * A city returned by a nearest-station search, with its great-circle distance from the query point
+ * Serializes as the city's fields plus distanceKm
+ */
+public class NearbyCity {
+
+    @JsonUnwrapped
+    private final AirQualityData city;
+    private final double distanceKm;
+
+    public NearbyCity(AirQualityData city, double distanceKm) {
+        this.city = city;
+        this.distanceKm = Math.round(distanceKm * 1000) / 1000.0;
+    }
+
+    public AirQualityData getCity() {
+        return city;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+}
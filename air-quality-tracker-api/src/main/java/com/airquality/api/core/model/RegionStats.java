@@ -0,0 +1,99 @@
+package com.airquality.api.core.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated air quality for one region (a continent or a country), from GET /api/regions
+ * and GET /api/country/{name}/stats
+ *
+ * AQI figures cover cities with an AQI (ratedCities); they are null when there are none.
+ * categoryCounts uses the EPA category names of AirQualityData.getAqiCategory, in order.
+ * continent is only set on countries, countries only on continents.
+ */
+public class RegionStats {
+
+    private final String level;
+    private final String name;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String continent;
+    private final int totalCities;
+    private final int ratedCities;
+    private final Double averageAqi;
+    private final Double medianAqi;
+    private final Integer maxAqi;
+    private final Map<String, Integer> categoryCounts;
+    private final String worstCity;
+    private final String worstCityCountry;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final List<RegionStats> countries;
+
+    public RegionStats(String level, String name, String continent, int totalCities, int ratedCities,
+                       Double averageAqi, Double medianAqi, Integer maxAqi, Map<String, Integer> categoryCounts,
+                       String worstCity, String worstCityCountry, List<RegionStats> countries) {
+        this.level = level;
+        this.name = name;
+        this.continent = continent;
+        this.totalCities = totalCities;
+        this.ratedCities = ratedCities;
+        this.averageAqi = averageAqi;
+        this.medianAqi = medianAqi;
+        this.maxAqi = maxAqi;
+        this.categoryCounts = categoryCounts;
+        this.worstCity = worstCity;
+        this.worstCityCountry = worstCityCountry;
+        this.countries = countries;
+    }
+
+    // "continent" or "country"
+    public String getLevel() {
+        return level;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContinent() {
+        return continent;
+    }
+
+    public int getTotalCities() {
+        return totalCities;
+    }
+
+    public int getRatedCities() {
+        return ratedCities;
+    }
+
+    public Double getAverageAqi() {
+        return averageAqi;
+    }
+
+    public Double getMedianAqi() {
+        return medianAqi;
+    }
+
+    public Integer getMaxAqi() {
+        return maxAqi;
+    }
+
+    public Map<String, Integer> getCategoryCounts() {
+        return categoryCounts;
+    }
+
+    public String getWorstCity() {
+        return worstCity;
+    }
+
+    public String getWorstCityCountry() {
+        return worstCityCountry;
+    }
+
+    // Countries of a continent, by name
+    public List<RegionStats> getCountries() {
+        return countries;
+    }
+}
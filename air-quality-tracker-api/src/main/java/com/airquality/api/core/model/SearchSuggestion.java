@@ -0,0 +1,43 @@
+package com.airquality.api.core.model;
+
+/**
+ * One autocomplete suggestion from GET /api/search
+ * type is "city" or "country"; country and aqi are only set for cities
+ * match is "exact", "prefix" or "fuzzy" (a near-miss spelling)
+ */
+public class SearchSuggestion {
+
+    private final String type;
+    private final String name;
+    private final String country;
+    private final Integer aqi;
+    private final String match;
+
+    public SearchSuggestion(String type, String name, String country, Integer aqi, String match) {
+        this.type = type;
+        this.name = name;
+        this.country = country;
+        this.aqi = aqi;
+        this.match = match;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public Integer getAqi() {
+        return aqi;
+    }
+
+    public String getMatch() {
+        return match;
+    }
+}
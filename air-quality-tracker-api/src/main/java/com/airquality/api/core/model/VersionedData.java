@@ -0,0 +1,32 @@
+package com.airquality.api.core.model;
+
+import java.util.List;
+
+/**
+ * All rows, the global statistics and the data version, read as of one point in time
+ * Used to build snapshots, so a snapshot's generation always describes the rows it holds
+ */
+public class VersionedData {
+
+    private final DataVersion version;
+    private final List<AirQualityData> cities;      // city order, as AirQualityRepository.findAll
+    private final GlobalAirQualityStats stats;      // null if statistics were never built
+
+    public VersionedData(DataVersion version, List<AirQualityData> cities, GlobalAirQualityStats stats) {
+        this.version = version;
+        this.cities = cities;
+        this.stats = stats;
+    }
+
+    public DataVersion getVersion() {
+        return version;
+    }
+
+    public List<AirQualityData> getCities() {
+        return cities;
+    }
+
+    public GlobalAirQualityStats getStats() {
+        return stats;
+    }
+}
@@ -1,263 +1,170 @@
 package com.airquality.api.core.repository;
 
-import com.airquality.api.core.mapper.AirQualityDataRowMapper;
 import com.airquality.api.core.model.AirQualityData;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
+import com.airquality.api.core.model.CityCursor;
+import com.airquality.api.core.model.CityQuery;
+import com.airquality.api.core.model.DataVersion;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.VersionedData;
 
-import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
- * Repository for accessing air quality data from MySQL database
- * Uses JdbcTemplate to execute SQL queries and HikariCP to manage database connections
+ * Storage interface for air quality data
+ * Implementations: JdbcAirQualityRepository (MySQL, default) and
+ * EmbeddedAirQualityRepository (append-only local log, "embedded" profile)
  */
-@Repository
-public class AirQualityRepository {
+public interface AirQualityRepository {
 
-    private static final Logger logger = LoggerFactory.getLogger(AirQualityRepository.class);
+    /**
+     * Returns all air quality data ordered by city
+     *
+     * @return List of all AirQualityData objects
+     */
+    List<AirQualityData> findAll();
 
-    private final JdbcTemplate jdbcTemplate;
+    /**
+     * Stream every row to the consumer without materializing the full list
+     *
+     * @param consumer Receives each row in city order
+     */
+    void streamAll(Consumer<AirQualityData> consumer);
 
-    public AirQualityRepository(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
-        logger.info("AirQualityRepository initialized with JDBC Template");
-    }
+    /**
+     * Fetch one page of cities in (city key, id) order using keyset pagination
+     * The city key is LookupKeys.normalize(city), compared with LookupKeys.KEY_ORDER; every
+     * implementation and the snapshot's CityColumns use this order, so cursors carry over between them
+     *
+     * @param query Filters (country, AQI range, pollutant thresholds)
+     * @param cursor Position after which to start, or null for the first page
+     * @param limit Maximum number of rows to return
+     * @return Matching cities in (city key, id) order
+     */
+    List<AirQualityData> findPage(CityQuery query, CityCursor cursor, int limit);
 
     /**
-     * Returns all air quality data from database
-     * 
-     * @return List of all AirQualityData objects
+     * Same as findPage but returns only the given fields
+     * Callers include id and city so the next cursor can be built from the last row
+     *
+     * @param query Filters (country, AQI range, pollutant thresholds)
+     * @param cursor Position after which to start, or null for the first page
+     * @param limit Maximum number of rows to return
+     * @param fields Validated field names (see AirQualityProjectionRowMapper.resolveFields)
+     * @return Field maps in (city key, id) order
      */
-    public List<AirQualityData> findAll() {
-        logger.debug("Fetching all air quality data from database");
-        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
-                       "latitude, longitude, last_updated " +
-                       "FROM air_quality_data " +
-                       "ORDER BY city ASC";
-        return jdbcTemplate.query(query, new AirQualityDataRowMapper());
-    }
+    List<Map<String, Object>> findPageProjected(CityQuery query, CityCursor cursor, int limit, List<String> fields);
 
     /**
-     * Find air quality data by city name (case-insensitive)
-     * 
+     * Find air quality data by city name (case- and accent-insensitive)
+     *
      * @param city City name to search for
      * @return AirQualityData if found, null otherwise
      */
-    public AirQualityData findByCity(String city) {
-        logger.debug("Searching for city: {}", city);
-        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
-                       "latitude, longitude, last_updated " +
-                       "FROM air_quality_data " +
-                       "WHERE LOWER(city) = LOWER(?) " +
-                       "LIMIT 1";
-        
-        List<AirQualityData> results = jdbcTemplate.query(query, new AirQualityDataRowMapper(), city);
-        return results.isEmpty() ? null : results.get(0);
-    }
+    AirQualityData findByCity(String city);
 
     /**
-     * Find all cities in a specific country
-     * 
+     * Find all cities in a specific country (case- and accent-insensitive)
+     *
      * @param country Country name to filter by
-     * @return List of AirQualityData for the country
+     * @return List of AirQualityData for the country, ordered by city
      */
-    public List<AirQualityData> findByCountry(String country) {
-        logger.debug("Fetching cities for country: {}", country);
-        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
-                       "latitude, longitude, last_updated " +
-                       "FROM air_quality_data " +
-                       "WHERE LOWER(country) = LOWER(?) " +
-                       "ORDER BY city ASC";
-        
-        return jdbcTemplate.query(query, new AirQualityDataRowMapper(), country);
-    }
+    List<AirQualityData> findByCountry(String country);
+
+    /**
+     * Find every row whose city matches one of the given names (case- and accent-insensitive)
+     * One query for the whole set; rows of same-named cities in different countries are all returned
+     *
+     * @param cities City names to search for
+     * @return Matching rows, ordered by city
+     */
+    List<AirQualityData> findByCities(Collection<String> cities);
 
     /**
      * Get list of unique countries
-     * 
-     * @return List of country names
+     *
+     * @return List of country names, sorted
      */
-    public List<String> findAllCountries() {
-        logger.debug("Fetching all unique countries");
-        String query = "SELECT DISTINCT country FROM air_quality_data ORDER BY country ASC";
-        return jdbcTemplate.queryForList(query, String.class);
-    }
+    List<String> findAllCountries();
 
     /**
      * Check if a city+country combination exists
-     * 
+     *
      * @param city City name
      * @param country Country name
      * @return true if exists, false otherwise
      */
-    public boolean existsByCityAndCountry(String city, String country) {
-        String query = "SELECT COUNT(*) FROM air_quality_data WHERE LOWER(city) = LOWER(?) AND LOWER(country) = LOWER(?)";
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class, city, country);
-        return count != null && count > 0;
-    }
+    boolean existsByCityAndCountry(String city, String country);
 
     /**
-     * Count total cities in database
-     * 
+     * Count total cities
+     *
      * @return Total count
      */
-    public int count() {
-        String query = "SELECT COUNT(*) FROM air_quality_data";
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class);
-        return count != null ? count : 0;
-    }
+    int count();
 
     /**
-     * Count unique countries in database
-     * 
-     * @return Count of unique countries
+     * Read the materialized global statistics
+     *
+     * @return GlobalAirQualityStats, or null if statistics were never built
      */
-    public int countDistinctCountries() {
-        String query = "SELECT COUNT(DISTINCT country) FROM air_quality_data";
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class);
-        return count != null ? count : 0;
-    }
+    GlobalAirQualityStats findGlobalStats();
 
     /**
-     * Calculate average AQI across all cities
-     * 
-     * @return Average AQI value
+     * Read the current data generation and refresh time (strongly consistent, cheap enough to poll)
+     *
+     * @return DataVersion; generation 0 if no write has completed yet
      */
-    public Double calculateAverageAqi() {
-        String query = "SELECT AVG(aqi) FROM air_quality_data WHERE aqi IS NOT NULL";
-        return jdbcTemplate.queryForObject(query, Double.class);
-    }
+    DataVersion findDataVersion();
 
     /**
-     * Count cities within an AQI range
-     * 
-     * @param minAqi Minimum AQI (inclusive)
-     * @param maxAqi Maximum AQI (inclusive)
-     * @return Count of cities in range
+     * Read the data version, all rows (city order) and the global statistics from one consistent view,
+     * never older than findDataVersion at the time of the call
+     *
+     * @return VersionedData whose generation describes exactly the rows and statistics returned
      */
-    public int countByAqiRange(int minAqi, int maxAqi) {
-        String query = "SELECT COUNT(*) FROM air_quality_data WHERE aqi >= ? AND aqi <= ?";
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class, minAqi, maxAqi);
-        return count != null ? count : 0;
-    }
+    VersionedData findVersionedData();
 
     /**
-     * Find city with lowest AQI (cleanest air)
-     * 
-     * @return AirQualityData for cleanest city
+     * Recompute the materialized global statistics from the current data and bump the data generation
      */
-    public AirQualityData findCleanestCity() {
-        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
-                       "latitude, longitude, last_updated " +
-                       "FROM air_quality_data " +
-                       "WHERE aqi IS NOT NULL AND aqi > 0 " +
-                       "ORDER BY aqi ASC " +
-                       "LIMIT 1";
-        
-        List<AirQualityData> results = jdbcTemplate.query(query, new AirQualityDataRowMapper());
-        return results.isEmpty() ? null : results.get(0);
-    }
+    void refreshGlobalStats();
 
     /**
-     * Find city with highest AQI (most polluted)
-     * 
-     * @return AirQualityData for most polluted city
+     * Bulk update or insert air quality data, keyed by city + country
+     * Data and global statistics are updated atomically
+     *
+     * @param dataList List of AirQualityData objects to upsert
+     * @return Total number of rows affected
      */
-    public AirQualityData findMostPollutedCity() {
-        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
-                       "latitude, longitude, last_updated " +
-                       "FROM air_quality_data " +
-                       "WHERE aqi IS NOT NULL " +
-                       "ORDER BY aqi DESC " +
-                       "LIMIT 1";
-        
-        List<AirQualityData> results = jdbcTemplate.query(query, new AirQualityDataRowMapper());
-        return results.isEmpty() ? null : results.get(0);
-    }
+    int bulkUpsert(List<AirQualityData> dataList);
 
     /**
-     * Bulk update or insert air quality data
-     * Uses INSERT ... ON DUPLICATE KEY UPDATE
-     * 
-     * @param dataList List of AirQualityData objects to upsert
+     * Same merge as bulkUpsert, but readers switch from the old to the new dataset in one step
+     *
+     * @param dataList List of AirQualityData objects to merge into the current data
      * @return Total number of rows affected
      */
-    @Transactional
-    public int bulkUpsert(List<AirQualityData> dataList) {
-        logger.info("Bulk upserting {} air quality records", dataList.size());
-        
-        String query = "INSERT INTO air_quality_data " +
-                       "(city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, latitude, longitude, last_updated) " +
-                       "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                       "ON DUPLICATE KEY UPDATE " +
-                       "location_id = VALUES(location_id), " +
-                       "aqi = VALUES(aqi), " +
-                       "pm25 = VALUES(pm25), " +
-                       "pm10 = VALUES(pm10), " +
-                       "no2 = VALUES(no2), " +
-                       "o3 = VALUES(o3), " +
-                       "co = VALUES(co), " +
-                       "so2 = VALUES(so2), " +
-                       "latitude = VALUES(latitude), " +
-                       "longitude = VALUES(longitude), " +
-                       "last_updated = VALUES(last_updated), " +
-                       "updated_at = CURRENT_TIMESTAMP";
-        
-        int totalRowsAffected = 0;
-        
-        for (AirQualityData data : dataList) {
-            try {
-                Timestamp lastUpdated = data.getLastUpdated() != null 
-                    ? Timestamp.valueOf(data.getLastUpdated()) 
-                    : new Timestamp(System.currentTimeMillis());
-                
-                int rowsAffected = jdbcTemplate.update(query,
-                    data.getCity(),
-                    data.getCountry(),
-                    data.getLocationId(),
-                    data.getAqi(),
-                    data.getPm25(),
-                    data.getPm10(),
-                    data.getNo2(),
-                    data.getO3(),
-                    data.getCo(),
-                    data.getSo2(),
-                    data.getLatitude(),
-                    data.getLongitude(),
-                    lastUpdated
-                );
-                totalRowsAffected += rowsAffected;
-            } catch (Exception e) {
-                logger.error("Error upserting data for city: {} in {}", data.getCity(), data.getCountry(), e);
-                throw e; // Transaction will rollback
-            }
-        }
-        
-        logger.info("Bulk upsert completed. {} rows affected", totalRowsAffected);
-        return totalRowsAffected;
-    }
+    int swapRefresh(List<AirQualityData> dataList);
+
+    /**
+     * Fill normalized lookup keys for rows written before they existed
+     *
+     * @return Number of rows backfilled
+     */
+    int backfillLookupKeys();
 
     /**
-     * Check if database is empty
-     * 
+     * Check if storage is empty
+     *
      * @return true if no records exist
      */
-    public boolean isEmpty() {
-        String query = "SELECT COUNT(*) FROM air_quality_data";
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class);
-        return count != null && count == 0;
-    }
+    boolean isEmpty();
 
     /**
      * Delete all data (for testing purposes)
      */
-    @Transactional
-    public void deleteAll() {
-        logger.warn("Deleting all air quality data");
-        jdbcTemplate.update("DELETE FROM air_quality_data");
-    }
+    void deleteAll();
 }
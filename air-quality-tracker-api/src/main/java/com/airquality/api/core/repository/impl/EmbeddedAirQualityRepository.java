@@ -0,0 +1,732 @@
+package com.airquality.api.core.repository.impl;
+
+import com.airquality.api.core.mapper.AirQualityProjectionRowMapper;
+import com.airquality.api.core.mapper.GlobalAirQualityStatsRowMapper;
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.CityCursor;
+import com.airquality.api.core.model.CityQuery;
+import com.airquality.api.core.model.DataVersion;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.VersionedData;
+import com.airquality.api.core.repository.AirQualityRepository;
+import com.airquality.api.shared.util.LookupKeys;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Embedded implementation of AirQualityRepository for edge deployments (no MySQL)
+ * Enabled with the "embedded" Spring profile
+ *
+ * Storage layout:
+ * - Append-only log file of JSON lines: PUT (row), CLEAR (delete all), COMMIT (end of batch,
+ *   carries the data generation and refresh time)
+ * - In-memory index rebuilt after every committed batch; reads never touch the disk
+ *
+ * Durability:
+ * - Each batch is appended and fsynced before it becomes visible
+ * - On startup the log is replayed; entries after the last COMMIT (torn write) are discarded.
+ *   An unreadable entry followed by a later COMMIT is corruption, not a torn write: startup fails
+ *   instead of dropping committed batches
+ * - When the log grows past compaction-ratio x live rows, it is rewritten and atomically replaced
+ *   (file and directory fsynced). A failed compaction leaves the old log in use and is retried
+ *   after the next batch; the batch that triggered it has already been committed
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedAirQualityRepository implements AirQualityRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedAirQualityRepository.class);
+
+    private static final String LOG_FILE_NAME = "air-quality-data.log";
+    private static final String COMPACT_FILE_NAME = "air-quality-data.log.compact";
+    private static final int MIN_COMPACTION_ENTRIES = 1000;
+
+    // Same order as the MySQL backend: city key (code point order, as utf8mb4_bin), then id
+    private static final Comparator<AirQualityData> CITY_ORDER = Comparator
+            .comparing((AirQualityData data) -> LookupKeys.normalize(data.getCity()), LookupKeys.KEY_ORDER)
+            .thenComparing(AirQualityData::getId);
+
+    private final ObjectMapper objectMapper;
+    private final Path logFile;
+    private final Path compactFile;
+    private final double compactionRatio;
+
+    // Writer state, guarded by writeLock
+    private final Object writeLock = new Object();
+    private final Map<String, AirQualityData> rows = new HashMap<>();   // key: city_key|country_key
+    private long nextId = 1;
+    private long logEntries = 0;
+    private long generation = 0;
+    private LocalDateTime statsRefreshedAt;
+    private FileChannel logChannel;
+
+    // Immutable read view, republished after every committed batch
+    private volatile Index index = Index.build(Collections.emptyList(), 0, null);
+
+    public EmbeddedAirQualityRepository(ObjectMapper objectMapper,
+                                        @Value("${embedded.storage.directory:data}") String directory,
+                                        @Value("${embedded.storage.compaction-ratio:2.0}") double compactionRatio) {
+        // Row JSON includes derived properties such as aqiCategory; ignore them on replay
+        this.objectMapper = objectMapper.copy()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.logFile = Paths.get(directory, LOG_FILE_NAME);
+        this.compactFile = Paths.get(directory, COMPACT_FILE_NAME);
+        this.compactionRatio = compactionRatio;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(logFile.getParent());
+        // A leftover compact file means compaction crashed before the atomic move: the log is still valid
+        Files.deleteIfExists(compactFile);
+
+        synchronized (writeLock) {
+            recover();
+            logChannel = openLog();
+            publishIndex();
+        }
+
+        logger.info("EmbeddedAirQualityRepository initialized from {} ({} rows, {} log entries)",
+            logFile.toAbsolutePath(), rows.size(), logEntries);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (logChannel != null) {
+                logChannel.close();
+            }
+        }
+    }
+
+    @Override
+    public List<AirQualityData> findAll() {
+        return index.sorted;
+    }
+
+    @Override
+    public void streamAll(Consumer<AirQualityData> consumer) {
+        index.sorted.forEach(consumer);
+    }
+
+    @Override
+    public List<AirQualityData> findPage(CityQuery query, CityCursor cursor, int limit) {
+        Index current = index;
+        List<AirQualityData> source = query.getCountry() != null
+                ? current.byCountry.getOrDefault(LookupKeys.normalize(query.getCountry()), Collections.emptyList())
+                : current.sorted;
+
+        List<AirQualityData> page = new ArrayList<>(Math.min(limit, source.size()));
+        for (int i = firstAfter(source, cursor); i < source.size() && page.size() < limit; i++) {
+            AirQualityData data = source.get(i);
+            if (matches(query, data)) {
+                page.add(data);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<Map<String, Object>> findPageProjected(CityQuery query, CityCursor cursor,
+                                                       int limit, List<String> fields) {
+        List<Map<String, Object>> page = new ArrayList<>();
+        for (AirQualityData data : findPage(query, cursor, limit)) {
+            page.add(AirQualityProjectionRowMapper.toFieldMap(data, fields));
+        }
+        return page;
+    }
+
+    @Override
+    public AirQualityData findByCity(String city) {
+        List<AirQualityData> rows = index.byCity.get(LookupKeys.normalize(city));
+        return rows != null ? rows.get(0) : null;
+    }
+
+    @Override
+    public List<AirQualityData> findByCities(Collection<String> cities) {
+        Index current = index;
+        List<AirQualityData> result = new ArrayList<>();
+        cities.stream().map(LookupKeys::normalize).distinct()
+                .forEach(cityKey -> result.addAll(current.byCity.getOrDefault(cityKey, Collections.emptyList())));
+        result.sort(CITY_ORDER);
+        return result;
+    }
+
+    @Override
+    public List<AirQualityData> findByCountry(String country) {
+        return index.byCountry.getOrDefault(LookupKeys.normalize(country), Collections.emptyList());
+    }
+
+    @Override
+    public List<String> findAllCountries() {
+        return index.countries;
+    }
+
+    @Override
+    public boolean existsByCityAndCountry(String city, String country) {
+        return index.byCityAndCountry.containsKey(rowKey(city, country));
+    }
+
+    @Override
+    public int count() {
+        return index.sorted.size();
+    }
+
+    @Override
+    public GlobalAirQualityStats findGlobalStats() {
+        return index.stats;
+    }
+
+    @Override
+    public DataVersion findDataVersion() {
+        Index current = index;
+        return new DataVersion(current.generation, current.refreshedAt);
+    }
+
+    // One published index holds rows, statistics and generation together
+    @Override
+    public VersionedData findVersionedData() {
+        Index current = index;
+        return new VersionedData(new DataVersion(current.generation, current.refreshedAt), current.sorted, current.stats);
+    }
+
+    /**
+     * Statistics are always computed with the index; this only records a new generation (an empty batch)
+     */
+    @Override
+    public void refreshGlobalStats() {
+        synchronized (writeLock) {
+            commit(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Append the batch (PUT entries + COMMIT) and fsync, then apply it and publish a new index
+     * Returns MySQL-style rows affected: 1 per insert, 2 per update
+     */
+    @Override
+    public int bulkUpsert(List<AirQualityData> dataList) {
+        logger.info("Bulk upserting {} air quality records to embedded storage", dataList.size());
+
+        synchronized (writeLock) {
+            List<LogEntry> batch = new ArrayList<>(dataList.size() + 1);
+            int totalRowsAffected = 0;
+
+            // Rows within one batch with the same key collapse to the last one, like repeated upserts
+            Map<String, Long> batchIds = new HashMap<>();
+            for (AirQualityData data : dataList) {
+                String key = rowKey(data.getCity(), data.getCountry());
+                AirQualityData existing = rows.get(key);
+                Long id = existing != null ? existing.getId() : batchIds.get(key);
+                if (id == null) {
+                    id = nextId++;
+                    batchIds.put(key, id);
+                    totalRowsAffected += 1;
+                } else {
+                    totalRowsAffected += 2;
+                }
+                batch.add(LogEntry.put(copyOf(data, id)));
+            }
+            commit(batch);
+
+            logger.info("Bulk upsert completed. {} rows affected", totalRowsAffected);
+            return totalRowsAffected;
+        }
+    }
+
+    /**
+     * A batch becomes visible in one step when its index is published, so this is the same as bulkUpsert
+     */
+    @Override
+    public int swapRefresh(List<AirQualityData> dataList) {
+        return bulkUpsert(dataList);
+    }
+
+    /**
+     * Lookup keys are computed in memory on every index build; nothing to backfill
+     */
+    @Override
+    public int backfillLookupKeys() {
+        return 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.sorted.isEmpty();
+    }
+
+    @Override
+    public void deleteAll() {
+        logger.warn("Deleting all air quality data from embedded storage");
+
+        synchronized (writeLock) {
+            List<LogEntry> batch = new ArrayList<>();
+            batch.add(LogEntry.clear());
+            commit(batch);
+        }
+    }
+
+    // Terminates the batch with COMMIT (next generation), makes it durable, applies it and publishes
+    // Caller holds writeLock
+    private void commit(List<LogEntry> batch) {
+        batch.add(LogEntry.commit(LocalDateTime.now(ZoneOffset.UTC), generation + 1));
+
+        append(batch);
+        for (LogEntry entry : batch) {
+            apply(entry);
+        }
+        publishIndex();
+        compactIfNeeded();
+    }
+
+    // Replays the log, applying only batches terminated by COMMIT, and truncates any torn tail
+    // Only the tail after the last COMMIT can be torn; an unreadable entry before a COMMIT fails startup
+    private void recover() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+
+        byte[] bytes = Files.readAllBytes(logFile);
+        List<LogEntry> pending = new ArrayList<>();
+        int lineStart = 0;
+        int committedLength = 0;
+
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+
+            LogEntry entry;
+            try {
+                entry = objectMapper.readValue(bytes, lineStart, i - lineStart, LogEntry.class);
+            } catch (IOException e) {
+                if (hasCommitAfter(bytes, i + 1)) {
+                    throw new IOException("Corrupt embedded log entry at byte " + lineStart + " of " + logFile
+                        + " is followed by committed batches; refusing to truncate them (restore or repair the log)", e);
+                }
+                logger.warn("Unreadable embedded log entry at byte {} in the uncommitted tail: {}",
+                    lineStart, e.getMessage());
+                break;
+            }
+            lineStart = i + 1;
+            logEntries++;
+
+            if (LogEntry.COMMIT.equals(entry.op)) {
+                for (LogEntry committed : pending) {
+                    apply(committed);
+                }
+                pending.clear();
+                apply(entry);
+                committedLength = lineStart;
+            } else {
+                pending.add(entry);
+            }
+        }
+
+        if (committedLength < bytes.length) {
+            logger.warn("Discarding {} bytes of uncommitted embedded log tail (incomplete write before shutdown)",
+                bytes.length - committedLength);
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                channel.truncate(committedLength);
+                channel.force(true);
+            }
+        }
+    }
+
+    // True if any complete line from offset on is a readable COMMIT entry
+    private boolean hasCommitAfter(byte[] bytes, int offset) {
+        int lineStart = offset;
+        for (int i = offset; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            try {
+                LogEntry entry = objectMapper.readValue(bytes, lineStart, i - lineStart, LogEntry.class);
+                if (LogEntry.COMMIT.equals(entry.op)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                // Another unreadable line; keep looking
+            }
+            lineStart = i + 1;
+        }
+        return false;
+    }
+
+    private void apply(LogEntry entry) {
+        switch (entry.op) {
+            case LogEntry.PUT:
+                rows.put(rowKey(entry.data.getCity(), entry.data.getCountry()), entry.data);
+                nextId = Math.max(nextId, entry.data.getId() + 1);
+                break;
+            case LogEntry.CLEAR:
+                rows.clear();
+                break;
+            case LogEntry.COMMIT:
+                statsRefreshedAt = entry.at;
+                // Logs written before generations existed: count commits instead
+                generation = entry.generation != null ? entry.generation : generation + 1;
+                break;
+            default:
+                throw new IllegalStateException("Unknown embedded log operation: " + entry.op);
+        }
+    }
+
+    private void append(List<LogEntry> batch) {
+        try {
+            if (logChannel == null) {
+                // A failed compaction could not reopen the log; try again before writing
+                logChannel = openLog();
+            }
+            logChannel.write(ByteBuffer.wrap(serialize(batch)));
+            logChannel.force(false);
+            logEntries += batch.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to embedded log " + logFile, e);
+        }
+    }
+
+    // Rewrites the log as one committed batch of live rows, then atomically replaces the old log
+    // Never throws: the batch that triggered it is already durable and visible
+    private void compactIfNeeded() {
+        long threshold = Math.max(MIN_COMPACTION_ENTRIES, (long) (compactionRatio * (rows.size() + 1)));
+        if (logEntries <= threshold) {
+            return;
+        }
+
+        List<LogEntry> snapshot = new ArrayList<>(rows.size() + 2);
+        snapshot.add(LogEntry.clear());
+        for (AirQualityData data : rows.values()) {
+            snapshot.add(LogEntry.put(data));
+        }
+        snapshot.add(LogEntry.commit(statsRefreshedAt, generation));
+
+        try {
+            try (FileChannel channel = FileChannel.open(compactFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(serialize(snapshot)));
+                channel.force(true);
+            }
+            // Until the move succeeds the old log and its open channel stay in use
+            Files.move(compactFile, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Failed to compact embedded log {} ({} entries), will retry after the next batch: {}",
+                logFile, logEntries, e.getMessage());
+            deleteQuietly(compactFile);
+            return;
+        }
+
+        syncDirectory();
+        logger.info("Compacted embedded log from {} to {} entries", logEntries, snapshot.size());
+        logEntries = snapshot.size();
+
+        // The old channel now points at the replaced file; switch to the new one
+        FileChannel previous = logChannel;
+        try {
+            logChannel = openLog();
+        } catch (IOException e) {
+            logChannel = null;
+            logger.warn("Failed to reopen compacted embedded log {}, will retry on the next write: {}",
+                logFile, e.getMessage());
+        }
+        try {
+            previous.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close replaced embedded log channel", e);
+        }
+    }
+
+    private FileChannel openLog() throws IOException {
+        return FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Makes the rename itself durable; not supported on every platform (e.g. Windows), so best effort
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(logFile.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            logger.debug("Could not fsync embedded storage directory: {}", e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private byte[] serialize(List<LogEntry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (LogEntry entry : entries) {
+            out.write(objectMapper.writeValueAsBytes(entry));
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    private void publishIndex() {
+        index = Index.build(rows.values(), generation, statsRefreshedAt);
+    }
+
+    // Index of the first row strictly after the cursor in (city key, id) order
+    private static int firstAfter(List<AirQualityData> source, CityCursor cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        String cursorKey = LookupKeys.normalize(cursor.getCity());
+        int low = 0;
+        int high = source.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            AirQualityData data = source.get(mid);
+            int cmp = LookupKeys.KEY_ORDER.compare(LookupKeys.normalize(data.getCity()), cursorKey);
+            if (cmp == 0) {
+                cmp = Long.compare(data.getId(), cursor.getId());
+            }
+            if (cmp <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Same semantics as the SQL filters: a NULL column never satisfies a comparison
+    private static boolean matches(CityQuery query, AirQualityData data) {
+        return atLeast(data.getAqi(), query.getMinAqi())
+                && atMost(data.getAqi(), query.getMaxAqi())
+                && atMost(data.getPm25(), query.getMaxPm25())
+                && atMost(data.getPm10(), query.getMaxPm10())
+                && atMost(data.getNo2(), query.getMaxNo2())
+                && atMost(data.getO3(), query.getMaxO3())
+                && atMost(data.getCo(), query.getMaxCo())
+                && atMost(data.getSo2(), query.getMaxSo2());
+    }
+
+    private static boolean atLeast(Integer value, Integer min) {
+        return min == null || (value != null && value >= min);
+    }
+
+    private static <T extends Comparable<T>> boolean atMost(T value, T max) {
+        return max == null || (value != null && value.compareTo(max) <= 0);
+    }
+
+    private static String rowKey(String city, String country) {
+        return LookupKeys.cityCountryKey(city, country);
+    }
+
+    // Defensive copy so callers can't mutate stored rows; missing lastUpdated defaults to now (as in MySQL)
+    private static AirQualityData copyOf(AirQualityData data, long id) {
+        return AirQualityData.builder()
+                .id(id)
+                .city(data.getCity())
+                .country(data.getCountry())
+                .locationId(data.getLocationId())
+                .aqi(data.getAqi())
+                .pm25(data.getPm25())
+                .pm10(data.getPm10())
+                .no2(data.getNo2())
+                .o3(data.getO3())
+                .co(data.getCo())
+                .so2(data.getSo2())
+                .latitude(data.getLatitude())
+                .longitude(data.getLongitude())
+                .lastUpdated(data.getLastUpdated() != null ? data.getLastUpdated() : LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * One line of the append-only log
+     */
+    static class LogEntry {
+        static final String PUT = "PUT";
+        static final String CLEAR = "CLEAR";
+        static final String COMMIT = "COMMIT";
+
+        public String op;
+        public AirQualityData data;   // PUT only
+        public LocalDateTime at;      // COMMIT only (UTC)
+        public Long generation;       // COMMIT only
+
+        static LogEntry put(AirQualityData data) {
+            LogEntry entry = new LogEntry();
+            entry.op = PUT;
+            entry.data = data;
+            return entry;
+        }
+
+        static LogEntry clear() {
+            LogEntry entry = new LogEntry();
+            entry.op = CLEAR;
+            return entry;
+        }
+
+        static LogEntry commit(LocalDateTime at, long generation) {
+            LogEntry entry = new LogEntry();
+            entry.op = COMMIT;
+            entry.at = at;
+            entry.generation = generation;
+            return entry;
+        }
+    }
+
+    /**
+     * Immutable read view: sorted rows, hash lookups, precomputed global statistics and data version
+     */
+    private static final class Index {
+        final List<AirQualityData> sorted;
+        final Map<String, List<AirQualityData>> byCity;
+        final Map<String, AirQualityData> byCityAndCountry;
+        final Map<String, List<AirQualityData>> byCountry;
+        final List<String> countries;
+        final GlobalAirQualityStats stats;
+        final long generation;
+        final LocalDateTime refreshedAt;
+
+        private Index(List<AirQualityData> sorted, Map<String, List<AirQualityData>> byCity,
+                      Map<String, AirQualityData> byCityAndCountry, Map<String, List<AirQualityData>> byCountry,
+                      List<String> countries, GlobalAirQualityStats stats,
+                      long generation, LocalDateTime refreshedAt) {
+            this.sorted = sorted;
+            this.byCity = byCity;
+            this.byCityAndCountry = byCityAndCountry;
+            this.byCountry = byCountry;
+            this.countries = countries;
+            this.stats = stats;
+            this.generation = generation;
+            this.refreshedAt = refreshedAt;
+        }
+
+        static Index build(Collection<AirQualityData> rows, long generation, LocalDateTime statsRefreshedAt) {
+            List<AirQualityData> sorted = sortByCityKey(rows);
+
+            Map<String, List<AirQualityData>> byCity = new HashMap<>();
+            Map<String, AirQualityData> byCityAndCountry = new HashMap<>();
+            Map<String, List<AirQualityData>> byCountry = new LinkedHashMap<>();
+            Map<String, String> countryNames = new HashMap<>();
+            for (AirQualityData data : sorted) {
+                String cityKey = LookupKeys.normalize(data.getCity());
+                String countryKey = LookupKeys.normalize(data.getCountry());
+                byCity.computeIfAbsent(cityKey, k -> new ArrayList<>(1)).add(data);
+                byCityAndCountry.put(cityKey + "|" + countryKey, data);
+                byCountry.computeIfAbsent(countryKey, k -> new ArrayList<>()).add(data);
+                countryNames.putIfAbsent(countryKey, data.getCountry());
+            }
+            byCountry.replaceAll((k, v) -> Collections.unmodifiableList(v));
+
+            List<String> countries = new ArrayList<>(countryNames.values());
+            countries.sort(String.CASE_INSENSITIVE_ORDER);
+
+            GlobalAirQualityStats stats = statsRefreshedAt != null
+                    ? computeStats(sorted, countries.size(), statsRefreshedAt)
+                    : null;
+
+            return new Index(Collections.unmodifiableList(sorted), byCity, byCityAndCountry, byCountry,
+                    Collections.unmodifiableList(countries), stats, generation, statsRefreshedAt);
+        }
+
+        // CITY_ORDER with each key normalized once per row instead of once per comparison
+        private static List<AirQualityData> sortByCityKey(Collection<AirQualityData> rows) {
+            List<Map.Entry<String, AirQualityData>> keyed = new ArrayList<>(rows.size());
+            for (AirQualityData data : rows) {
+                keyed.add(new AbstractMap.SimpleImmutableEntry<>(LookupKeys.normalize(data.getCity()), data));
+            }
+            keyed.sort(Map.Entry.<String, AirQualityData>comparingByKey(LookupKeys.KEY_ORDER)
+                    .thenComparing(entry -> entry.getValue().getId()));
+
+            List<AirQualityData> sorted = new ArrayList<>(keyed.size());
+            for (Map.Entry<String, AirQualityData> entry : keyed) {
+                sorted.add(entry.getValue());
+            }
+            return sorted;
+        }
+
+        // Mirrors the aggregate in JdbcAirQualityRepository.globalStatsQuery
+        private static GlobalAirQualityStats computeStats(List<AirQualityData> sorted, int totalCountries,
+                                                          LocalDateTime refreshedAt) {
+            GlobalAirQualityStats stats = new GlobalAirQualityStats();
+            stats.setTotalCities(sorted.size());
+            stats.setTotalCountries(totalCountries);
+
+            long aqiSum = 0;
+            int aqiCount = 0;
+            int good = 0;
+            int moderate = 0;
+            int unhealthy = 0;
+            AirQualityData cleanest = null;
+            AirQualityData mostPolluted = null;
+
+            for (AirQualityData data : sorted) {
+                Integer aqi = data.getAqi();
+                if (aqi == null) {
+                    continue;
+                }
+                aqiSum += aqi;
+                aqiCount++;
+                if (aqi >= 0 && aqi <= 50) {
+                    good++;
+                } else if (aqi >= 51 && aqi <= 100) {
+                    moderate++;
+                } else if (aqi >= 101 && aqi <= 500) {
+                    unhealthy++;
+                }
+                if (aqi > 0 && (cleanest == null || aqi < cleanest.getAqi())) {
+                    cleanest = data;
+                }
+                if (mostPolluted == null || aqi > mostPolluted.getAqi()) {
+                    mostPolluted = data;
+                }
+            }
+
+            stats.setAverageGlobalAqi(aqiCount > 0 ? Math.round((double) aqiSum / aqiCount * 10) / 10.0 : 0);
+            stats.setCitiesWithGoodAir(good);
+            stats.setCitiesWithModerateAir(moderate);
+            stats.setCitiesWithUnhealthyAir(unhealthy);
+            if (cleanest != null) {
+                stats.setCleanestCity(cleanest.getCity());
+                stats.setCleanestCountry(cleanest.getCountry());
+                stats.setCleanestAqi(cleanest.getAqi());
+            }
+            if (mostPolluted != null) {
+                stats.setMostPollutedCity(mostPolluted.getCity());
+                stats.setMostPollutedCountry(mostPolluted.getCountry());
+                stats.setMostPollutedAqi(mostPolluted.getAqi());
+            }
+            stats.setLastUpdated(refreshedAt.format(GlobalAirQualityStatsRowMapper.LAST_UPDATED_FORMAT));
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,776 @@
+package com.airquality.api.core.repository.impl;
+
+import com.airquality.api.core.mapper.AirQualityDataRowMapper;
+import com.airquality.api.core.mapper.AirQualityProjectionRowMapper;
+import com.airquality.api.core.mapper.GlobalAirQualityStatsRowMapper;
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.CityCursor;
+import com.airquality.api.core.model.CityQuery;
+import com.airquality.api.core.model.DataVersion;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.VersionedData;
+import com.airquality.api.core.repository.AirQualityRepository;
+import com.airquality.api.shared.datasource.ReplicaRoutingDataSource;
+import com.airquality.api.shared.metrics.QueryMetrics;
+import com.airquality.api.shared.util.LookupKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL implementation of AirQualityRepository (default backend)
+ * Uses JdbcTemplate to execute SQL queries and HikariCP to manage database connections
+ * User-facing reads use readJdbcTemplate (replicas when configured, else the API pool)
+ * The generation poll and snapshot reads that must be current use the same pool pinned to the primary
+ * Writes, refreshes and startup checks use writeJdbcTemplate (separate ingestion pool)
+ * Every statement is timed under a stable name via QueryMetrics (see /actuator/queries)
+ */
+@Repository
+@Profile("!embedded")
+public class JdbcAirQualityRepository implements AirQualityRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcAirQualityRepository.class);
+
+    // Shadow tables used by swapRefresh (renamed over the live tables in one atomic RENAME TABLE)
+    private static final String DATA_STAGING_TABLE = "air_quality_data_staging";
+    private static final String STATS_STAGING_TABLE = "air_quality_global_stats_staging";
+    private static final String DATA_OLD_TABLE = "air_quality_data_old";
+    private static final String STATS_OLD_TABLE = "air_quality_global_stats_old";
+
+    // Named lock so only one swap refresh (across all nodes) uses the staging tables at a time
+    // In-place writes (bulkUpsert, deleteAll) take it too: a row written while a swap is copying the
+    // live table would otherwise be missing from the staging copy and dropped by the RENAME
+    private static final String SWAP_LOCK_NAME = "air_quality_swap_refresh";
+
+    private final JdbcTemplate writeJdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+    private final ReplicaRoutingDataSource readDataSource;
+    private final QueryMetrics queryMetrics;
+
+    private final int swapLockWaitTimeoutSeconds;
+
+    public JdbcAirQualityRepository(@Qualifier("ingestionJdbcTemplate") JdbcTemplate writeJdbcTemplate,
+                                ReplicaRoutingDataSource readDataSource,
+                                QueryMetrics queryMetrics,
+                                @Value("${data.refresh.swap.lock-wait-timeout-seconds:5}") int swapLockWaitTimeoutSeconds) {
+        this.writeJdbcTemplate = writeJdbcTemplate;
+        this.readJdbcTemplate = new JdbcTemplate(readDataSource);
+        this.readDataSource = readDataSource;
+        this.queryMetrics = queryMetrics;
+        this.swapLockWaitTimeoutSeconds = swapLockWaitTimeoutSeconds;
+        logger.info("JdbcAirQualityRepository initialized with JDBC Template");
+    }
+
+    /**
+     * Returns all air quality data from database
+     * 
+     * @return List of all AirQualityData objects
+     */
+    @Override
+    public List<AirQualityData> findAll() {
+        logger.debug("Fetching all air quality data from database");
+        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
+                       "latitude, longitude, last_updated " +
+                       "FROM air_quality_data " +
+                       "ORDER BY city_key ASC, id ASC";
+        return queryMetrics.record("findAll",
+            () -> readJdbcTemplate.query(query, new AirQualityDataRowMapper()));
+    }
+
+    /**
+     * Stream every row to the consumer over a forward-only, read-only cursor
+     * fetchSize = Integer.MIN_VALUE makes MySQL Connector/J stream row by row instead of
+     * buffering the whole result set, so memory stays constant regardless of table size
+     * 
+     * @param consumer Receives each row as it is read (same row order as findAll)
+     */
+    @Override
+    public void streamAll(Consumer<AirQualityData> consumer) {
+        logger.debug("Streaming all air quality data from database");
+        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
+                       "latitude, longitude, last_updated " +
+                       "FROM air_quality_data " +
+                       "ORDER BY city_key ASC, id ASC";
+        
+        AirQualityDataRowMapper rowMapper = new AirQualityDataRowMapper();
+        queryMetrics.record("streamAll", () -> {
+            long[] rows = new long[1];
+            readJdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(query, 
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                consumer.accept(rowMapper.mapRow(rs, rs.getRow()));
+                rows[0]++;
+            });
+            return rows[0];
+        });
+    }
+
+    /**
+     * Fetch one page of cities in (city_key, id) order using keyset pagination
+     * Seeks past the cursor via idx_city (or idx_country_key when filtering by country),
+     * so deep pages cost the same as the first page
+     * 
+     * @param query Filters (country, AQI range, pollutant thresholds)
+     * @param cursor Position after which to start, or null for the first page
+     * @param limit Maximum number of rows to return
+     * @return Matching cities in (city_key, id) order
+     */
+    @Override
+    public List<AirQualityData> findPage(CityQuery query, CityCursor cursor, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
+                     "latitude, longitude, last_updated " +
+                     "FROM air_quality_data " +
+                     buildPageClauses(query, cursor, limit, args);
+        
+        logger.debug("Fetching city page: {}", sql);
+        Object[] params = args.toArray();
+        return queryMetrics.record("findPage",
+            () -> readJdbcTemplate.query(sql, new AirQualityDataRowMapper(), params), params);
+    }
+
+    /**
+     * Same as findPage but selects only the given fields
+     * Callers include id and city so the next cursor can be built from the last row
+     * 
+     * @param query Filters (country, AQI range, pollutant thresholds)
+     * @param cursor Position after which to start, or null for the first page
+     * @param limit Maximum number of rows to return
+     * @param fields Validated field names (see AirQualityProjectionRowMapper.resolveFields)
+     * @return Field maps in (city_key, id) order
+     */
+    @Override
+    public List<Map<String, Object>> findPageProjected(CityQuery query, CityCursor cursor, 
+                                                       int limit, List<String> fields) {
+        List<Object> args = new ArrayList<>();
+        String columns = fields.stream()
+                .map(AirQualityProjectionRowMapper.FIELD_COLUMNS::get)
+                .collect(Collectors.joining(", "));
+        String sql = "SELECT " + columns + " FROM air_quality_data " +
+                     buildPageClauses(query, cursor, limit, args);
+        
+        logger.debug("Fetching projected city page: {}", sql);
+        Object[] params = args.toArray();
+        return queryMetrics.record("findPageProjected",
+            () -> readJdbcTemplate.query(sql, new AirQualityProjectionRowMapper(fields), params), params);
+    }
+
+    // Builds WHERE / ORDER BY / LIMIT for findPage and findPageProjected, appending bind values to args
+    private String buildPageClauses(CityQuery query, CityCursor cursor, int limit, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        
+        if (query.getCountry() != null) {
+            conditions.add("country_key = ?");
+            args.add(LookupKeys.normalize(query.getCountry()));
+        }
+        if (query.getMinAqi() != null) {
+            conditions.add("aqi >= ?");
+            args.add(query.getMinAqi());
+        }
+        if (query.getMaxAqi() != null) {
+            conditions.add("aqi <= ?");
+            args.add(query.getMaxAqi());
+        }
+        addThreshold(conditions, args, "pm25", query.getMaxPm25());
+        addThreshold(conditions, args, "pm10", query.getMaxPm10());
+        addThreshold(conditions, args, "no2", query.getMaxNo2());
+        addThreshold(conditions, args, "o3", query.getMaxO3());
+        addThreshold(conditions, args, "co", query.getMaxCo());
+        addThreshold(conditions, args, "so2", query.getMaxSo2());
+        
+        if (cursor != null) {
+            // Equivalent to (city_key, id) > (?, ?); the leading city_key >= ? gives MySQL an index range to seek
+            String cityKey = LookupKeys.normalize(cursor.getCity());
+            conditions.add("city_key >= ? AND (city_key > ? OR id > ?)");
+            args.add(cityKey);
+            args.add(cityKey);
+            args.add(cursor.getId());
+        }
+        
+        StringBuilder clauses = new StringBuilder();
+        if (!conditions.isEmpty()) {
+            clauses.append("WHERE ").append(String.join(" AND ", conditions)).append(" ");
+        }
+        clauses.append("ORDER BY city_key ASC, id ASC LIMIT ?");
+        args.add(limit);
+        return clauses.toString();
+    }
+
+    private void addThreshold(List<String> conditions, List<Object> args, String column, Double max) {
+        if (max != null) {
+            conditions.add(column + " <= ?");
+            args.add(max);
+        }
+    }
+
+    /**
+     * Find air quality data by city name (case- and accent-insensitive)
+     * Matches on the indexed city_key column
+     * 
+     * @param city City name to search for
+     * @return AirQualityData if found, null otherwise
+     */
+    @Override
+    public AirQualityData findByCity(String city) {
+        logger.debug("Searching for city: {}", city);
+        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
+                       "latitude, longitude, last_updated " +
+                       "FROM air_quality_data " +
+                       "WHERE city_key = ? " +
+                       "LIMIT 1";
+        
+        String cityKey = LookupKeys.normalize(city);
+        List<AirQualityData> results = queryMetrics.record("findByCity",
+            () -> readJdbcTemplate.query(query, new AirQualityDataRowMapper(), cityKey), cityKey);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Find all cities in a specific country (case- and accent-insensitive)
+     * Matches on the indexed country_key column
+     * 
+     * @param country Country name to filter by
+     * @return List of AirQualityData for the country
+     */
+    @Override
+    public List<AirQualityData> findByCountry(String country) {
+        logger.debug("Fetching cities for country: {}", country);
+        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
+                       "latitude, longitude, last_updated " +
+                       "FROM air_quality_data " +
+                       "WHERE country_key = ? " +
+                       "ORDER BY city_key ASC, id ASC";
+        
+        String countryKey = LookupKeys.normalize(country);
+        return queryMetrics.record("findByCountry",
+            () -> readJdbcTemplate.query(query, new AirQualityDataRowMapper(), countryKey), countryKey);
+    }
+
+    /**
+     * Find every row whose city matches one of the given names (case- and accent-insensitive)
+     * One IN (...) lookup on the indexed city_key column for the whole set
+     * 
+     * @param cities City names to search for
+     * @return Matching rows, ordered by city
+     */
+    @Override
+    public List<AirQualityData> findByCities(Collection<String> cities) {
+        Object[] cityKeys = cities.stream().map(LookupKeys::normalize).distinct().toArray();
+        if (cityKeys.length == 0) {
+            return new ArrayList<>();
+        }
+        logger.debug("Searching for {} cities", cityKeys.length);
+        String query = "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
+                       "latitude, longitude, last_updated " +
+                       "FROM air_quality_data " +
+                       "WHERE city_key IN (" + String.join(", ", Collections.nCopies(cityKeys.length, "?")) + ") " +
+                       "ORDER BY city_key ASC, id ASC";
+        
+        return queryMetrics.record("findByCities",
+            () -> readJdbcTemplate.query(query, new AirQualityDataRowMapper(), cityKeys), cityKeys.length);
+    }
+
+    /**
+     * Get list of unique countries
+     * 
+     * @return List of country names
+     */
+    @Override
+    public List<String> findAllCountries() {
+        logger.debug("Fetching all unique countries");
+        String query = "SELECT DISTINCT country FROM air_quality_data ORDER BY country ASC";
+        return queryMetrics.record("findAllCountries",
+            () -> readJdbcTemplate.queryForList(query, String.class));
+    }
+
+    /**
+     * Check if a city+country combination exists
+     * 
+     * @param city City name
+     * @param country Country name
+     * @return true if exists, false otherwise
+     */
+    @Override
+    public boolean existsByCityAndCountry(String city, String country) {
+        String query = "SELECT COUNT(*) FROM air_quality_data WHERE city_key = ? AND country_key = ?";
+        String cityKey = LookupKeys.normalize(city);
+        String countryKey = LookupKeys.normalize(country);
+        Integer count = queryMetrics.record("existsByCityAndCountry",
+            () -> readJdbcTemplate.queryForObject(query, Integer.class, cityKey, countryKey), cityKey, countryKey);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Count total cities in database
+     * 
+     * @return Total count
+     */
+    @Override
+    public int count() {
+        String query = "SELECT COUNT(*) FROM air_quality_data";
+        Integer count = queryMetrics.record("count",
+            () -> writeJdbcTemplate.queryForObject(query, Integer.class));
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Read the materialized global statistics row (single primary-key lookup)
+     * 
+     * @return GlobalAirQualityStats, or null if statistics were never built
+     */
+    @Override
+    public GlobalAirQualityStats findGlobalStats() {
+        String query = "SELECT total_cities, total_countries, average_aqi, good_count, moderate_count, " +
+                       "unhealthy_count, cleanest_city, cleanest_country, cleanest_aqi, " +
+                       "most_polluted_city, most_polluted_country, most_polluted_aqi, refreshed_at " +
+                       "FROM air_quality_global_stats " +
+                       "WHERE id = 1";
+        
+        List<GlobalAirQualityStats> results = queryMetrics.record("findGlobalStats",
+            () -> readJdbcTemplate.query(query, new GlobalAirQualityStatsRowMapper()));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Read the data generation from the statistics row on the primary (not a replica),
+     * so a node polling it never sees an older generation than the one it already has
+     * Runs on the read pool's primary route, not the ingestion pool, so the poll never waits
+     * behind a refresh holding the ingestion connections
+     * 
+     * @return DataVersion; generation 0 if the statistics row was never built
+     */
+    @Override
+    public DataVersion findDataVersion() {
+        String query = "SELECT generation, refreshed_at FROM air_quality_global_stats WHERE id = 1";
+        List<DataVersion> results = queryMetrics.record("findDataVersion",
+            () -> readDataSource.onPrimary(() -> readJdbcTemplate.query(query, (rs, rowNum) ->
+                new DataVersion(rs.getLong("generation"), rs.getObject("refreshed_at", LocalDateTime.class)))));
+        return results.isEmpty() ? new DataVersion(0, null) : results.get(0);
+    }
+
+    /**
+     * Read version, rows and statistics in one REPEATABLE READ transaction, so all three come from
+     * the same server and the same point in time. The replica route is tried first; if its
+     * generation is older than the primary's (replication lag), the read is repeated on the primary.
+     * 
+     * @return VersionedData at least as new as findDataVersion() when called
+     */
+    @Override
+    public VersionedData findVersionedData() {
+        DataVersion primary = findDataVersion();
+        VersionedData data = queryMetrics.record("findVersionedData", () -> readConsistent(readJdbcTemplate));
+        if (data.getVersion().getGeneration() < primary.getGeneration()) {
+            logger.info("Read source is at generation {}, primary at {}; reading snapshot data from the primary",
+                data.getVersion().getGeneration(), primary.getGeneration());
+            data = queryMetrics.record("findVersionedDataPrimary",
+                () -> readDataSource.onPrimary(() -> readConsistent(readJdbcTemplate)));
+        }
+        return data;
+    }
+
+    // Generation first: InnoDB fixes the read view at the first read, so the rows and stats that
+    // follow are exactly the ones that generation describes
+    private VersionedData readConsistent(JdbcTemplate template) {
+        return template.execute((ConnectionCallback<VersionedData>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+            try {
+                JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                List<DataVersion> versions = session.query(
+                    "SELECT generation, refreshed_at FROM air_quality_global_stats WHERE id = 1",
+                    (rs, rowNum) -> new DataVersion(rs.getLong("generation"),
+                        rs.getObject("refreshed_at", LocalDateTime.class)));
+                List<AirQualityData> cities = session.query(
+                    "SELECT id, city, country, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
+                    "latitude, longitude, last_updated " +
+                    "FROM air_quality_data " +
+                    "ORDER BY city_key ASC, id ASC", new AirQualityDataRowMapper());
+                List<GlobalAirQualityStats> stats = session.query(
+                    "SELECT total_cities, total_countries, average_aqi, good_count, moderate_count, " +
+                    "unhealthy_count, cleanest_city, cleanest_country, cleanest_aqi, " +
+                    "most_polluted_city, most_polluted_country, most_polluted_aqi, refreshed_at " +
+                    "FROM air_quality_global_stats " +
+                    "WHERE id = 1", new GlobalAirQualityStatsRowMapper());
+                connection.commit();
+                return new VersionedData(versions.isEmpty() ? new DataVersion(0, null) : versions.get(0),
+                    cities, stats.isEmpty() ? null : stats.get(0));
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                connection.setTransactionIsolation(isolation);
+            }
+        });
+    }
+
+    /**
+     * Recompute the materialized global statistics row from air_quality_data
+     * One statement: aggregates + cleanest + most polluted + next generation, written to id = 1
+     * Joins the caller's transaction, so bulkUpsert commits data and stats together
+     */
+    @Override
+    @Transactional
+    public void refreshGlobalStats() {
+        refreshGlobalStats(writeJdbcTemplate);
+    }
+
+    private void refreshGlobalStats(JdbcTemplate template) {
+        logger.debug("Rebuilding materialized global statistics");
+        String query = globalStatsQuery("air_quality_global_stats", "air_quality_data");
+        queryMetrics.record("refreshGlobalStats", () -> template.update(query));
+    }
+
+    /**
+     * Bulk update or insert air quality data
+     * Uses INSERT ... ON DUPLICATE KEY UPDATE, then rebuilds the global statistics row
+     * in the same transaction so readers never see stats from a different refresh
+     * Waits for a running swap refresh first (see SWAP_LOCK_NAME)
+     * 
+     * @param dataList List of AirQualityData objects to upsert
+     * @return Total number of rows affected
+     */
+    @Override
+    @Transactional
+    public int bulkUpsert(List<AirQualityData> dataList) {
+        logger.info("Bulk upserting {} air quality records", dataList.size());
+        
+        String query = upsertQuery("air_quality_data");
+        
+        Integer totalRowsAffected = withSwapLock(session -> {
+            int rowsAffected = 0;
+            for (AirQualityData data : dataList) {
+                try {
+                    Object[] args = upsertArgs(data);
+                    rowsAffected += queryMetrics.record("upsertRow", () -> session.update(query, args), args);
+                } catch (Exception e) {
+                    logger.error("Error upserting data for city: {} in {}", data.getCity(), data.getCountry(), e);
+                    throw e; // Transaction will rollback
+                }
+            }
+            refreshGlobalStats(session);
+            return rowsAffected;
+        });
+        readDataSource.markWrite();
+        
+        logger.info("Bulk upsert completed. {} rows affected", totalRowsAffected);
+        return totalRowsAffected != null ? totalRowsAffected : 0;
+    }
+
+    /**
+     * Run work on one connection while holding SWAP_LOCK_NAME
+     * Inside a transaction the lock is released after commit or rollback, so a swap refresh
+     * starting next copies the committed rows; without one it is released when work returns.
+     */
+    private <T> T withSwapLock(ConnectionWork<T> work) {
+        return writeJdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            
+            Integer locked = session.queryForObject("SELECT GET_LOCK(?, ?)", Integer.class,
+                SWAP_LOCK_NAME, swapLockWaitTimeoutSeconds);
+            if (locked == null || locked != 1) {
+                throw new IllegalStateException("Timed out after " + swapLockWaitTimeoutSeconds 
+                    + " s waiting for a running swap refresh");
+            }
+            
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        releaseSwapLock(session);
+                    }
+                });
+                return work.run(session);
+            }
+            try {
+                return work.run(session);
+            } finally {
+                releaseSwapLock(session);
+            }
+        });
+    }
+
+    // Never throws: a failed release must not mask the write's own outcome; MySQL drops the lock
+    // at the latest when the connection closes
+    private void releaseSwapLock(JdbcTemplate session) {
+        try {
+            session.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, SWAP_LOCK_NAME);
+        } catch (RuntimeException e) {
+            logger.error("Failed to release refresh lock {}: {}", SWAP_LOCK_NAME, e.getMessage());
+        }
+    }
+
+    // Statements run by withSwapLock on its locked connection
+    @FunctionalInterface
+    private interface ConnectionWork<T> {
+        T run(JdbcTemplate session);
+    }
+
+    /**
+     * Refresh via shadow tables: copy the live data into a staging table, upsert the new batch there,
+     * build staging statistics, then swap both in with one atomic RENAME TABLE
+     * 
+     * Readers never see a partially applied refresh and never wait on ingestion row locks;
+     * the swap itself is a metadata-only operation that takes milliseconds regardless of table size.
+     * Runs on a single connection holding a MySQL named lock so concurrent refreshes (on any node)
+     * cannot collide on the staging tables. DDL commits implicitly, so this is not @Transactional.
+     * 
+     * @param dataList List of AirQualityData objects to merge into the current data
+     * @return Total number of rows affected in the staging table
+     */
+    @Override
+    public int swapRefresh(List<AirQualityData> dataList) {
+        logger.info("Swap refresh of {} air quality records via {}", dataList.size(), DATA_STAGING_TABLE);
+        
+        Integer totalRowsAffected = queryMetrics.record("swapRefresh",
+            () -> writeJdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            
+                Integer locked = session.queryForObject("SELECT GET_LOCK(?, ?)", Integer.class, 
+                    SWAP_LOCK_NAME, swapLockWaitTimeoutSeconds);
+                if (locked == null || locked != 1) {
+                    throw new IllegalStateException("Another swap refresh is already running");
+                }
+            
+                Throwable failure = null;
+                try {
+                    // Build staging copies of the live tables
+                    session.execute("DROP TABLE IF EXISTS " + DATA_STAGING_TABLE + ", " + STATS_STAGING_TABLE + ", " 
+                        + DATA_OLD_TABLE + ", " + STATS_OLD_TABLE);
+                    session.execute("CREATE TABLE " + DATA_STAGING_TABLE + " LIKE air_quality_data");
+                    session.execute("CREATE TABLE " + STATS_STAGING_TABLE + " LIKE air_quality_global_stats");
+                    session.execute("INSERT INTO " + DATA_STAGING_TABLE + " SELECT * FROM air_quality_data");
+                
+                    // Merge the new batch and build its statistics off to the side
+                    List<Object[]> batchArgs = new ArrayList<>();
+                    for (AirQualityData data : dataList) {
+                        batchArgs.add(upsertArgs(data));
+                    }
+                    int rowsAffected = 0;
+                    for (int count : session.batchUpdate(upsertQuery(DATA_STAGING_TABLE), batchArgs)) {
+                        rowsAffected += Math.max(count, 0);
+                    }
+                    session.update(globalStatsQuery(STATS_STAGING_TABLE, DATA_STAGING_TABLE));
+                
+                    // Fail fast instead of queueing readers behind us if a long read holds the metadata lock
+                    session.execute("SET SESSION lock_wait_timeout = " + swapLockWaitTimeoutSeconds);
+                    session.execute("RENAME TABLE " +
+                        "air_quality_data TO " + DATA_OLD_TABLE + ", " +
+                        DATA_STAGING_TABLE + " TO air_quality_data, " +
+                        "air_quality_global_stats TO " + STATS_OLD_TABLE + ", " +
+                        STATS_STAGING_TABLE + " TO air_quality_global_stats");
+                    session.execute("DROP TABLE " + DATA_OLD_TABLE + ", " + STATS_OLD_TABLE);
+                    return rowsAffected;
+                } catch (RuntimeException | Error e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    restoreSwapSession(session, failure);
+                }
+            }));
+        
+        readDataSource.markWrite();
+        
+        logger.info("Swap refresh completed. {} rows affected", totalRowsAffected);
+        return totalRowsAffected != null ? totalRowsAffected : 0;
+    }
+
+    // Connection returns to the pool: restore the session default and release the lock
+    // Each step runs even if the other fails; a cleanup error is attached to the refresh's own
+    // exception instead of replacing it, and only logged after a refresh that already swapped in
+    private void restoreSwapSession(JdbcTemplate session, Throwable failure) {
+        RuntimeException cleanupFailure = null;
+        try {
+            session.execute("SET SESSION lock_wait_timeout = DEFAULT");
+        } catch (RuntimeException e) {
+            cleanupFailure = e;
+        }
+        try {
+            session.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, SWAP_LOCK_NAME);
+        } catch (RuntimeException e) {
+            if (cleanupFailure == null) {
+                cleanupFailure = e;
+            } else {
+                cleanupFailure.addSuppressed(e);
+            }
+        }
+        
+        if (cleanupFailure == null) {
+            return;
+        }
+        if (failure != null) {
+            failure.addSuppressed(cleanupFailure);
+        } else {
+            logger.error("Swap refresh completed but its session cleanup failed", cleanupFailure);
+        }
+    }
+
+    // INSERT ... ON DUPLICATE KEY UPDATE for one row into the given data table
+    private static String upsertQuery(String table) {
+        return "INSERT INTO " + table + " " +
+               "(city, country, city_key, country_key, location_id, aqi, pm25, pm10, no2, o3, co, so2, " +
+               "latitude, longitude, last_updated) " +
+               "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+               "ON DUPLICATE KEY UPDATE " +
+               "city_key = VALUES(city_key), " +
+               "country_key = VALUES(country_key), " +
+               "location_id = VALUES(location_id), " +
+               "aqi = VALUES(aqi), " +
+               "pm25 = VALUES(pm25), " +
+               "pm10 = VALUES(pm10), " +
+               "no2 = VALUES(no2), " +
+               "o3 = VALUES(o3), " +
+               "co = VALUES(co), " +
+               "so2 = VALUES(so2), " +
+               "latitude = VALUES(latitude), " +
+               "longitude = VALUES(longitude), " +
+               "last_updated = VALUES(last_updated), " +
+               "updated_at = CURRENT_TIMESTAMP";
+    }
+
+    // Bind values for upsertQuery, in column order
+    private static Object[] upsertArgs(AirQualityData data) {
+        Timestamp lastUpdated = data.getLastUpdated() != null 
+            ? Timestamp.valueOf(data.getLastUpdated()) 
+            : new Timestamp(System.currentTimeMillis());
+        
+        return new Object[] {
+            data.getCity(),
+            data.getCountry(),
+            LookupKeys.normalize(data.getCity()),
+            LookupKeys.normalize(data.getCountry()),
+            data.getLocationId(),
+            data.getAqi(),
+            data.getPm25(),
+            data.getPm10(),
+            data.getNo2(),
+            data.getO3(),
+            data.getCo(),
+            data.getSo2(),
+            data.getLatitude(),
+            data.getLongitude(),
+            lastUpdated
+        };
+    }
+
+    // Rebuilds the single statistics row (id = 1) in statsTable from dataTable in one statement
+    // The generation always continues from the live table, so a swap keeps counting up
+    private static String globalStatsQuery(String statsTable, String dataTable) {
+        return "REPLACE INTO " + statsTable + " " +
+               "(id, total_cities, total_countries, average_aqi, good_count, moderate_count, unhealthy_count, " +
+               "cleanest_city, cleanest_country, cleanest_aqi, most_polluted_city, most_polluted_country, " +
+               "most_polluted_aqi, generation, refreshed_at) " +
+               "SELECT 1, totals.total_cities, totals.total_countries, totals.average_aqi, " +
+               "totals.good_count, totals.moderate_count, totals.unhealthy_count, " +
+               "cleanest.city, cleanest.country, cleanest.aqi, " +
+               "polluted.city, polluted.country, polluted.aqi, gen.next_generation, UTC_TIMESTAMP() " +
+               "FROM (SELECT COUNT(*) AS total_cities, " +
+               "             COUNT(DISTINCT country) AS total_countries, " +
+               "             AVG(aqi) AS average_aqi, " +
+               "             COALESCE(SUM(aqi BETWEEN 0 AND 50), 0) AS good_count, " +
+               "             COALESCE(SUM(aqi BETWEEN 51 AND 100), 0) AS moderate_count, " +
+               "             COALESCE(SUM(aqi BETWEEN 101 AND 500), 0) AS unhealthy_count " +
+               "      FROM " + dataTable + ") totals " +
+               "LEFT JOIN (SELECT city, country, aqi FROM " + dataTable + " " +
+               "           WHERE aqi IS NOT NULL AND aqi > 0 ORDER BY aqi ASC LIMIT 1) cleanest ON TRUE " +
+               "LEFT JOIN (SELECT city, country, aqi FROM " + dataTable + " " +
+               "           WHERE aqi IS NOT NULL ORDER BY aqi DESC LIMIT 1) polluted ON TRUE " +
+               "JOIN (SELECT COALESCE(MAX(generation), 0) + 1 AS next_generation " +
+               "      FROM air_quality_global_stats) gen ON TRUE";
+    }
+
+    /**
+     * Fill city_key/country_key for rows written before the key columns existed
+     * Keys are computed in Java so accent folding matches LookupKeys exactly
+     * 
+     * @return Number of rows backfilled
+     */
+    @Override
+    @Transactional
+    public int backfillLookupKeys() {
+        String selectQuery = "SELECT id, city, country FROM air_quality_data " +
+                             "WHERE city_key IS NULL OR country_key IS NULL";
+        String updateQuery = "UPDATE air_quality_data SET city_key = ?, country_key = ? WHERE id = ?";
+        
+        List<Object[]> batchArgs = new ArrayList<>();
+        queryMetrics.record("backfillLookupKeys.select", () -> {
+            writeJdbcTemplate.query(selectQuery, rs -> {
+                batchArgs.add(new Object[] {
+                    LookupKeys.normalize(rs.getString("city")),
+                    LookupKeys.normalize(rs.getString("country")),
+                    rs.getLong("id")
+                });
+            });
+            return batchArgs;
+        });
+        
+        if (batchArgs.isEmpty()) {
+            return 0;
+        }
+        
+        logger.info("Backfilling lookup keys for {} rows", batchArgs.size());
+        queryMetrics.record("backfillLookupKeys.update", () -> writeJdbcTemplate.batchUpdate(updateQuery, batchArgs));
+        return batchArgs.size();
+    }
+
+    /**
+     * Check if database is empty
+     * 
+     * @return true if no records exist
+     */
+    @Override
+    public boolean isEmpty() {
+        String query = "SELECT COUNT(*) FROM air_quality_data";
+        Integer count = queryMetrics.record("isEmpty",
+            () -> writeJdbcTemplate.queryForObject(query, Integer.class));
+        return count != null && count == 0;
+    }
+
+    /**
+     * Delete all data (for testing purposes)
+     */
+    @Override
+    @Transactional
+    public void deleteAll() {
+        logger.warn("Deleting all air quality data");
+        withSwapLock(session -> {
+            queryMetrics.record("deleteAll", () -> session.update("DELETE FROM air_quality_data"));
+            refreshGlobalStats(session);
+            return null;
+        });
+        readDataSource.markWrite();
+    }
+}
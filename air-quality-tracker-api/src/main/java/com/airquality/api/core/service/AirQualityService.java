@@ -1,8 +1,22 @@
 package com.airquality.api.core.service;
 
+import com.airquality.api.core.export.ExportFormat;
 import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.AqiDistribution;
+import com.airquality.api.core.model.BoundingBox;
+import com.airquality.api.core.model.CityBatchResult;
+import com.airquality.api.core.model.CityKey;
+import com.airquality.api.core.model.CityPercentile;
+import com.airquality.api.core.model.CityPage;
+import com.airquality.api.core.model.CityQuery;
 import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.MapCluster;
+import com.airquality.api.core.model.NearbyCity;
+import com.airquality.api.core.model.RegionStats;
+import com.airquality.api.core.model.SearchSuggestion;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -25,18 +39,43 @@ public interface AirQualityService {
      */
     List<AirQualityData> getAllCities();
 
+    /**
+     * Get one page of cities using keyset pagination, filters and field projection
+     * 
+     * @param query Cursor, page size, filters and fields
+     * @return CityPage with items and the cursor for the next page
+     */
+    CityPage getCitiesPage(CityQuery query);
+
+    /**
+     * Stream all cities to the output in the given format without materializing the list
+     * 
+     * @param format Export format (CSV or NDJSON)
+     * @param out Destination stream (not closed)
+     * @return Number of rows written
+     */
+    long exportCities(ExportFormat format, OutputStream out) throws IOException;
+
     /**
      * Get air quality data for a specific city
      * 
-     * @param city City name (case-insensitive)
+     * @param city City name (case- and accent-insensitive)
      * @return AirQualityData if found, null otherwise
      */
     AirQualityData getCityData(String city);
 
+    /**
+     * Get air quality data for many cities at once
+     * 
+     * @param keys City names, optionally with country
+     * @return Found rows and the keys that matched nothing
+     */
+    CityBatchResult getCitiesData(List<CityKey> keys);
+
     /**
      * Get all cities in a specific country
      * 
-     * @param country Country name (case-insensitive)
+     * @param country Country name (case- and accent-insensitive)
      * @return List of AirQualityData for the country
      */
     List<AirQualityData> getCitiesByCountry(String country);
@@ -84,4 +123,71 @@ public interface AirQualityService {
      * @return List of cleanest cities
      */
     List<AirQualityData> getCleanestCities(int limit);
+
+    /**
+     * Get the k cities nearest to a point by great-circle distance
+     * 
+     * @param lat Latitude of the point (-90..90)
+     * @param lon Longitude of the point (-180..180)
+     * @param k Number of cities to return
+     * @return Nearest cities with their distance, nearest first
+     */
+    List<NearbyCity> getNearbyCities(double lat, double lon, int k);
+
+    /**
+     * Get all cities inside a bounding box
+     * 
+     * @param bbox Box to search (may cross the antimeridian)
+     * @return Cities inside the box
+     */
+    List<AirQualityData> getCitiesInArea(BoundingBox bbox);
+
+    /**
+     * Get map markers (city clusters) visible in a bounding box at a zoom level
+     * 
+     * @param bbox Visible area (may cross the antimeridian)
+     * @param zoom Web map zoom level
+     * @return Clusters and single cities inside the box
+     */
+    List<MapCluster> getMapClusters(BoundingBox bbox, int zoom);
+
+    /**
+     * Autocomplete city and country names (case- and accent-insensitive, tolerates typos)
+     * 
+     * @param query Partly typed name
+     * @param limit Maximum number of suggestions
+     * @return Ranked suggestions, best first
+     */
+    List<SearchSuggestion> searchNames(String query, int limit);
+
+    /**
+     * Get per-continent aggregates, each with its per-country aggregates
+     * 
+     * @return Continents by name
+     */
+    List<RegionStats> getRegions();
+
+    /**
+     * Get aggregates for one country (count, mean/median/max AQI, categories, worst city)
+     * 
+     * @param country Country name (case- and accent-insensitive)
+     * @return RegionStats for the country
+     */
+    RegionStats getCountryStats(String country);
+
+    /**
+     * Get the AQI distribution over all cities: histogram and quantiles
+     * 
+     * @param bucketWidth AQI values per histogram bucket
+     * @return AqiDistribution for the current data
+     */
+    AqiDistribution getAqiDistribution(int bucketWidth);
+
+    /**
+     * Get how a city's AQI compares with all other cities
+     * 
+     * @param city City name (case- and accent-insensitive)
+     * @return Percentile rank and counts of cleaner and more polluted cities
+     */
+    CityPercentile getCityPercentile(String city);
 }
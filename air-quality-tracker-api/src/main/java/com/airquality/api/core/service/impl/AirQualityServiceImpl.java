@@ -1,88 +1,132 @@
 package com.airquality.api.core.service.impl;
 
+import com.airquality.api.shared.cache.SingleFlight;
 import com.airquality.api.shared.exception.CityNotFoundException;
 import com.airquality.api.shared.exception.CountryNotFoundException;
 import com.airquality.api.shared.exception.DataRefreshException;
 import com.airquality.api.shared.external.openaq.OpenAQApiClient;
+import com.airquality.api.core.export.AirQualityExportWriter;
+import com.airquality.api.core.export.ExportFormat;
+import com.airquality.api.core.mapper.AirQualityProjectionRowMapper;
 import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.AqiDistribution;
+import com.airquality.api.core.model.BoundingBox;
+import com.airquality.api.core.model.CityBatchResult;
+import com.airquality.api.core.model.CityKey;
+import com.airquality.api.core.model.CityPercentile;
+import com.airquality.api.core.model.CityCursor;
+import com.airquality.api.core.model.CityPage;
+import com.airquality.api.core.model.CityQuery;
 import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.MapCluster;
+import com.airquality.api.core.model.NearbyCity;
+import com.airquality.api.core.model.RegionStats;
+import com.airquality.api.core.model.SearchSuggestion;
 import com.airquality.api.core.repository.AirQualityRepository;
 import com.airquality.api.core.service.AirQualityService;
+import com.airquality.api.core.snapshot.AirQualitySnapshot;
+import com.airquality.api.core.snapshot.AqiHistogram;
+import com.airquality.api.core.snapshot.AirQualitySnapshotHolder;
+import com.airquality.api.core.snapshot.CityColumns;
+import com.airquality.api.core.snapshot.GeoIndex;
+import com.airquality.api.core.snapshot.LookupFilter;
+import com.airquality.api.core.snapshot.RegionRollup;
+import com.airquality.api.core.snapshot.SearchIndex;
+import com.airquality.api.shared.util.LookupKeys;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Service implementation for air quality data operations
  * Acts as a middle layer between controller and repository
+ * Lookups, rankings and filters are served from the in-memory AirQualitySnapshot once it is loaded;
+ * paging and export still go to the repository
+ * Until then, lookups go through the tiered cache (Caffeine L1, Redis L2) and concurrent misses for
+ * the same key share one repository read (SingleFlight); rankings and index lookups wait for one
+ * shared build of the first snapshot. Snapshot reads never touch the cache.
  */
 @Service
 public class AirQualityServiceImpl implements AirQualityService {
 
     private static final Logger logger = LoggerFactory.getLogger(AirQualityServiceImpl.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_NEARBY = 100;
+    private static final int MAX_MAP_ZOOM = 22;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_QUERY_LENGTH = 100;
+    private static final int MAX_BUCKET_WIDTH = 100;
+
     private final AirQualityRepository airQualityRepository;
     private final OpenAQApiClient openAQApiClient;
+    private final ObjectMapper objectMapper;
+    private final AirQualitySnapshotHolder snapshotHolder;
+    private final SingleFlight singleFlight;
+    private final CacheManager cacheManager;
+    private final LookupFilter lookupFilter;
+    private final boolean swapRefresh;
 
     public AirQualityServiceImpl(AirQualityRepository airQualityRepository, 
-                                  OpenAQApiClient openAQApiClient) {
+                                  OpenAQApiClient openAQApiClient,
+                                  ObjectMapper objectMapper,
+                                  AirQualitySnapshotHolder snapshotHolder,
+                                  SingleFlight singleFlight,
+                                  CacheManager cacheManager,
+                                  LookupFilter lookupFilter,
+                                  @Value("${data.refresh.mode:upsert}") String refreshMode) {
         this.airQualityRepository = airQualityRepository;
         this.openAQApiClient = openAQApiClient;
+        this.objectMapper = objectMapper;
+        this.snapshotHolder = snapshotHolder;
+        this.singleFlight = singleFlight;
+        this.cacheManager = cacheManager;
+        this.lookupFilter = lookupFilter;
+        
+        if (!"upsert".equalsIgnoreCase(refreshMode) && !"swap".equalsIgnoreCase(refreshMode)) {
+            throw new IllegalArgumentException("data.refresh.mode must be 'upsert' or 'swap', got: " + refreshMode);
+        }
+        this.swapRefresh = "swap".equalsIgnoreCase(refreshMode);
+        logger.info("Data refresh mode: {}", swapRefresh ? "swap (shadow table + atomic rename)" : "upsert");
     }
 
     /**
-     * Calculate and return global air quality statistics
+     * Return global air quality statistics
+     * Reads the materialized stats row rebuilt by every bulk upsert (one primary-key read)
      */
     @Override
-    @Cacheable(value = "globalStats", key = "'global'")
     public GlobalAirQualityStats getGlobalStats() {
-        logger.debug("Calculating global air quality statistics");
-
-        GlobalAirQualityStats stats = new GlobalAirQualityStats();
-
-        // Get counts
-        stats.setTotalCities(airQualityRepository.count());
-        stats.setTotalCountries(airQualityRepository.countDistinctCountries());
-
-        // Calculate average AQI
-        Double avgAqi = airQualityRepository.calculateAverageAqi();
-        stats.setAverageGlobalAqi(avgAqi != null ? Math.round(avgAqi * 10) / 10.0 : 0);
-
-        // Count cities by AQI category
-        stats.setCitiesWithGoodAir(airQualityRepository.countByAqiRange(0, 50));
-        stats.setCitiesWithModerateAir(airQualityRepository.countByAqiRange(51, 100));
-        stats.setCitiesWithUnhealthyAir(airQualityRepository.countByAqiRange(101, 500));
-
-        // Get cleanest city
-        AirQualityData cleanest = airQualityRepository.findCleanestCity();
-        if (cleanest != null) {
-            stats.setCleanestCity(cleanest.getCity());
-            stats.setCleanestCountry(cleanest.getCountry());
-            stats.setCleanestAqi(cleanest.getAqi());
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        if (snapshot.isLoaded()) {
+            return snapshot.getGlobalStats();
         }
+        logger.debug("Reading materialized global air quality statistics");
 
-        // Get most polluted city
-        AirQualityData mostPolluted = airQualityRepository.findMostPollutedCity();
-        if (mostPolluted != null) {
-            stats.setMostPollutedCity(mostPolluted.getCity());
-            stats.setMostPollutedCountry(mostPolluted.getCountry());
-            stats.setMostPollutedAqi(mostPolluted.getAqi());
+        GlobalAirQualityStats stats = cachedFallback("globalStats", "global", airQualityRepository::findGlobalStats);
+        if (stats == null) {
+            // Stats row not built yet (no refresh has completed): report empty totals
+            logger.warn("Global statistics row not found, returning empty statistics");
+            stats = new GlobalAirQualityStats();
         }
 
-        // Set timestamp
-        String timestamp = ZonedDateTime.now(ZoneOffset.UTC)
-                .format(DateTimeFormatter.ofPattern("MMMM d, yyyy, h:mm a 'UTC'"));
-        stats.setLastUpdated(timestamp);
-
         logger.debug("Global stats: {} cities across {} countries, avg AQI: {}", 
             stats.getTotalCities(), stats.getTotalCountries(), stats.getAverageGlobalAqi());
 
@@ -93,20 +137,142 @@ public class AirQualityServiceImpl implements AirQualityService {
      * Get all cities with air quality data
      */
     @Override
-    @Cacheable(value = "cities", key = "'all'")
     public List<AirQualityData> getAllCities() {
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        if (snapshot.isLoaded()) {
+            return snapshot.getCities();
+        }
         logger.debug("Fetching all cities from database");
-        return airQualityRepository.findAll();
+        return cachedFallback("cities", "all", airQualityRepository::findAll);
+    }
+
+    /**
+     * Get one page of cities (keyset pagination); filters run over the snapshot's columns, or are
+     * pushed down to SQL until the first snapshot is loaded
+     */
+    @Override
+    public CityPage getCitiesPage(CityQuery query) {
+        int limit = query.getLimit() != null ? query.getLimit() : DEFAULT_PAGE_SIZE;
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (query.getMinAqi() != null && query.getMaxAqi() != null && query.getMinAqi() > query.getMaxAqi()) {
+            throw new IllegalArgumentException("minAqi must not be greater than maxAqi");
+        }
+        
+        CityCursor cursor = query.getAfter() != null ? CityCursor.decode(query.getAfter()) : null;
+        logger.debug("Fetching city page: limit={}, after={}", limit, query.getAfter());
+        
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        if (snapshot.isLoaded()) {
+            return columnPage(snapshot.getColumns(), query, cursor, limit);
+        }
+        
+        // Fetch one extra row to know whether another page exists
+        if (query.getFields() == null || query.getFields().isEmpty()) {
+            List<AirQualityData> rows = airQualityRepository.findPage(query, cursor, limit + 1);
+            if (rows.size() <= limit) {
+                return new CityPage(rows, null);
+            }
+            List<AirQualityData> items = rows.subList(0, limit);
+            AirQualityData last = items.get(limit - 1);
+            return new CityPage(items, new CityCursor(last.getCity(), last.getId()).encode());
+        }
+        
+        // Projection: always select id and city so the cursor can be built, then drop them if not requested
+        List<String> fields = AirQualityProjectionRowMapper.resolveFields(query.getFields());
+        List<String> selected = new ArrayList<>(fields);
+        if (!selected.contains("id")) {
+            selected.add("id");
+        }
+        if (!selected.contains("city")) {
+            selected.add("city");
+        }
+        
+        List<Map<String, Object>> rows = airQualityRepository.findPageProjected(query, cursor, limit + 1, selected);
+        boolean hasMore = rows.size() > limit;
+        List<Map<String, Object>> items = hasMore ? rows.subList(0, limit) : rows;
+        
+        String nextCursor = null;
+        if (hasMore) {
+            Map<String, Object> last = items.get(limit - 1);
+            nextCursor = new CityCursor((String) last.get("city"), ((Number) last.get("id")).longValue()).encode();
+        }
+        for (Map<String, Object> item : items) {
+            item.keySet().retainAll(fields);
+        }
+        return new CityPage(items, nextCursor);
+    }
+
+    // Same page from the snapshot's columns: filters run over primitive arrays and only the rows
+    // on the page are touched as objects
+    private CityPage columnPage(CityColumns columns, CityQuery query, CityCursor cursor, int limit) {
+        int[] positions = columns.scan(query, cursor, limit + 1);
+        boolean hasMore = positions.length > limit;
+        int[] page = hasMore ? Arrays.copyOf(positions, limit) : positions;
+        
+        String nextCursor = null;
+        if (hasMore) {
+            int last = page[limit - 1];
+            nextCursor = new CityCursor(columns.city(last), columns.id(last)).encode();
+        }
+        List<AirQualityData> rows = columns.rows(page);
+        if (query.getFields() == null || query.getFields().isEmpty()) {
+            return new CityPage(rows, nextCursor);
+        }
+        
+        List<String> fields = AirQualityProjectionRowMapper.resolveFields(query.getFields());
+        List<Map<String, Object>> items = new ArrayList<>(rows.size());
+        for (AirQualityData row : rows) {
+            items.add(AirQualityProjectionRowMapper.toFieldMap(row, fields));
+        }
+        return new CityPage(items, nextCursor);
+    }
+
+    /**
+     * Stream all cities straight from the database cursor into the export writer
+     */
+    @Override
+    public long exportCities(ExportFormat format, OutputStream out) throws IOException {
+        logger.info("Exporting all cities as {}", format);
+        
+        AirQualityExportWriter writer = format.createWriter(out, objectMapper);
+        writer.writeHeader();
+        
+        long[] rowCount = {0};
+        try {
+            airQualityRepository.streamAll(data -> {
+                try {
+                    writer.writeRow(data);
+                    rowCount[0]++;
+                } catch (IOException e) {
+                    // Client disconnected mid-export: abort the cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        writer.finish();
+        logger.info("Export completed. {} rows written as {}", rowCount[0], format);
+        return rowCount[0];
     }
 
     /**
      * Get air quality data for a specific city
+     * Names the current snapshot does not know fail fast (see LookupFilter)
      */
     @Override
-    @Cacheable(value = "city", key = "#city.toLowerCase()")
     public AirQualityData getCityData(String city) {
         logger.debug("Fetching data for city: {}", city);
-        AirQualityData cityData = airQualityRepository.findByCity(city);
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        AirQualityData cityData = null;
+        if (lookupFilter.mightContainCity(city)) {
+            cityData = snapshot.isLoaded() 
+                ? snapshot.findByCity(city) 
+                : cachedFallback("city", LookupKeys.normalize(city), () -> airQualityRepository.findByCity(city));
+        }
         
         if (cityData == null) {
             throw new CityNotFoundException("No air quality data available for city: " + city);
@@ -115,14 +281,78 @@ public class AirQualityServiceImpl implements AirQualityService {
         return cityData;
     }
 
+    /**
+     * Get air quality data for many cities at once
+     * Snapshot: one hash lookup per key; otherwise one IN (...) query for all names
+     */
+    @Override
+    public CityBatchResult getCitiesData(List<CityKey> keys) {
+        if (keys == null || keys.isEmpty() || keys.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Provide between 1 and " + MAX_BATCH_SIZE + " city keys");
+        }
+        Map<String, CityKey> unique = new LinkedHashMap<>();
+        for (CityKey key : keys) {
+            if (key == null || key.getCity() == null || key.getCity().trim().isEmpty()) {
+                throw new IllegalArgumentException("Every key needs a city name");
+            }
+            unique.putIfAbsent(lookupKey(key), key);
+        }
+        logger.debug("Fetching data for {} cities", unique.size());
+
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        Map<String, AirQualityData> rows = new HashMap<>();
+        if (snapshot.isLoaded()) {
+            for (CityKey key : unique.values()) {
+                AirQualityData row = key.getCountry() != null
+                    ? snapshot.findByCityAndCountry(key.getCity(), key.getCountry())
+                    : snapshot.findByCity(key.getCity());
+                if (row != null) {
+                    rows.put(lookupKey(key), row);
+                }
+            }
+        } else {
+            List<String> names = unique.values().stream().map(CityKey::getCity).collect(Collectors.toList());
+            for (AirQualityData row : airQualityRepository.findByCities(names)) {
+                // Rows come in city order, so the name-only key keeps the first match like findByCity
+                rows.putIfAbsent(LookupKeys.normalize(row.getCity()), row);
+                rows.putIfAbsent(LookupKeys.cityCountryKey(row.getCity(), row.getCountry()), row);
+            }
+        }
+
+        List<AirQualityData> found = new ArrayList<>();
+        List<CityKey> missing = new ArrayList<>();
+        for (Map.Entry<String, CityKey> entry : unique.entrySet()) {
+            AirQualityData row = rows.get(entry.getKey());
+            if (row != null) {
+                found.add(row);
+            } else {
+                missing.add(entry.getValue());
+            }
+        }
+        return new CityBatchResult(found, missing);
+    }
+
+    // "city" for name-only keys, "city|country" otherwise (folded)
+    private static String lookupKey(CityKey key) {
+        return key.getCountry() != null
+            ? LookupKeys.cityCountryKey(key.getCity(), key.getCountry())
+            : LookupKeys.normalize(key.getCity());
+    }
+
     /**
      * Get all cities in a country
+     * Names the current snapshot does not know fail fast (see LookupFilter)
      */
     @Override
-    @Cacheable(value = "country", key = "#country.toLowerCase()")
     public List<AirQualityData> getCitiesByCountry(String country) {
         logger.debug("Fetching cities for country: {}", country);
-        List<AirQualityData> cities = airQualityRepository.findByCountry(country);
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        List<AirQualityData> cities = Collections.emptyList();
+        if (lookupFilter.mightContainCountry(country)) {
+            cities = snapshot.isLoaded() 
+                ? snapshot.findByCountry(country) 
+                : cachedFallback("country", LookupKeys.normalize(country), () -> airQualityRepository.findByCountry(country));
+        }
         
         if (cities.isEmpty()) {
             throw new CountryNotFoundException("No air quality data available for country: " + country);
@@ -135,17 +365,36 @@ public class AirQualityServiceImpl implements AirQualityService {
      * Get list of all unique countries
      */
     @Override
-    @Cacheable(value = "countries", key = "'all'")
     public List<String> getAllCountries() {
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        if (snapshot.isLoaded()) {
+            return snapshot.getCountries();
+        }
         logger.debug("Fetching all unique countries");
-        return airQualityRepository.findAllCountries();
+        return cachedFallback("countries", "all", airQualityRepository::findAllCountries);
+    }
+
+    // Pre-snapshot read: tiered cache first, then one shared repository read per key
+    // Null and empty results are not cached, so unknown names keep failing fast without pinning L1
+    private <T> T cachedFallback(String cacheName, String key, Supplier<T> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            @SuppressWarnings("unchecked")
+            T value = (T) cached.get();
+            return value;
+        }
+        T loaded = singleFlight.load(cacheName + ":" + key, loader);
+        if (loaded != null && !(loaded instanceof List && ((List<?>) loaded).isEmpty())) {
+            cache.put(key, loaded);
+        }
+        return loaded;
     }
 
     /**
      * Refresh data from OpenAQ API
      */
     @Override
-    @CacheEvict(value = {"globalStats", "cities", "city", "country", "countries"}, allEntries = true)
     public int refreshData() {
         logger.info("Refreshing air quality data from OpenAQ API");
         
@@ -158,10 +407,16 @@ public class AirQualityServiceImpl implements AirQualityService {
                 return 0;
             }
             
-            logger.info("Received {} records from OpenAQ API, upserting to database", newData.size());
+            logger.info("Received {} records from OpenAQ API, writing to database", newData.size());
+            
+            // Swap mode: build in a shadow table and rename it in atomically
+            // Upsert mode: bulk upsert in place in one transaction
+            int rowsAffected = swapRefresh 
+                ? airQualityRepository.swapRefresh(newData) 
+                : airQualityRepository.bulkUpsert(newData);
             
-            // Bulk upsert to database
-            int rowsAffected = airQualityRepository.bulkUpsert(newData);
+            // Publishes the new snapshot (and empties the fallback caches first)
+            snapshotHolder.rebuild();
             
             logger.info("Data refresh completed. {} rows affected", rowsAffected);
             return rowsAffected;
@@ -174,47 +429,154 @@ public class AirQualityServiceImpl implements AirQualityService {
 
     /**
      * Get cities with good air quality (AQI 0-50)
+     * Snapshot: a precomputed range of the AQI-ascending index
      */
     @Override
     public List<AirQualityData> getCitiesWithGoodAir() {
-        return getAllCities().stream()
-            .filter(city -> city.getAqi() != null && city.getAqi() <= 50)
-            .sorted(Comparator.comparingInt(AirQualityData::getAqi))
-            .collect(Collectors.toList());
+        return loadedSnapshot().goodAir();
     }
 
     /**
      * Get cities with unhealthy air quality (AQI > 100)
+     * Snapshot: a precomputed range of the AQI-descending index
      */
     @Override
     public List<AirQualityData> getCitiesWithUnhealthyAir() {
-        return getAllCities().stream()
-            .filter(city -> city.getAqi() != null && city.getAqi() > 100)
-            .sorted((a, b) -> b.getAqi().compareTo(a.getAqi()))
-            .collect(Collectors.toList());
+        return loadedSnapshot().unhealthyAir();
     }
 
     /**
      * Get top N most polluted cities
+     * Snapshot: the first N entries of the AQI-descending index
      */
     @Override
     public List<AirQualityData> getMostPollutedCities(int limit) {
-        return getAllCities().stream()
-            .filter(city -> city.getAqi() != null)
-            .sorted((a, b) -> b.getAqi().compareTo(a.getAqi()))
-            .limit(limit)
-            .collect(Collectors.toList());
+        return loadedSnapshot().mostPolluted(limit);
     }
 
     /**
      * Get top N cleanest cities
+     * Snapshot: N entries of the AQI-ascending index, starting at the first AQI > 0
      */
     @Override
     public List<AirQualityData> getCleanestCities(int limit) {
-        return getAllCities().stream()
-            .filter(city -> city.getAqi() != null && city.getAqi() > 0)
-            .sorted(Comparator.comparingInt(AirQualityData::getAqi))
-            .limit(limit)
-            .collect(Collectors.toList());
+        return loadedSnapshot().cleanest(limit);
+    }
+
+    /**
+     * Get the k cities nearest to a point
+     * Snapshot: a k-d tree search over the GeoIndex built with the snapshot
+     */
+    @Override
+    public List<NearbyCity> getNearbyCities(double lat, double lon, int k) {
+        if (!(lat >= -90 && lat <= 90) || !(lon >= -180 && lon <= 180)) {
+            throw new IllegalArgumentException("lat must be between -90 and 90 and lon between -180 and 180");
+        }
+        if (k < 1 || k > MAX_NEARBY) {
+            throw new IllegalArgumentException("k must be between 1 and " + MAX_NEARBY);
+        }
+        return geoIndex().nearest(lat, lon, k);
+    }
+
+    /**
+     * Get all cities inside a bounding box
+     * Snapshot: visits only the 1-degree grid cells the box overlaps
+     */
+    @Override
+    public List<AirQualityData> getCitiesInArea(BoundingBox bbox) {
+        return geoIndex().within(bbox);
+    }
+
+    /**
+     * Get map markers visible in a bounding box
+     * Snapshot: clusters are precomputed per zoom level, so this is one k-d tree range query
+     */
+    @Override
+    public List<MapCluster> getMapClusters(BoundingBox bbox, int zoom) {
+        if (zoom < 0 || zoom > MAX_MAP_ZOOM) {
+            throw new IllegalArgumentException("zoom must be between 0 and " + MAX_MAP_ZOOM);
+        }
+        return loadedSnapshot().getClusterIndex().clusters(bbox, zoom);
+    }
+
+    /**
+     * Autocomplete city and country names
+     * Snapshot: binary search over sorted folded names, then trigram matching for typos
+     */
+    @Override
+    public List<SearchSuggestion> searchNames(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("q must be between 1 and " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (limit < 1 || limit > SearchIndex.MAX_RESULTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + SearchIndex.MAX_RESULTS);
+        }
+        return loadedSnapshot().getSearchIndex().search(query, limit);
+    }
+
+    /**
+     * Get continent and country aggregates
+     * Snapshot: precomputed with the snapshot, updated per changed city on refresh
+     */
+    @Override
+    public List<RegionStats> getRegions() {
+        return regionRollup().getRegions();
+    }
+
+    /**
+     * Get aggregates for one country
+     */
+    @Override
+    public RegionStats getCountryStats(String country) {
+        RegionStats stats = regionRollup().findCountry(country);
+        if (stats == null) {
+            throw new CountryNotFoundException("No air quality data available for country: " + country);
+        }
+        return stats;
+    }
+
+    /**
+     * Get the AQI distribution
+     * Snapshot: bucket counts are differences of precomputed running counts
+     */
+    @Override
+    public AqiDistribution getAqiDistribution(int bucketWidth) {
+        if (bucketWidth < 1 || bucketWidth > MAX_BUCKET_WIDTH) {
+            throw new IllegalArgumentException("bucket must be between 1 and " + MAX_BUCKET_WIDTH);
+        }
+        return aqiHistogram().distribution(bucketWidth);
+    }
+
+    /**
+     * Get a city's percentile rank among all cities with an AQI
+     * Snapshot: one hash lookup for the city, two array reads for the rank
+     */
+    @Override
+    public CityPercentile getCityPercentile(String city) {
+        AirQualityData cityData = getCityData(city);
+        if (cityData.getAqi() == null) {
+            throw new CityNotFoundException("No AQI available for city: " + city);
+        }
+        return aqiHistogram().percentile(cityData);
+    }
+
+    // The snapshot for index-backed reads. Before the first refresh publishes one, concurrent requests
+    // share a single build (SingleFlight) and get 503 if it takes too long, instead of each sorting or
+    // indexing every row themselves
+    private AirQualitySnapshot loadedSnapshot() {
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        return snapshot.isLoaded() ? snapshot : singleFlight.load("snapshot", snapshotHolder::ensureLoaded);
+    }
+
+    private GeoIndex geoIndex() {
+        return loadedSnapshot().getGeoIndex();
+    }
+
+    private AqiHistogram aqiHistogram() {
+        return loadedSnapshot().getAqiHistogram();
+    }
+
+    private RegionRollup regionRollup() {
+        return loadedSnapshot().getRegionRollup();
     }
 }
@@ -0,0 +1,331 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.shared.util.LookupKeys;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable, fully indexed view of all air quality data at one point in time
+ * Built once per refresh by AirQualitySnapshotHolder and shared by all request threads
+ *
+ * Simple explanation:
+ * - CityColumns holds every row as primitive columns (null bitmaps, dictionary-encoded names) and
+ *   is the only copy of the data; everything else here points into it by row position
+ * - byAqi holds the position of every city with an AQI, already sorted, so a ranking is a slice
+ * - Category boundaries are positions in byAqi, so "good air" is a range, not a scan
+ * - City and country lookups are binary searches on the columns' sorted, normalized names
+ *   (see LookupKeys); filtered city pages scan the columns
+ * - Nearby and bounding-box queries go through a GeoIndex, name autocomplete through a SearchIndex
+ * - Map markers for every zoom level are precomputed in a ClusterIndex
+ * - The AqiHistogram behind the AQI distribution and percentile ranks is counted from the AQI column
+ * - Continent and country aggregates live in a RegionRollup, updated from the previous snapshot's
+ *   rollup when only a few rows changed
+ *
+ * Row objects are built only for what a call returns. Rows are in (city key, id) order, and AQI
+ * ties keep that order. Returned lists are unmodifiable; rows are fresh copies.
+ */
+public final class AirQualitySnapshot {
+
+    private static final AirQualitySnapshot EMPTY = new AirQualitySnapshot(
+            Collections.emptyList(), new GlobalAirQualityStats(), 0, null, Instant.EPOCH, null);
+
+    // The region rollup is updated in place of a rebuild while at most 1/4 of the rows changed
+    private static final int INCREMENTAL_ROLLUP_DIVISOR = 4;
+
+    private final long generation;
+    private final Instant lastModified;
+    private final Instant builtAt;
+    private final GlobalAirQualityStats globalStats;
+    private final CityColumns columns;
+
+    // Positions of every city with an AQI, AQI ascending
+    private final int[] byAqi;
+
+    // Boundaries in byAqi: [0, goodEnd) is AQI <= 50, [positiveStart, ...) is AQI > 0,
+    // [unhealthyStart, length) is AQI > 100
+    private final int goodEnd;
+    private final int positiveStart;
+    private final int unhealthyStart;
+
+    // False if two rows share a (city, country) key, which makes the rollup diff ambiguous
+    private final boolean uniqueCityCountryKeys;
+
+    private final List<String> countries;
+    private final GeoIndex geoIndex;
+    private final SearchIndex searchIndex;
+    private final RegionRollup regionRollup;
+    private final AqiHistogram aqiHistogram;
+    private final ClusterIndex clusterIndex;
+
+    private AirQualitySnapshot(List<AirQualityData> cities, GlobalAirQualityStats globalStats,
+                               long generation, Instant lastModified, Instant builtAt,
+                               AirQualitySnapshot previous) {
+        this.generation = generation;
+        this.lastModified = lastModified;
+        this.builtAt = builtAt;
+        this.globalStats = globalStats;
+        this.columns = CityColumns.build(cities);
+
+        this.byAqi = sortByAqi(columns);
+        this.goodEnd = firstAbove(50);
+        this.positiveStart = firstAbove(0);
+        this.unhealthyStart = firstAbove(100);
+
+        Map<String, AirQualityData> byCityAndCountry = new HashMap<>();
+        for (AirQualityData city : cities) {
+            byCityAndCountry.putIfAbsent(LookupKeys.cityCountryKey(city.getCity(), city.getCountry()), city);
+        }
+        this.uniqueCityCountryKeys = byCityAndCountry.size() == cities.size();
+
+        List<String> countryList = columns.countryNames();
+        countryList.sort(String.CASE_INSENSITIVE_ORDER);
+        this.countries = Collections.unmodifiableList(countryList);
+        this.geoIndex = GeoIndex.build(columns);
+        this.searchIndex = SearchIndex.build(cities);
+        this.regionRollup = rollUp(cities, byCityAndCountry, previous);
+        this.aqiHistogram = AqiHistogram.build(columns);
+        this.clusterIndex = ClusterIndex.build(columns);
+    }
+
+    /**
+     * Build a snapshot from rows in any order; the list is not kept
+     *
+     * @param cities All rows (as returned by AirQualityRepository.findVersionedData)
+     * @param globalStats Materialized global statistics
+     * @param generation Data generation this snapshot reflects (see DataVersion)
+     * @param refreshedAt UTC time of the write that produced this generation, or null if none yet
+     * @param previous Snapshot being replaced (may be empty); its region rollup is updated, not rebuilt
+     * @return New immutable snapshot
+     */
+    public static AirQualitySnapshot build(List<AirQualityData> cities, GlobalAirQualityStats globalStats,
+                                           long generation, LocalDateTime refreshedAt,
+                                           AirQualitySnapshot previous) {
+        Instant lastModified = refreshedAt != null ? refreshedAt.toInstant(ZoneOffset.UTC) : null;
+        return new AirQualitySnapshot(cities, globalStats, generation, lastModified, Instant.now(), previous);
+    }
+
+    /**
+     * Placeholder used until the first snapshot is built (isLoaded() == false)
+     */
+    public static AirQualitySnapshot empty() {
+        return EMPTY;
+    }
+
+    public boolean isLoaded() {
+        return this != EMPTY;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    // When the data last changed (null if never written); backs Last-Modified
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    // Every row, built from the columns on each call
+    public List<AirQualityData> getCities() {
+        return columns.allRows();
+    }
+
+    public GlobalAirQualityStats getGlobalStats() {
+        return globalStats;
+    }
+
+    public List<String> getCountries() {
+        return countries;
+    }
+
+    public GeoIndex getGeoIndex() {
+        return geoIndex;
+    }
+
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public RegionRollup getRegionRollup() {
+        return regionRollup;
+    }
+
+    public CityColumns getColumns() {
+        return columns;
+    }
+
+    public AqiHistogram getAqiHistogram() {
+        return aqiHistogram;
+    }
+
+    public ClusterIndex getClusterIndex() {
+        return clusterIndex;
+    }
+
+    // Case- and accent-insensitive, like AirQualityRepository.findByCity
+    public AirQualityData findByCity(String city) {
+        int position = columns.findCity(LookupKeys.normalize(city));
+        return position >= 0 ? columns.row(position) : null;
+    }
+
+    // Exact membership of the folded name in this generation
+    public boolean containsCity(String city) {
+        return columns.findCity(LookupKeys.normalize(city)) >= 0;
+    }
+
+    public boolean containsCountry(String country) {
+        return columns.containsCountry(LookupKeys.normalize(country));
+    }
+
+    // Case- and accent-insensitive match on both names; null if unknown
+    public AirQualityData findByCityAndCountry(String city, String country) {
+        int position = columns.findCityAndCountry(LookupKeys.normalize(city), LookupKeys.normalize(country));
+        return position >= 0 ? columns.row(position) : null;
+    }
+
+    // Case- and accent-insensitive, like AirQualityRepository.findByCountry; empty list if unknown
+    public List<AirQualityData> findByCountry(String country) {
+        int[] positions = columns.countryPositions(LookupKeys.normalize(country));
+        return positions.length > 0 ? columns.rows(positions) : Collections.emptyList();
+    }
+
+    // Top N by AQI, highest first
+    public List<AirQualityData> mostPolluted(int limit) {
+        return descending(limit);
+    }
+
+    // Top N with AQI > 0, lowest first
+    public List<AirQualityData> cleanest(int limit) {
+        return ascending(positiveStart, limit);
+    }
+
+    // AQI <= 50, lowest first
+    public List<AirQualityData> goodAir() {
+        return ascending(0, goodEnd);
+    }
+
+    // AQI > 100, highest first
+    public List<AirQualityData> unhealthyAir() {
+        return descending(byAqi.length - unhealthyStart);
+    }
+
+    // Diff against the previous snapshot by city and country; rows whose AQI or names changed are
+    // removed as they were and added as they are. Duplicate keys make the diff ambiguous.
+    private RegionRollup rollUp(List<AirQualityData> cities, Map<String, AirQualityData> byCityAndCountry,
+                                AirQualitySnapshot previous) {
+        if (previous == null || !previous.isLoaded()
+                || !uniqueCityCountryKeys || !previous.uniqueCityCountryKeys) {
+            return RegionRollup.build(cities);
+        }
+
+        CityColumns old = previous.columns;
+        int maxChanges = cities.size() / INCREMENTAL_ROLLUP_DIVISOR;
+        List<AirQualityData> removed = new ArrayList<>();
+        List<AirQualityData> added = new ArrayList<>();
+        int matched = 0;
+        for (AirQualityData city : cities) {
+            int position = old.findCityAndCountry(LookupKeys.normalize(city.getCity()),
+                LookupKeys.normalize(city.getCountry()));
+            if (position < 0) {
+                added.add(city);
+            } else {
+                matched++;
+                Integer oldAqi = old.hasAqi(position) ? old.aqi(position) : null;
+                if (!Objects.equals(oldAqi, city.getAqi()) || !Objects.equals(old.city(position), city.getCity())
+                        || !Objects.equals(old.country(position), city.getCountry())) {
+                    removed.add(old.row(position));
+                    added.add(city);
+                }
+            }
+            if (added.size() > maxChanges) {
+                return RegionRollup.build(cities);
+            }
+        }
+        if (matched < old.size()) {
+            for (int position = 0; position < old.size(); position++) {
+                if (!byCityAndCountry.containsKey(LookupKeys.cityCountryKey(old.city(position), old.country(position)))) {
+                    removed.add(old.row(position));
+                }
+            }
+        }
+        if (removed.size() + added.size() > 2 * maxChanges) {
+            return RegionRollup.build(cities);
+        }
+        return previous.regionRollup.update(removed, added, this::findByCountry);
+    }
+
+    // byAqi[from, from + count), clamped
+    private List<AirQualityData> ascending(int from, int count) {
+        int to = (int) Math.min(byAqi.length, (long) from + Math.max(count, 0));
+        return columns.rows(byAqi, from, Math.max(from, to));
+    }
+
+    // The count highest AQIs; equal AQIs are walked as a group so ties keep row order
+    private List<AirQualityData> descending(int count) {
+        int[] positions = new int[Math.min(Math.max(count, 0), byAqi.length)];
+        int filled = 0;
+        int end = byAqi.length;
+        while (filled < positions.length) {
+            int start = end - 1;
+            int aqi = columns.aqi(byAqi[start]);
+            while (start > 0 && columns.aqi(byAqi[start - 1]) == aqi) {
+                start--;
+            }
+            for (int i = start; i < end && filled < positions.length; i++) {
+                positions[filled++] = byAqi[i];
+            }
+            end = start;
+        }
+        return columns.rows(positions);
+    }
+
+    // Rated positions sorted by (AQI, position): both packed into one long, so a primitive sort is stable
+    private static int[] sortByAqi(CityColumns columns) {
+        long[] keys = new long[columns.size()];
+        int rated = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.hasAqi(i)) {
+                keys[rated++] = ((long) columns.aqi(i) << 32) | i;
+            }
+        }
+        Arrays.sort(keys, 0, rated);
+        int[] positions = new int[rated];
+        for (int i = 0; i < rated; i++) {
+            positions[i] = (int) keys[i];
+        }
+        return positions;
+    }
+
+    // First position in byAqi whose AQI is greater than threshold (binary search)
+    private int firstAbove(int threshold) {
+        int low = 0;
+        int high = byAqi.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.aqi(byAqi[mid]) <= threshold) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
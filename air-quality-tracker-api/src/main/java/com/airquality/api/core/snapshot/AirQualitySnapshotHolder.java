@@ -0,0 +1,101 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.VersionedData;
+import com.airquality.api.core.repository.AirQualityRepository;
+import com.airquality.api.shared.cache.TieredCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * Holds the current AirQualitySnapshot and swaps in a new one after each refresh
+ *
+ * Readers call current() and work on one consistent snapshot without locks or database access.
+ * A rebuild reads everything once, indexes it off to the side, then publishes with a single
+ * volatile write, so readers see either the old snapshot or the new one, never a mix.
+ * The snapshot carries the data generation from the database, which is the same on every node.
+ * Each publish is announced with a SnapshotPublishedEvent (used to push updates to SSE clients).
+ *
+ * The service caches only hold database reads made before the first snapshot. They are emptied
+ * (and moved to the new generation's L2 keys) before each publish, on the publishing thread, so no
+ * response can pair the new generation's ETag with a body cached from an older one.
+ */
+@Component
+public class AirQualitySnapshotHolder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AirQualitySnapshotHolder.class);
+
+    private final AirQualityRepository airQualityRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+
+    private volatile AirQualitySnapshot snapshot = AirQualitySnapshot.empty();
+
+    public AirQualitySnapshotHolder(AirQualityRepository airQualityRepository,
+                                    ApplicationEventPublisher eventPublisher,
+                                    CacheManager cacheManager) {
+        this.airQualityRepository = airQualityRepository;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Current snapshot; isLoaded() is false until the first rebuild succeeds
+     */
+    public AirQualitySnapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Current snapshot, building the first one if no rebuild has succeeded yet
+     * Callers that queued behind a rebuild get its result instead of building again
+     */
+    public synchronized AirQualitySnapshot ensureLoaded() {
+        AirQualitySnapshot current = snapshot;
+        return current.isLoaded() ? current : rebuild();
+    }
+
+    /**
+     * Reload all data from the repository and publish a new snapshot
+     * Generation, rows and statistics come from one consistent read (findVersionedData), so the
+     * generation behind ETags always describes the rows being served
+     *
+     * @return The published snapshot
+     */
+    public synchronized AirQualitySnapshot rebuild() {
+        long start = System.currentTimeMillis();
+
+        VersionedData data = airQualityRepository.findVersionedData();
+        GlobalAirQualityStats stats = data.getStats();
+        AirQualitySnapshot next = AirQualitySnapshot.build(data.getCities(),
+            stats != null ? stats : new GlobalAirQualityStats(), data.getVersion().getGeneration(),
+            data.getVersion().getRefreshedAt(), snapshot);
+
+        AirQualitySnapshot previous = snapshot;
+        retireCaches(next.getGeneration());
+        snapshot = next;
+        logger.info("Published air quality snapshot generation {} ({} cities) in {} ms",
+            next.getGeneration(), next.size(), System.currentTimeMillis() - start);
+
+        if (next.getGeneration() != previous.getGeneration() || !previous.isLoaded()) {
+            eventPublisher.publishEvent(new SnapshotPublishedEvent(previous, next));
+        }
+        return next;
+    }
+
+    // Swap every tiered cache to an empty L1 on the new generation (one reference write each)
+    private void retireCaches(long generation) {
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof TieredCache) {
+                ((TieredCache) cache).swap(Collections.emptyMap(), generation, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.AqiDistribution;
+import com.airquality.api.core.model.CityPercentile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counting-sort index of every city's AQI, built once per snapshot
+ *
+ * Simple explanation:
+ * - AQI is a whole number from 0 to 500, so one pass counts the cities at each value and a running
+ *   sum turns that into atOrBelow[v] = number of cities with AQI <= v
+ * - A city's percentile rank is two array reads; a histogram bucket is one subtraction
+ * - Quantiles are found once at build time by binary search over atOrBelow
+ *
+ * AQI is capped at 500 by AqiCalculator; a higher stored value is counted as 500.
+ */
+public final class AqiHistogram {
+
+    public static final int MAX_AQI = 500;
+
+    private static final int[] QUANTILES = {10, 25, 50, 75, 90, 95, 99};
+
+    private final int[] atOrBelow;
+    private final int ratedCities;
+    private final Integer minAqi;
+    private final Integer maxAqi;
+    private final Map<String, Integer> quantiles;
+
+    private AqiHistogram(int[] atOrBelow, Integer minAqi, Integer maxAqi) {
+        this.atOrBelow = atOrBelow;
+        this.ratedCities = atOrBelow[MAX_AQI];
+        this.minAqi = minAqi;
+        this.maxAqi = maxAqi;
+
+        Map<String, Integer> values = new LinkedHashMap<>();
+        if (ratedCities > 0) {
+            for (int quantile : QUANTILES) {
+                // Nearest rank: the smallest AQI with at least ceil(q% of n) cities at or below it
+                int rank = (int) Math.ceil(quantile / 100.0 * ratedCities);
+                values.put("p" + quantile, firstValueWithAtLeast(Math.max(rank, 1)));
+            }
+        }
+        this.quantiles = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Count every city with an AQI in one pass over the AQI column; cities without one are left out
+     */
+    public static AqiHistogram build(CityColumns columns) {
+        int[] counts = new int[MAX_AQI + 1];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        boolean rated = false;
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            if (!columns.hasAqi(i)) {
+                continue;
+            }
+            int aqi = columns.aqi(i);
+            counts[slot(aqi)]++;
+            min = Math.min(min, aqi);
+            max = Math.max(max, aqi);
+            rated = true;
+        }
+        for (int value = 1; value <= MAX_AQI; value++) {
+            counts[value] += counts[value - 1];
+        }
+        return rated ? new AqiHistogram(counts, min, max) : new AqiHistogram(counts, null, null);
+    }
+
+    public int getRatedCities() {
+        return ratedCities;
+    }
+
+    /**
+     * Histogram with the given bucket width (0..width-1, width..2*width-1, ...) plus quantiles
+     */
+    public AqiDistribution distribution(int bucketWidth) {
+        List<AqiDistribution.Bucket> buckets = new ArrayList<>();
+        int top = maxAqi != null ? slot(maxAqi) : -1;
+        for (int from = 0; from <= top; from += bucketWidth) {
+            int to = Math.min(from + bucketWidth - 1, MAX_AQI);
+            buckets.add(new AqiDistribution.Bucket(from, to, countAtOrBelow(to) - countAtOrBelow(from - 1)));
+        }
+        return new AqiDistribution(ratedCities, minAqi, maxAqi, bucketWidth, buckets, quantiles);
+    }
+
+    /**
+     * Percentile rank of a city with an AQI: share of cities below it, ties counted as half
+     */
+    public CityPercentile percentile(AirQualityData city) {
+        int value = slot(city.getAqi());
+        int cleaner = countAtOrBelow(value - 1);
+        int morePolluted = ratedCities - countAtOrBelow(value);
+        int tied = ratedCities - cleaner - morePolluted;
+        double rank = ratedCities > 0 ? (cleaner + tied / 2.0) / ratedCities * 100 : 0;
+        return new CityPercentile(city.getCity(), city.getCountry(), city.getAqi(),
+            Math.round(rank * 10) / 10.0, cleaner, morePolluted, ratedCities);
+    }
+
+    private int countAtOrBelow(int value) {
+        return value < 0 ? 0 : atOrBelow[value];
+    }
+
+    private int firstValueWithAtLeast(int count) {
+        int low = 0;
+        int high = MAX_AQI;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (atOrBelow[mid] >= count) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static int slot(int aqi) {
+        return Math.max(0, Math.min(MAX_AQI, aqi));
+    }
+}
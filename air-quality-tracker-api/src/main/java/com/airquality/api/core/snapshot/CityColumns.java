@@ -0,0 +1,483 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.CityCursor;
+import com.airquality.api.core.model.CityQuery;
+import com.airquality.api.shared.util.LookupKeys;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every city of a snapshot, stored column by column; the only copy of the rows the snapshot keeps
+ *
+ * Simple explanation:
+ * - Row i of the dataset is position i in every array: aqi[i], pm25[i], ... instead of one object
+ *   per city holding boxed Integer/Double fields
+ * - A missing value is a cleared bit in the column's null bitmap (one long per 64 rows); the array
+ *   slot then holds 0
+ * - City and country names are dictionary-encoded: each distinct string is stored once and rows
+ *   keep an int code; a country filter compares codes, never strings
+ * - lastUpdated is kept as UTC epoch seconds plus nanos
+ * - Rows are in (city key, id) order, the page order of both repositories (LookupKeys.KEY_ORDER on
+ *   the normalized city), so a keyset page is a binary search for the cursor followed by a forward
+ *   scan, and a cursor from a database page continues correctly here and vice versa
+ *
+ * Scans and the snapshot's indexes work on row positions; row(i) and rows(positions) build
+ * AirQualityData objects only for the rows a response returns.
+ */
+public final class CityColumns {
+
+    private static final Comparator<String> KEY_ORDER = Comparator.nullsFirst(LookupKeys.KEY_ORDER);
+
+    private static final Comparator<Map.Entry<String, AirQualityData>> CITY_ORDER = Map.Entry
+        .<String, AirQualityData>comparingByKey(KEY_ORDER)
+        .thenComparingLong(entry -> idOf(entry.getValue()));
+
+    // Pollutant columns, indexed like CityQuery's threshold getters
+    private static final int PM25 = 0;
+    private static final int PM10 = 1;
+    private static final int NO2 = 2;
+    private static final int O3 = 3;
+    private static final int CO = 4;
+    private static final int SO2 = 5;
+    private static final int POLLUTANTS = 6;
+
+    private final int size;
+
+    private final long[] ids;
+    private final long[] idPresent;
+    private final int[] cityCodes;
+    private final String[] cityDictionary;
+    private final String[] cityKeys;            // normalized city of each cityDictionary entry
+    private final int[] countryCodes;
+    private final String[] countryDictionary;
+    private final int[] countryKeyCodes;        // folded country of each countryDictionary entry
+    private final Map<String, Integer> countryKeys;
+    private final int[][] countryPositions;     // positions of each folded country, in row order
+    private final String[] locationIds;
+
+    private final int[] aqi;
+    private final long[] aqiPresent;
+    private final double[][] pollutants;
+    private final long[][] pollutantPresent;
+    private final double[] latitudes;
+    private final long[] latitudePresent;
+    private final double[] longitudes;
+    private final long[] longitudePresent;
+    private final long[] lastUpdated;
+    private final int[] lastUpdatedNanos;
+    private final long[] lastUpdatedPresent;
+
+    private CityColumns(AirQualityData[] rows) {
+        int n = rows.length;
+        this.size = n;
+        this.ids = new long[n];
+        this.idPresent = bitmap(n);
+        this.locationIds = new String[n];
+        this.cityCodes = new int[n];
+        this.countryCodes = new int[n];
+        this.aqi = new int[n];
+        this.aqiPresent = bitmap(n);
+        this.pollutants = new double[POLLUTANTS][n];
+        this.pollutantPresent = new long[POLLUTANTS][];
+        for (int p = 0; p < POLLUTANTS; p++) {
+            pollutantPresent[p] = bitmap(n);
+        }
+        this.latitudes = new double[n];
+        this.latitudePresent = bitmap(n);
+        this.longitudes = new double[n];
+        this.longitudePresent = bitmap(n);
+        this.lastUpdated = new long[n];
+        this.lastUpdatedNanos = new int[n];
+        this.lastUpdatedPresent = bitmap(n);
+
+        Dictionary cities = new Dictionary();
+        Dictionary countryNames = new Dictionary();
+        Dictionary foldedCountries = new Dictionary();
+        List<Integer> keyCodes = new ArrayList<>();
+        List<String> foldedCities = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            AirQualityData row = rows[i];
+            ids[i] = idOf(row);
+            if (row.getId() != null) {
+                set(idPresent, i);
+            }
+            locationIds[i] = row.getLocationId();
+            int cityCode = cities.code(row.getCity());
+            if (cityCode == foldedCities.size()) {
+                foldedCities.add(LookupKeys.normalize(row.getCity()));
+            }
+            cityCodes[i] = cityCode;
+
+            int countryCode = countryNames.code(row.getCountry());
+            if (countryCode == keyCodes.size()) {
+                keyCodes.add(foldedCountries.code(LookupKeys.normalize(row.getCountry())));
+            }
+            countryCodes[i] = countryCode;
+
+            if (row.getAqi() != null) {
+                aqi[i] = row.getAqi();
+                set(aqiPresent, i);
+            }
+            put(PM25, i, row.getPm25());
+            put(PM10, i, row.getPm10());
+            put(NO2, i, row.getNo2());
+            put(O3, i, row.getO3());
+            put(CO, i, row.getCo());
+            put(SO2, i, row.getSo2());
+            if (row.getLatitude() != null) {
+                latitudes[i] = row.getLatitude();
+                set(latitudePresent, i);
+            }
+            if (row.getLongitude() != null) {
+                longitudes[i] = row.getLongitude();
+                set(longitudePresent, i);
+            }
+            if (row.getLastUpdated() != null) {
+                lastUpdated[i] = row.getLastUpdated().toEpochSecond(ZoneOffset.UTC);
+                lastUpdatedNanos[i] = row.getLastUpdated().getNano();
+                set(lastUpdatedPresent, i);
+            }
+        }
+
+        this.cityDictionary = cities.values();
+        this.cityKeys = foldedCities.toArray(new String[0]);
+        this.countryDictionary = countryNames.values();
+        this.countryKeyCodes = keyCodes.stream().mapToInt(Integer::intValue).toArray();
+        this.countryKeys = foldedCountries.codes;
+        this.countryPositions = groupByCountry(countryKeys.size());
+    }
+
+    /**
+     * Encode the given rows, sorted into (city key, id) order
+     */
+    public static CityColumns build(List<AirQualityData> cities) {
+        // Each key is normalized once, not once per comparison
+        List<Map.Entry<String, AirQualityData>> keyed = new ArrayList<>(cities.size());
+        for (AirQualityData row : cities) {
+            keyed.add(new AbstractMap.SimpleImmutableEntry<>(LookupKeys.normalize(row.getCity()), row));
+        }
+        keyed.sort(CITY_ORDER);
+
+        AirQualityData[] rows = new AirQualityData[keyed.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = keyed.get(i).getValue();
+        }
+        return new CityColumns(rows);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // A new row object holding the values at this position
+    public AirQualityData row(int position) {
+        return AirQualityData.builder()
+            .id(isSet(idPresent, position) ? ids[position] : null)
+            .city(city(position))
+            .country(country(position))
+            .locationId(locationIds[position])
+            .aqi(hasAqi(position) ? aqi[position] : null)
+            .pm25(pollutant(PM25, position))
+            .pm10(pollutant(PM10, position))
+            .no2(pollutant(NO2, position))
+            .o3(pollutant(O3, position))
+            .co(pollutant(CO, position))
+            .so2(pollutant(SO2, position))
+            .latitude(latitude(position))
+            .longitude(longitude(position))
+            .lastUpdated(lastUpdated(position))
+            .build();
+    }
+
+    public boolean hasAqi(int position) {
+        return isSet(aqiPresent, position);
+    }
+
+    // Only meaningful when hasAqi(position)
+    public int aqi(int position) {
+        return aqi[position];
+    }
+
+    public String city(int position) {
+        return cityDictionary[cityCodes[position]];
+    }
+
+    public String country(int position) {
+        return countryDictionary[countryCodes[position]];
+    }
+
+    public long id(int position) {
+        return ids[position];
+    }
+
+    // Null when the row has no latitude
+    public Double latitude(int position) {
+        return isSet(latitudePresent, position) ? latitudes[position] : null;
+    }
+
+    // Null when the row has no longitude
+    public Double longitude(int position) {
+        return isSet(longitudePresent, position) ? longitudes[position] : null;
+    }
+
+    // UTC; null when the row has no timestamp
+    public LocalDateTime lastUpdated(int position) {
+        return isSet(lastUpdatedPresent, position)
+            ? LocalDateTime.ofEpochSecond(lastUpdated[position], lastUpdatedNanos[position], ZoneOffset.UTC)
+            : null;
+    }
+
+    /**
+     * First position whose folded city name is cityKey, or -1 (binary search on the sort order)
+     */
+    public int findCity(String cityKey) {
+        if (cityKey == null) {
+            return -1;
+        }
+        int position = firstAtOrAfter(cityKey);
+        return position < size && cityKey.equals(cityKeys[cityCodes[position]]) ? position : -1;
+    }
+
+    /**
+     * First position with both folded names, or -1
+     */
+    public int findCityAndCountry(String cityKey, String countryKey) {
+        Integer countryCode = countryKey != null ? countryKeys.get(countryKey) : null;
+        if (cityKey == null || countryCode == null) {
+            return -1;
+        }
+        for (int i = firstAtOrAfter(cityKey); i < size && cityKey.equals(cityKeys[cityCodes[i]]); i++) {
+            if (countryKeyCodes[countryCodes[i]] == countryCode) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Positions of every row in the folded country, in row order; empty if unknown
+     */
+    public int[] countryPositions(String countryKey) {
+        Integer code = countryKey != null ? countryKeys.get(countryKey) : null;
+        return code != null ? countryPositions[code] : new int[0];
+    }
+
+    /**
+     * One display name per folded country: the spelling of its first row
+     */
+    public List<String> countryNames() {
+        List<String> names = new ArrayList<>(countryPositions.length);
+        for (int[] positions : countryPositions) {
+            names.add(country(positions[0]));
+        }
+        return names;
+    }
+
+    public boolean containsCountry(String countryKey) {
+        return countryKey != null && countryKeys.containsKey(countryKey);
+    }
+
+    /**
+     * Positions of up to limit rows after the cursor that pass every filter of the query, in (city key,
+     * id) order. Same semantics as AirQualityRepository.findPage: bounds are inclusive and a missing value
+     * fails any bound on it.
+     */
+    public int[] scan(CityQuery query, CityCursor cursor, int limit) {
+        int[] matches = new int[Math.max(0, Math.min(limit, size))];
+        if (matches.length == 0) {
+            return matches;
+        }
+
+        int countryKey = -1;
+        if (query.getCountry() != null) {
+            Integer code = countryKeys.get(LookupKeys.normalize(query.getCountry()));
+            if (code == null) {
+                return new int[0];
+            }
+            countryKey = code;
+        }
+        boolean aqiFiltered = query.getMinAqi() != null || query.getMaxAqi() != null;
+        int minAqi = query.getMinAqi() != null ? query.getMinAqi() : Integer.MIN_VALUE;
+        int maxAqi = query.getMaxAqi() != null ? query.getMaxAqi() : Integer.MAX_VALUE;
+
+        // Only the pollutants with a threshold are checked, in one flat loop each
+        Double[] thresholds = {
+            query.getMaxPm25(), query.getMaxPm10(), query.getMaxNo2(),
+            query.getMaxO3(), query.getMaxCo(), query.getMaxSo2()
+        };
+        int active = 0;
+        int[] columns = new int[POLLUTANTS];
+        double[] bounds = new double[POLLUTANTS];
+        for (int p = 0; p < POLLUTANTS; p++) {
+            if (thresholds[p] != null) {
+                columns[active] = p;
+                bounds[active++] = thresholds[p];
+            }
+        }
+
+        int found = 0;
+        for (int i = firstAfter(cursor); i < size && found < matches.length; i++) {
+            if (countryKey >= 0 && countryKeyCodes[countryCodes[i]] != countryKey) {
+                continue;
+            }
+            if (aqiFiltered && (!isSet(aqiPresent, i) || aqi[i] < minAqi || aqi[i] > maxAqi)) {
+                continue;
+            }
+            boolean pass = true;
+            for (int t = 0; t < active && pass; t++) {
+                int p = columns[t];
+                pass = isSet(pollutantPresent[p], i) && pollutants[p][i] <= bounds[t];
+            }
+            if (pass) {
+                matches[found++] = i;
+            }
+        }
+        return found == matches.length ? matches : Arrays.copyOf(matches, found);
+    }
+
+    /**
+     * Rows at the given positions, in that order
+     */
+    public List<AirQualityData> rows(int[] positions) {
+        return rows(positions, 0, positions.length);
+    }
+
+    /**
+     * Rows at positions[from, to), in that order
+     */
+    public List<AirQualityData> rows(int[] positions, int from, int to) {
+        AirQualityData[] result = new AirQualityData[Math.max(0, to - from)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = row(positions[from + i]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    /**
+     * Every row, in row order
+     */
+    public List<AirQualityData> allRows() {
+        AirQualityData[] result = new AirQualityData[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = row(i);
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    // Counting pass, then fill: one exact-size position array per folded country
+    private int[][] groupByCountry(int countries) {
+        int[] counts = new int[countries];
+        for (int i = 0; i < size; i++) {
+            counts[countryKeyCodes[countryCodes[i]]]++;
+        }
+        int[][] groups = new int[countries][];
+        for (int c = 0; c < countries; c++) {
+            groups[c] = new int[counts[c]];
+            counts[c] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            int c = countryKeyCodes[countryCodes[i]];
+            groups[c][counts[c]++] = i;
+        }
+        return groups;
+    }
+
+    // First position whose city key sorts at or after key
+    private int firstAtOrAfter(String key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (KEY_ORDER.compare(cityKeys[cityCodes[mid]], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position after the cursor (binary search on the sort order)
+    private int firstAfter(CityCursor cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        String cursorKey = LookupKeys.normalize(cursor.getCity());
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            String cityKey = cityKeys[cityCodes[mid]];
+            int cmp = cityKey == null ? -1 : LookupKeys.KEY_ORDER.compare(cityKey, cursorKey);
+            if (cmp == 0) {
+                cmp = Long.compare(ids[mid], cursor.getId());
+            }
+            if (cmp <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Double pollutant(int pollutant, int i) {
+        return isSet(pollutantPresent[pollutant], i) ? pollutants[pollutant][i] : null;
+    }
+
+    private void put(int pollutant, int i, Double value) {
+        if (value != null) {
+            pollutants[pollutant][i] = value;
+            set(pollutantPresent[pollutant], i);
+        }
+    }
+
+    private static long idOf(AirQualityData row) {
+        return row.getId() != null ? row.getId() : 0L;
+    }
+
+    private static long[] bitmap(int n) {
+        return new long[(n + 63) >>> 6];
+    }
+
+    private static void set(long[] bitmap, int i) {
+        bitmap[i >>> 6] |= 1L << i;
+    }
+
+    private static boolean isSet(long[] bitmap, int i) {
+        return (bitmap[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * String → code assignment in first-seen order; null is a value like any other
+     */
+    private static final class Dictionary {
+        final Map<String, Integer> codes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String[] values() {
+            return values.toArray(new String[0]);
+        }
+    }
+}
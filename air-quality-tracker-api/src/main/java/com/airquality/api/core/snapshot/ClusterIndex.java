@@ -0,0 +1,374 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.BoundingBox;
+import com.airquality.api.core.model.MapCluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable map-marker clusters for every zoom level, built once per snapshot (supercluster-style)
+ *
+ * Simple explanation:
+ * - Cities are projected to Web Mercator, the projection of web map tiles, scaled to 0..1
+ * - The deepest level holds one marker per city. Each level above is made from the one below:
+ *   take a marker, merge every unmerged marker within RADIUS pixels of it at that zoom, and put
+ *   the merged marker at their weighted centroid with summed counts and AQI figures
+ * - Every level is a flat k-d tree (as in GeoIndex), so a viewport query visits only the markers
+ *   it overlaps; its cost depends on what is on screen, not on the number of cities
+ *
+ * Zooms above MAX_ZOOM show single cities. Clusters never span the antimeridian.
+ */
+public final class ClusterIndex {
+
+    public static final int MAX_ZOOM = 16;
+
+    // Cluster radius and tile size in pixels, as in supercluster's defaults
+    private static final double RADIUS = 40;
+    private static final double EXTENT = 512;
+
+    private static final int NO_AQI = Integer.MIN_VALUE;
+
+    private final CityColumns columns;
+    private final int[] points;     // row positions of the mapped cities
+    private final Level[] levels;   // by zoom, 0..MAX_ZOOM + 1
+
+    private ClusterIndex(CityColumns columns, int[] points, Level[] levels) {
+        this.columns = columns;
+        this.points = points;
+        this.levels = levels;
+    }
+
+    /**
+     * Cluster every city with valid coordinates, reading positions and AQI from the columns
+     */
+    public static ClusterIndex build(CityColumns columns) {
+        int[] points = new int[columns.size()];
+        int mapped = 0;
+        Nodes nodes = new Nodes(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            Double lat = columns.latitude(i);
+            Double lon = columns.longitude(i);
+            if (lat == null || lon == null || lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+                continue;
+            }
+            boolean rated = columns.hasAqi(i);
+            int aqi = rated ? columns.aqi(i) : NO_AQI;
+            nodes.add(lonX(lon), latY(lat), 1, rated ? aqi : 0, rated ? 1 : 0, aqi, mapped, 0);
+            points[mapped++] = i;
+        }
+
+        Level[] levels = new Level[MAX_ZOOM + 2];
+        levels[MAX_ZOOM + 1] = new Level(nodes);
+        for (int zoom = MAX_ZOOM; zoom >= 0; zoom--) {
+            Nodes merged = cluster(levels[zoom + 1], zoom);
+            // Nothing merged (typical at deep zooms): the level is the same as the one below
+            levels[zoom] = merged.size == levels[zoom + 1].size ? levels[zoom + 1] : new Level(merged);
+        }
+        return new ClusterIndex(columns, Arrays.copyOf(points, mapped), levels);
+    }
+
+    // Number of cities on the map
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * Markers at the given zoom whose position lies inside the box (edges inclusive)
+     * A box with minLon > maxLon crosses the antimeridian
+     */
+    public List<MapCluster> clusters(BoundingBox box, int zoom) {
+        Level level = levels[Math.max(0, Math.min(zoom, MAX_ZOOM + 1))];
+        double minY = latY(box.getMaxLat());
+        double maxY = latY(box.getMinLat());
+
+        IntList found = new IntList();
+        if (box.crossesAntimeridian()) {
+            level.range(lonX(box.getMinLon()), minY, 1, maxY, 0, level.size, 0, found);
+            level.range(0, minY, lonX(box.getMaxLon()), maxY, 0, level.size, 0, found);
+        } else {
+            level.range(lonX(box.getMinLon()), minY, lonX(box.getMaxLon()), maxY, 0, level.size, 0, found);
+        }
+
+        List<MapCluster> result = new ArrayList<>(found.size);
+        for (int f = 0; f < found.size; f++) {
+            result.add(level.toCluster(found.values[f], columns, points));
+        }
+        return result;
+    }
+
+    // One level up: greedily merge each unmerged marker with its unmerged neighbours within the radius
+    private static Nodes cluster(Level below, int zoom) {
+        double radius = RADIUS / (EXTENT * Math.pow(2, zoom));
+        Nodes above = new Nodes(below.size);
+        boolean[] merged = new boolean[below.size];
+        IntList neighbours = new IntList();
+
+        for (int i = 0; i < below.size; i++) {
+            if (merged[i]) {
+                continue;
+            }
+            merged[i] = true;
+            neighbours.size = 0;
+            below.within(below.xs[i], below.ys[i], radius, 0, below.size, 0, neighbours);
+
+            int count = below.counts[i];
+            double wx = below.xs[i] * count;
+            double wy = below.ys[i] * count;
+            long aqiSum = below.aqiSums[i];
+            int rated = below.rated[i];
+            int maxAqi = below.maxAqi[i];
+            boolean grew = false;
+            for (int n = 0; n < neighbours.size; n++) {
+                int j = neighbours.values[n];
+                if (merged[j]) {
+                    continue;
+                }
+                merged[j] = true;
+                grew = true;
+                count += below.counts[j];
+                wx += below.xs[j] * below.counts[j];
+                wy += below.ys[j] * below.counts[j];
+                aqiSum += below.aqiSums[j];
+                rated += below.rated[j];
+                maxAqi = Math.max(maxAqi, below.maxAqi[j]);
+            }
+
+            if (grew) {
+                above.add(wx / count, wy / count, count, aqiSum, rated, maxAqi, -1, zoom + 1);
+            } else {
+                above.copy(below, i);
+            }
+        }
+        return above;
+    }
+
+    // Web Mercator, scaled so the world is the unit square (y grows southwards)
+    private static double lonX(double lon) {
+        return lon / 360 + 0.5;
+    }
+
+    private static double latY(double lat) {
+        double sin = Math.sin(Math.toRadians(lat));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.max(0, Math.min(1, y));
+    }
+
+    private static double xLon(double x) {
+        return (x - 0.5) * 360;
+    }
+
+    private static double yLat(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /**
+     * Markers of one zoom level as parallel arrays in k-d tree order
+     * The node for [lo, hi) is at mid = (lo + hi) / 2; the split axis alternates x, y by depth
+     */
+    private static final class Level {
+        final int size;
+        final double[] xs;
+        final double[] ys;
+        final int[] counts;
+        final long[] aqiSums;
+        final int[] rated;
+        final int[] maxAqi;
+        final int[] pointIds;        // index into points for a single city, -1 for a cluster
+        final byte[] expansionZooms;
+
+        Level(Nodes nodes) {
+            int n = nodes.size;
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            sort(order, nodes.xs, nodes.ys, 0, n, 0);
+
+            this.size = n;
+            this.xs = new double[n];
+            this.ys = new double[n];
+            this.counts = new int[n];
+            this.aqiSums = new long[n];
+            this.rated = new int[n];
+            this.maxAqi = new int[n];
+            this.pointIds = new int[n];
+            this.expansionZooms = new byte[n];
+            for (int i = 0; i < n; i++) {
+                int p = order[i];
+                xs[i] = nodes.xs[p];
+                ys[i] = nodes.ys[p];
+                counts[i] = nodes.counts[p];
+                aqiSums[i] = nodes.aqiSums[p];
+                rated[i] = nodes.rated[p];
+                maxAqi[i] = nodes.maxAqi[p];
+                pointIds[i] = nodes.pointIds[p];
+                expansionZooms[i] = nodes.expansionZooms[p];
+            }
+        }
+
+        void range(double minX, double minY, double maxX, double maxY, int lo, int hi, int axis, IntList out) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            double x = xs[mid];
+            double y = ys[mid];
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                out.add(mid);
+            }
+            double value = axis == 0 ? x : y;
+            if ((axis == 0 ? minX : minY) <= value) {
+                range(minX, minY, maxX, maxY, lo, mid, 1 - axis, out);
+            }
+            if ((axis == 0 ? maxX : maxY) >= value) {
+                range(minX, minY, maxX, maxY, mid + 1, hi, 1 - axis, out);
+            }
+        }
+
+        void within(double cx, double cy, double radius, int lo, int hi, int axis, IntList out) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            double dx = xs[mid] - cx;
+            double dy = ys[mid] - cy;
+            if (dx * dx + dy * dy <= radius * radius) {
+                out.add(mid);
+            }
+            double delta = axis == 0 ? dx : dy;
+            if (delta >= -radius) {
+                within(cx, cy, radius, lo, mid, 1 - axis, out);
+            }
+            if (delta <= radius) {
+                within(cx, cy, radius, mid + 1, hi, 1 - axis, out);
+            }
+        }
+
+        MapCluster toCluster(int i, CityColumns columns, int[] points) {
+            if (pointIds[i] >= 0) {
+                return MapCluster.city(columns.row(points[pointIds[i]]));
+            }
+            boolean hasAqi = rated[i] > 0;
+            return MapCluster.cluster(yLat(ys[i]), xLon(xs[i]), counts[i],
+                hasAqi ? maxAqi[i] : null,
+                hasAqi ? Math.round((double) aqiSums[i] / rated[i] * 10) / 10.0 : null,
+                expansionZooms[i]);
+        }
+
+        // Median split on alternating axes; order[mid] becomes the node for [lo, hi)
+        private static void sort(int[] order, double[] xs, double[] ys, int lo, int hi, int axis) {
+            if (hi - lo <= 1) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            select(order, axis == 0 ? xs : ys, lo, hi - 1, mid);
+            sort(order, xs, ys, lo, mid, 1 - axis);
+            sort(order, xs, ys, mid + 1, hi, 1 - axis);
+        }
+
+        // Quickselect: afterwards order[k] holds the k-th smallest value, smaller ones to its left
+        private static void select(int[] order, double[] values, int left, int right, int k) {
+            while (left < right) {
+                double pivot = values[order[(left + right) >>> 1]];
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (values[order[i]] < pivot) {
+                        i++;
+                    }
+                    while (values[order[j]] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int swap = order[i];
+                        order[i] = order[j];
+                        order[j] = swap;
+                        i++;
+                        j--;
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable parallel arrays used while a level is being built
+     */
+    private static final class Nodes {
+        int size;
+        double[] xs;
+        double[] ys;
+        int[] counts;
+        long[] aqiSums;
+        int[] rated;
+        int[] maxAqi;
+        int[] pointIds;
+        byte[] expansionZooms;
+
+        Nodes(int capacity) {
+            int initial = Math.max(capacity, 1);
+            xs = new double[initial];
+            ys = new double[initial];
+            counts = new int[initial];
+            aqiSums = new long[initial];
+            rated = new int[initial];
+            maxAqi = new int[initial];
+            pointIds = new int[initial];
+            expansionZooms = new byte[initial];
+        }
+
+        void add(double x, double y, int count, long aqiSum, int ratedCount, int max, int pointId, int expansionZoom) {
+            if (size == xs.length) {
+                grow();
+            }
+            xs[size] = x;
+            ys[size] = y;
+            counts[size] = count;
+            aqiSums[size] = aqiSum;
+            rated[size] = ratedCount;
+            maxAqi[size] = max;
+            pointIds[size] = pointId;
+            expansionZooms[size] = (byte) expansionZoom;
+            size++;
+        }
+
+        // Carries a marker that merged with nothing up one level unchanged
+        void copy(Level level, int i) {
+            add(level.xs[i], level.ys[i], level.counts[i], level.aqiSums[i], level.rated[i],
+                level.maxAqi[i], level.pointIds[i], level.expansionZooms[i]);
+        }
+
+        private void grow() {
+            int capacity = xs.length * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            aqiSums = Arrays.copyOf(aqiSums, capacity);
+            rated = Arrays.copyOf(rated, capacity);
+            maxAqi = Arrays.copyOf(maxAqi, capacity);
+            pointIds = Arrays.copyOf(pointIds, capacity);
+            expansionZooms = Arrays.copyOf(expansionZooms, capacity);
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.DataVersion;
+import com.airquality.api.core.repository.AirQualityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps this node's snapshot in step with the data generation in the database
+ *
+ * A refresh on one node bumps the generation and rebuilds that node's snapshot. Every other node
+ * notices the new generation on its next poll (one indexed single-row read on the primary, through
+ * the API read pool rather than the ingestion pool) and rebuilds its own.
+ * Until then it keeps serving, and advertising as its ETag, the previous generation.
+ */
+@Component
+public class DataGenerationTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataGenerationTracker.class);
+
+    private final AirQualityRepository airQualityRepository;
+    private final AirQualitySnapshotHolder snapshotHolder;
+
+    public DataGenerationTracker(AirQualityRepository airQualityRepository,
+                                 AirQualitySnapshotHolder snapshotHolder) {
+        this.airQualityRepository = airQualityRepository;
+        this.snapshotHolder = snapshotHolder;
+    }
+
+    @Scheduled(fixedDelayString = "${data.generation.poll-interval-ms:5000}",
+               initialDelayString = "${data.generation.poll-interval-ms:5000}")
+    public void checkGeneration() {
+        try {
+            AirQualitySnapshot current = snapshotHolder.current();
+            DataVersion version = airQualityRepository.findDataVersion();
+            if (current.isLoaded() && version.getGeneration() == current.getGeneration()) {
+                return;
+            }
+            if (!current.isLoaded() && version.getGeneration() == 0) {
+                // Nothing written yet; the initializer or first refresh builds the snapshot
+                return;
+            }
+
+            logger.info("Data generation changed ({} -> {}), rebuilding snapshot",
+                current.getGeneration(), version.getGeneration());
+            snapshotHolder.rebuild();
+        } catch (Exception e) {
+            logger.warn("Data generation check failed: {}", e.getMessage());
+            logger.debug("Data generation check failure", e);
+        }
+    }
+}
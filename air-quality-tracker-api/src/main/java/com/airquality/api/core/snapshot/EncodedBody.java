@@ -0,0 +1,30 @@
+package com.airquality.api.core.snapshot;
+
+/**
+ * One response body serialized to JSON once, kept in identity and gzip form
+ * Tied to the snapshot generation it was built from
+ */
+public final class EncodedBody {
+
+    private final long generation;
+    private final byte[] identity;
+    private final byte[] gzip;
+
+    EncodedBody(long generation, byte[] identity, byte[] gzip) {
+        this.generation = generation;
+        this.identity = identity;
+        this.gzip = gzip;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public byte[] getIdentity() {
+        return identity;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+}
@@ -0,0 +1,400 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.BoundingBox;
+import com.airquality.api.core.model.NearbyCity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable spatial index over every city with valid coordinates, built once per snapshot
+ *
+ * Simple explanation:
+ * - Nearest-neighbour: a k-d tree over points on the unit sphere (x, y, z). Straight-line (chord)
+ *   distance between unit vectors grows with great-circle distance, so the k closest by chord are
+ *   the k closest on the globe, with no special cases at the poles or the antimeridian.
+ * - Bounding box: a 1-degree lat/lon grid stored as one array sorted by cell (cellStart[c] is where
+ *   cell c begins), so a viewport only visits the cells it overlaps.
+ *
+ * The tree is implicit: the node for range [lo, hi) is at mid = (lo + hi) / 2 and its children are
+ * [lo, mid) and [mid + 1, hi), so there are no node objects and searches walk flat arrays.
+ * Both structures hold row positions in the snapshot's CityColumns; rows are built only for results.
+ */
+public final class GeoIndex {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int LAT_CELLS = 180;
+    private static final int LON_CELLS = 360;
+
+    private static final GeoIndex EMPTY = build(CityColumns.build(Collections.emptyList()));
+
+    private final CityColumns columns;
+
+    // k-d tree, in tree order
+    private final int[] treePositions;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final byte[] axes;
+
+    // Grid, in cell order
+    private final int[] gridPositions;
+    private final double[] gridLats;
+    private final double[] gridLons;
+    private final int[] cellStart;
+
+    private GeoIndex(CityColumns columns, int[] points) {
+        this.columns = columns;
+        int n = points.length;
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        double[][] coords = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = columns.latitude(points[i]);
+            lons[i] = columns.longitude(points[i]);
+            double lat = Math.toRadians(lats[i]);
+            double lon = Math.toRadians(lons[i]);
+            coords[0][i] = Math.cos(lat) * Math.cos(lon);
+            coords[1][i] = Math.cos(lat) * Math.sin(lon);
+            coords[2][i] = Math.sin(lat);
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        byte[] axisByPosition = new byte[n];
+        buildTree(order, coords, axisByPosition, 0, n);
+
+        this.treePositions = new int[n];
+        this.xs = new double[n];
+        this.ys = new double[n];
+        this.zs = new double[n];
+        this.axes = axisByPosition;
+        for (int i = 0; i < n; i++) {
+            int p = order[i];
+            treePositions[i] = points[p];
+            xs[i] = coords[0][p];
+            ys[i] = coords[1][p];
+            zs[i] = coords[2][p];
+        }
+
+        // Counting sort by grid cell
+        int[] cellOf = new int[n];
+        int[] counts = new int[LAT_CELLS * LON_CELLS + 1];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cell(latRow(lats[i]), lonColumn(lons[i]));
+            counts[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < LAT_CELLS * LON_CELLS; c++) {
+            counts[c + 1] += counts[c];
+        }
+        this.cellStart = counts.clone();
+        this.gridPositions = new int[n];
+        this.gridLats = new double[n];
+        this.gridLons = new double[n];
+        for (int i = 0; i < n; i++) {
+            int slot = counts[cellOf[i]]++;
+            gridPositions[slot] = points[i];
+            gridLats[slot] = lats[i];
+            gridLons[slot] = lons[i];
+        }
+    }
+
+    /**
+     * Index every row of the columns; rows without a valid latitude/longitude are left out
+     */
+    public static GeoIndex build(CityColumns columns) {
+        int[] points = new int[columns.size()];
+        int valid = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (hasValidCoordinates(columns.latitude(i), columns.longitude(i))) {
+                points[valid++] = i;
+            }
+        }
+        return new GeoIndex(columns, Arrays.copyOf(points, valid));
+    }
+
+    public static GeoIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return treePositions.length;
+    }
+
+    /**
+     * The k cities closest to (lat, lon) by great-circle distance, nearest first
+     */
+    public List<NearbyCity> nearest(double lat, double lon, int k) {
+        int n = treePositions.length;
+        int limit = Math.min(k, n);
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        double latRad = Math.toRadians(lat);
+        double lonRad = Math.toRadians(lon);
+        double[] query = {
+            Math.cos(latRad) * Math.cos(lonRad),
+            Math.cos(latRad) * Math.sin(lonRad),
+            Math.sin(latRad)
+        };
+
+        Neighbours best = new Neighbours(limit);
+        search(query, 0, n, best);
+
+        List<NearbyCity> result = new ArrayList<>(best.size);
+        for (int i : best.sortedPositions()) {
+            result.add(new NearbyCity(columns.row(treePositions[i]), chordToKm(squaredChord(query, i))));
+        }
+        return result;
+    }
+
+    /**
+     * Cities inside the box (edges inclusive); a box with minLon > maxLon crosses the antimeridian
+     */
+    public List<AirQualityData> within(BoundingBox box) {
+        List<AirQualityData> result = new ArrayList<>();
+        if (treePositions.length == 0) {
+            return result;
+        }
+
+        int firstRow = latRow(box.getMinLat());
+        int lastRow = latRow(box.getMaxLat());
+        int firstColumn = lonColumn(box.getMinLon());
+        int lastColumn = lonColumn(box.getMaxLon());
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            if (box.crossesAntimeridian()) {
+                collect(box, cell(row, firstColumn), cell(row, LON_CELLS - 1), result);
+                collect(box, cell(row, 0), cell(row, lastColumn), result);
+            } else {
+                collect(box, cell(row, firstColumn), cell(row, lastColumn), result);
+            }
+        }
+        return result;
+    }
+
+    // Cells of one grid row are adjacent in the array, so a row span is one contiguous slice
+    private void collect(BoundingBox box, int firstCell, int lastCell, List<AirQualityData> result) {
+        for (int i = cellStart[firstCell], end = cellStart[lastCell + 1]; i < end; i++) {
+            if (box.contains(gridLats[i], gridLons[i])) {
+                result.add(columns.row(gridPositions[i]));
+            }
+        }
+    }
+
+    private void search(double[] query, int lo, int hi, Neighbours best) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        best.offer(mid, squaredChord(query, mid));
+
+        int axis = axes[mid];
+        double delta = query[axis] - coordinate(axis, mid);
+        boolean leftFirst = delta < 0;
+        if (leftFirst) {
+            search(query, lo, mid, best);
+        } else {
+            search(query, mid + 1, hi, best);
+        }
+        // The far side can only help if the splitting plane is closer than the current k-th best
+        if (!best.isFull() || delta * delta < best.worst()) {
+            if (leftFirst) {
+                search(query, mid + 1, hi, best);
+            } else {
+                search(query, lo, mid, best);
+            }
+        }
+    }
+
+    private double squaredChord(double[] query, int i) {
+        double dx = query[0] - xs[i];
+        double dy = query[1] - ys[i];
+        double dz = query[2] - zs[i];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private double coordinate(int axis, int i) {
+        return axis == 0 ? xs[i] : axis == 1 ? ys[i] : zs[i];
+    }
+
+    // Chord length c on the unit sphere spans a central angle of 2 * asin(c / 2)
+    private static double chordToKm(double squaredChord) {
+        double chord = Math.min(2.0, Math.sqrt(squaredChord));
+        return 2 * Math.asin(chord / 2) * EARTH_RADIUS_KM;
+    }
+
+    // Median split on the axis with the widest spread; order[mid] becomes the node for [lo, hi)
+    private static void buildTree(int[] order, double[][] coords, byte[] axes, int lo, int hi) {
+        if (hi - lo <= 0) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int axis = widestAxis(order, coords, lo, hi);
+        select(order, coords[axis], lo, hi - 1, mid);
+        axes[mid] = (byte) axis;
+        buildTree(order, coords, axes, lo, mid);
+        buildTree(order, coords, axes, mid + 1, hi);
+    }
+
+    private static int widestAxis(int[] order, double[][] coords, int lo, int hi) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                double value = coords[axis][order[i]];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = axis;
+            }
+        }
+        return widest;
+    }
+
+    // Quickselect: afterwards order[k] holds the k-th smallest value, smaller ones to its left
+    private static void select(int[] order, double[] values, int left, int right, int k) {
+        while (left < right) {
+            double pivot = values[order[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[order[i]] < pivot) {
+                    i++;
+                }
+                while (values[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean hasValidCoordinates(Double lat, Double lon) {
+        return lat != null && lon != null
+            && lat >= -90 && lat <= 90
+            && lon >= -180 && lon <= 180;
+    }
+
+    private static int latRow(double lat) {
+        return Math.min(LAT_CELLS - 1, Math.max(0, (int) Math.floor(lat + 90)));
+    }
+
+    private static int lonColumn(double lon) {
+        return Math.min(LON_CELLS - 1, Math.max(0, (int) Math.floor(lon + 180)));
+    }
+
+    private static int cell(int row, int column) {
+        return row * LON_CELLS + column;
+    }
+
+    /**
+     * Bounded max-heap of the best k tree positions seen so far, keyed by squared chord distance
+     */
+    private static final class Neighbours {
+        private final int[] positions;
+        private final double[] distances;
+        private int size;
+
+        Neighbours(int capacity) {
+            this.positions = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        boolean isFull() {
+            return size == positions.length;
+        }
+
+        double worst() {
+            return distances[0];
+        }
+
+        void offer(int position, double distance) {
+            if (!isFull()) {
+                positions[size] = position;
+                distances[size] = distance;
+                siftUp(size++);
+            } else if (distance < distances[0]) {
+                positions[0] = position;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        // Drains the heap: positions nearest first
+        int[] sortedPositions() {
+            int[] sorted = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                sorted[i] = positions[0];
+                size--;
+                positions[0] = positions[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return sorted;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (distances[parent] >= distances[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (right < size && distances[right] > distances[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int position = positions[a];
+            positions[a] = positions[b];
+            positions[b] = position;
+            double distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.airquality.api.core.snapshot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Membership check for city and country lookups, answered from the current snapshot
+ *
+ * Simple explanation:
+ * - The snapshot's lookup maps hold every folded name of its generation, so they are an exact
+ *   membership set that is rebuilt with each refresh (no false positives, unlike a Bloom filter)
+ * - AirQualityServiceImpl checks it first, so an unknown name goes straight to the not-found
+ *   response without a snapshot scan, cache read or database query
+ * - Before the first snapshot is loaded every name passes (the database decides)
+ *
+ * Counted as lookup.filter{type=city|country, result=known|unknown|unfiltered}; the miss rate is
+ * unknown / (known + unknown).
+ */
+@Component("lookupFilter")
+public class LookupFilter {
+
+    private final AirQualitySnapshotHolder snapshotHolder;
+
+    private final Counter cityKnown;
+    private final Counter cityUnknown;
+    private final Counter cityUnfiltered;
+    private final Counter countryKnown;
+    private final Counter countryUnknown;
+    private final Counter countryUnfiltered;
+
+    public LookupFilter(AirQualitySnapshotHolder snapshotHolder, MeterRegistry meterRegistry) {
+        this.snapshotHolder = snapshotHolder;
+        this.cityKnown = counter(meterRegistry, "city", "known");
+        this.cityUnknown = counter(meterRegistry, "city", "unknown");
+        this.cityUnfiltered = counter(meterRegistry, "city", "unfiltered");
+        this.countryKnown = counter(meterRegistry, "country", "known");
+        this.countryUnknown = counter(meterRegistry, "country", "unknown");
+        this.countryUnfiltered = counter(meterRegistry, "country", "unfiltered");
+    }
+
+    // False only if the loaded snapshot has no city with this folded name
+    public boolean mightContainCity(String city) {
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        if (!snapshot.isLoaded()) {
+            cityUnfiltered.increment();
+            return true;
+        }
+        boolean known = city != null && snapshot.containsCity(city);
+        (known ? cityKnown : cityUnknown).increment();
+        return known;
+    }
+
+    // False only if the loaded snapshot has no country with this folded name
+    public boolean mightContainCountry(String country) {
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        if (!snapshot.isLoaded()) {
+            countryUnfiltered.increment();
+            return true;
+        }
+        boolean known = country != null && snapshot.containsCountry(country);
+        (known ? countryKnown : countryUnknown).increment();
+        return known;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String type, String result) {
+        return Counter.builder("lookup.filter")
+                .description("City and country lookups checked against the snapshot's names")
+                .tag("type", type)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,331 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.RegionStats;
+import com.airquality.api.shared.util.Continents;
+import com.airquality.api.shared.util.LookupKeys;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable continent → country → city aggregates, built once per snapshot
+ *
+ * Simple explanation:
+ * - Every country and continent keeps a count per AQI value (0..500) plus totals, so mean, median,
+ *   max and category counts come from 501 counters instead of a pass over the cities
+ * - build() fills all regions in one pass over the cities
+ * - update() applies changed rows to a copy: one city moves one counter in its country and one in
+ *   its continent; untouched regions (and their precomputed stats) are shared with the old rollup
+ *
+ * AQI is capped at 500 by AqiCalculator; a higher stored value is counted in the 500 slot for the
+ * median and categories, while maxAqi and the worst city still use the real value.
+ */
+public final class RegionRollup {
+
+    private static final String CONTINENT = "continent";
+    private static final String COUNTRY = "country";
+
+    private static final int MAX_AQI = AqiHistogram.MAX_AQI;
+
+    // Upper AQI bound of each EPA category, matching AirQualityData.getAqiCategory
+    private static final int[] CATEGORY_UPPER = {50, 100, 150, 200, 300, MAX_AQI};
+    private static final String[] CATEGORY_NAMES = {
+        "Good", "Moderate", "Unhealthy for Sensitive Groups", "Unhealthy", "Very Unhealthy", "Hazardous"
+    };
+
+    private static final Comparator<RegionStats> BY_NAME =
+        Comparator.comparing(RegionStats::getName, String.CASE_INSENSITIVE_ORDER);
+
+    private final Map<String, Region> countries;    // by normalized country name
+    private final Map<String, Region> continents;   // by continent name
+    private final List<RegionStats> regions;
+    private final Map<String, RegionStats> countryStats;
+
+    private RegionRollup(Map<String, Region> countries, Map<String, Region> continents) {
+        this.countries = countries;
+        this.continents = continents;
+
+        Map<String, List<RegionStats>> byContinent = new HashMap<>();
+        Map<String, RegionStats> statsByCountry = new HashMap<>();
+        for (Map.Entry<String, Region> entry : countries.entrySet()) {
+            Region country = entry.getValue();
+            if (country.stats == null) {
+                country.stats = country.toStats(COUNTRY, country.continent, null);
+            }
+            statsByCountry.put(entry.getKey(), country.stats);
+            byContinent.computeIfAbsent(country.continent, key -> new ArrayList<>()).add(country.stats);
+        }
+
+        List<RegionStats> continentStats = new ArrayList<>(continents.size());
+        for (Region continent : continents.values()) {
+            List<RegionStats> children = byContinent.getOrDefault(continent.name, new ArrayList<>());
+            children.sort(BY_NAME);
+            continentStats.add(continent.toStats(CONTINENT, null, Collections.unmodifiableList(children)));
+        }
+        continentStats.sort(BY_NAME);
+
+        this.regions = Collections.unmodifiableList(continentStats);
+        this.countryStats = statsByCountry;
+    }
+
+    /**
+     * Aggregate all cities in one pass
+     */
+    public static RegionRollup build(List<AirQualityData> cities) {
+        Map<String, Region> countries = new HashMap<>();
+        Map<String, Region> continents = new HashMap<>();
+        for (AirQualityData city : cities) {
+            if (city.getCountry() == null) {
+                continue;
+            }
+            Region country = countries.computeIfAbsent(LookupKeys.normalize(city.getCountry()),
+                key -> new Region(city.getCountry(), Continents.of(city.getCountry())));
+            country.add(city);
+            continents.computeIfAbsent(country.continent, name -> new Region(name, null)).add(city);
+        }
+        for (Region continent : continents.values()) {
+            continent.worstFromCountries(countries.values());
+        }
+        return new RegionRollup(countries, continents);
+    }
+
+    /**
+     * New rollup with the given row changes applied; only the affected countries and continents
+     * are copied and recomputed. A city whose AQI changed appears in both lists.
+     *
+     * @param removed Rows that left the dataset or changed, as they were
+     * @param added Rows that joined the dataset or changed, as they are now
+     * @param countryCities Current rows of a country, used when its worst city left or improved
+     * @return Updated rollup; this one is unchanged
+     */
+    public RegionRollup update(List<AirQualityData> removed, List<AirQualityData> added,
+                               Function<String, List<AirQualityData>> countryCities) {
+        Map<String, Region> nextCountries = new HashMap<>(countries);
+        Map<String, Region> nextContinents = new HashMap<>(continents);
+        Map<String, Region> touchedCountries = new HashMap<>();
+        Set<String> touchedContinents = new HashSet<>();
+        Set<String> lostWorst = new HashSet<>();
+
+        for (AirQualityData row : removed) {
+            if (row.getCountry() == null) {
+                continue;
+            }
+            String key = LookupKeys.normalize(row.getCountry());
+            Region country = touchCountry(key, row, nextCountries, touchedCountries);
+            if (country.remove(row)) {
+                lostWorst.add(key);
+            }
+            touchContinent(country.continent, nextContinents, touchedContinents).remove(row);
+        }
+        for (AirQualityData row : added) {
+            if (row.getCountry() == null) {
+                continue;
+            }
+            Region country = touchCountry(LookupKeys.normalize(row.getCountry()), row, nextCountries, touchedCountries);
+            country.add(row);
+            touchContinent(country.continent, nextContinents, touchedContinents).add(row);
+        }
+
+        for (Map.Entry<String, Region> entry : touchedCountries.entrySet()) {
+            Region country = entry.getValue();
+            if (country.totalCities == 0) {
+                nextCountries.remove(entry.getKey());
+            } else if (lostWorst.contains(entry.getKey())) {
+                country.worstFromCities(countryCities.apply(country.name));
+            }
+        }
+        for (String name : touchedContinents) {
+            Region continent = nextContinents.get(name);
+            if (continent.totalCities == 0) {
+                nextContinents.remove(name);
+            } else {
+                continent.worstFromCountries(nextCountries.values());
+            }
+        }
+        return new RegionRollup(nextCountries, nextContinents);
+    }
+
+    // Continents by name, each with its countries by name
+    public List<RegionStats> getRegions() {
+        return regions;
+    }
+
+    // Case- and accent-insensitive; null if the country has no cities
+    public RegionStats findCountry(String country) {
+        return countryStats.get(LookupKeys.normalize(country));
+    }
+
+    // Copy-on-first-touch, so the previous rollup's regions are never modified
+    private Region touchCountry(String key, AirQualityData row, Map<String, Region> nextCountries,
+                                Map<String, Region> touched) {
+        Region country = touched.get(key);
+        if (country == null) {
+            Region existing = countries.get(key);
+            country = existing != null ? existing.copy() : new Region(row.getCountry(), Continents.of(row.getCountry()));
+            touched.put(key, country);
+            nextCountries.put(key, country);
+        }
+        return country;
+    }
+
+    private Region touchContinent(String name, Map<String, Region> nextContinents, Set<String> touched) {
+        if (touched.add(name)) {
+            Region existing = continents.get(name);
+            nextContinents.put(name, existing != null ? existing.copy() : new Region(name, null));
+        }
+        return nextContinents.get(name);
+    }
+
+    /**
+     * Counters for one country or continent; mutable only while a rollup is being built
+     */
+    private static final class Region {
+        final String name;
+        final String continent;   // null for continents
+        final int[] histogram;
+        int totalCities;
+        int ratedCities;
+        long aqiSum;
+        AirQualityData worst;
+        RegionStats stats;        // cached for countries; reset by copy()
+
+        Region(String name, String continent) {
+            this(name, continent, new int[MAX_AQI + 1]);
+        }
+
+        private Region(String name, String continent, int[] histogram) {
+            this.name = name;
+            this.continent = continent;
+            this.histogram = histogram;
+        }
+
+        Region copy() {
+            Region copy = new Region(name, continent, histogram.clone());
+            copy.totalCities = totalCities;
+            copy.ratedCities = ratedCities;
+            copy.aqiSum = aqiSum;
+            copy.worst = worst;
+            return copy;
+        }
+
+        void add(AirQualityData city) {
+            totalCities++;
+            Integer aqi = city.getAqi();
+            if (aqi != null) {
+                ratedCities++;
+                aqiSum += aqi;
+                histogram[slot(aqi)]++;
+                if (isWorse(city, worst)) {
+                    worst = city;
+                }
+            }
+        }
+
+        // True if the row was the worst city, which then has to be found again
+        boolean remove(AirQualityData city) {
+            totalCities--;
+            Integer aqi = city.getAqi();
+            if (aqi == null) {
+                return false;
+            }
+            ratedCities--;
+            aqiSum -= aqi;
+            histogram[slot(aqi)]--;
+            if (worst != null && worst.equals(city)) {
+                worst = null;
+                return true;
+            }
+            return false;
+        }
+
+        void worstFromCities(List<AirQualityData> cities) {
+            worst = null;
+            for (AirQualityData city : cities) {
+                if (city.getAqi() != null && isWorse(city, worst)) {
+                    worst = city;
+                }
+            }
+        }
+
+        // A continent's worst city is the worst of its countries' worst cities
+        void worstFromCountries(Iterable<Region> countries) {
+            worst = null;
+            for (Region country : countries) {
+                if (name.equals(country.continent) && country.worst != null && isWorse(country.worst, worst)) {
+                    worst = country.worst;
+                }
+            }
+        }
+
+        // Higher AQI, then city and country name; the winner must not depend on the order rows arrive in,
+        // so an updated rollup picks the same city as a rebuild
+        private static boolean isWorse(AirQualityData candidate, AirQualityData current) {
+            if (current == null) {
+                return true;
+            }
+            int byAqi = Integer.compare(candidate.getAqi(), current.getAqi());
+            if (byAqi != 0) {
+                return byAqi > 0;
+            }
+            int byCity = compareNames(candidate.getCity(), current.getCity());
+            return byCity != 0 ? byCity < 0 : compareNames(candidate.getCountry(), current.getCountry()) < 0;
+        }
+
+        private static int compareNames(String a, String b) {
+            return Comparator.nullsLast(Comparator.<String>naturalOrder()).compare(a, b);
+        }
+
+        RegionStats toStats(String level, String parent, List<RegionStats> children) {
+            Map<String, Integer> categories = new LinkedHashMap<>();
+            int value = 0;
+            for (int category = 0; category < CATEGORY_UPPER.length; category++) {
+                int count = 0;
+                for (; value <= CATEGORY_UPPER[category]; value++) {
+                    count += histogram[value];
+                }
+                categories.put(CATEGORY_NAMES[category], count);
+            }
+
+            boolean rated = ratedCities > 0;
+            return new RegionStats(level, name, parent, totalCities, ratedCities,
+                rated ? Math.round((double) aqiSum / ratedCities * 10) / 10.0 : null,
+                rated ? median() : null,
+                worst != null ? worst.getAqi() : null,
+                Collections.unmodifiableMap(categories),
+                worst != null ? worst.getCity() : null,
+                worst != null ? worst.getCountry() : null,
+                children);
+        }
+
+        // Middle value (or mean of the two middle values) by walking the cumulative counts
+        private double median() {
+            int lowerRank = (ratedCities - 1) / 2;
+            int upperRank = ratedCities / 2;
+            int lower = -1;
+            int seen = 0;
+            for (int value = 0; value <= MAX_AQI; value++) {
+                seen += histogram[value];
+                if (lower < 0 && seen > lowerRank) {
+                    lower = value;
+                }
+                if (seen > upperRank) {
+                    return (lower + value) / 2.0;
+                }
+            }
+            return lower;
+        }
+
+        private static int slot(int aqi) {
+            return Math.max(0, Math.min(MAX_AQI, aqi));
+        }
+    }
+}
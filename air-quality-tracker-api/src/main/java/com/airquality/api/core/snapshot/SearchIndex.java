@@ -0,0 +1,362 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.SearchSuggestion;
+import com.airquality.api.shared.util.LookupKeys;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable autocomplete index over city and country names, built once per snapshot
+ *
+ * Simple explanation:
+ * - Every name is folded with LookupKeys.normalize, so "sao", "São" and "SAO" all match "São Paulo"
+ * - Prefix search: folded names (and each later word, so "york" finds "New York") are kept in one
+ *   sorted array; all keys starting with the query form a contiguous range found by binary search.
+ *   This is the flat-array equivalent of walking a trie to the query's node.
+ * - Fuzzy search: when prefixes do not fill the limit, names sharing enough 3-letter grams with
+ *   the query are added ("berln" still finds Berlin)
+ *
+ * Ranking: exact name, then name prefix, then later-word prefix, then fuzzy by shared grams;
+ * ties go to the shorter name, then alphabetical order.
+ * One- and two-letter queries match a large share of all keys, so their top MAX_RESULTS are
+ * ranked once at build time and served directly.
+ */
+public final class SearchIndex {
+
+    public static final int MAX_RESULTS = 50;
+
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final double MIN_FUZZY_SIMILARITY = 0.5;
+    private static final int MIN_FUZZY_SHARED = 2;
+
+    private static final int EXACT = 0;
+    private static final int PREFIX = 1;
+    private static final int WORD_PREFIX = 2;
+    private static final int FUZZY = 3;
+
+    private static final String[] MATCH_NAMES = {"exact", "prefix", "prefix", "fuzzy"};
+
+    private static final SearchIndex EMPTY = build(Collections.emptyList());
+
+    // Entries in folded-name order, so an entry id doubles as its alphabetical rank
+    private final String[] names;
+    private final String[] folded;
+    private final boolean[] isCity;
+    private final String[] countries;   // null for country entries
+    private final Integer[] aqis;
+
+    // Sorted keys (full names and later words) and the entry each key belongs to
+    private final String[] keys;
+    private final int[] keyEntries;
+    private final boolean[] keyIsWord;
+
+    // Trigram -> ascending entry ids
+    private final Map<String, int[]> postings;
+
+    // Folded prefix of length <= PRECOMPUTED_PREFIX_LENGTH -> its best MAX_RESULTS ranks
+    private final Map<String, long[]> shortPrefixes;
+
+    private SearchIndex(List<Entry> entries) {
+        entries.sort(Comparator.comparing((Entry entry) -> entry.folded).thenComparing(entry -> entry.name));
+        int n = entries.size();
+        this.names = new String[n];
+        this.folded = new String[n];
+        this.isCity = new boolean[n];
+        this.countries = new String[n];
+        this.aqis = new Integer[n];
+
+        List<Key> keyList = new ArrayList<>();
+        Map<String, IntList> gramLists = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            Entry entry = entries.get(id);
+            names[id] = entry.name;
+            folded[id] = entry.folded;
+            isCity[id] = entry.city;
+            countries[id] = entry.country;
+            aqis[id] = entry.aqi;
+
+            keyList.add(new Key(entry.folded, id, false));
+            for (int i = entry.folded.indexOf(' '); i >= 0; i = entry.folded.indexOf(' ', i + 1)) {
+                if (i + 1 < entry.folded.length()) {
+                    keyList.add(new Key(entry.folded.substring(i + 1), id, true));
+                }
+            }
+            for (String gram : trigrams("$" + entry.folded + "$")) {
+                gramLists.computeIfAbsent(gram, g -> new IntList()).addDistinct(id);
+            }
+        }
+
+        keyList.sort(Comparator.comparing((Key key) -> key.text).thenComparingInt(key -> key.entry));
+        this.keys = new String[keyList.size()];
+        this.keyEntries = new int[keyList.size()];
+        this.keyIsWord = new boolean[keyList.size()];
+        for (int i = 0; i < keyList.size(); i++) {
+            keys[i] = keyList.get(i).text;
+            keyEntries[i] = keyList.get(i).entry;
+            keyIsWord[i] = keyList.get(i).word;
+        }
+
+        this.postings = new HashMap<>(gramLists.size() * 2);
+        for (Map.Entry<String, IntList> gram : gramLists.entrySet()) {
+            postings.put(gram.getKey(), gram.getValue().toArray());
+        }
+
+        Map<String, TopK> shortTops = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            for (int length = 1; length <= Math.min(PRECOMPUTED_PREFIX_LENGTH, keys[i].length()); length++) {
+                String prefix = keys[i].substring(0, length);
+                shortTops.computeIfAbsent(prefix, p -> new TopK(MAX_RESULTS)).offer(prefixRank(i, length));
+            }
+        }
+        this.shortPrefixes = new HashMap<>(shortTops.size() * 2);
+        for (Map.Entry<String, TopK> prefix : shortTops.entrySet()) {
+            shortPrefixes.put(prefix.getKey(), Arrays.copyOf(prefix.getValue().ranks, prefix.getValue().size));
+        }
+    }
+
+    /**
+     * Index every city (with its country and AQI) and every distinct country
+     */
+    public static SearchIndex build(List<AirQualityData> cities) {
+        List<Entry> entries = new ArrayList<>(cities.size());
+        Map<String, String> countryKeys = new HashMap<>();
+        Map<String, String> countryNames = new LinkedHashMap<>();
+        for (AirQualityData city : cities) {
+            String cityKey = LookupKeys.normalize(city.getCity());
+            if (cityKey != null && !cityKey.isEmpty()) {
+                entries.add(new Entry(city.getCity(), cityKey, true, city.getCountry(), city.getAqi()));
+            }
+            if (city.getCountry() != null) {
+                // Few distinct countries: fold each spelling once
+                String countryKey = countryKeys.computeIfAbsent(city.getCountry(), LookupKeys::normalize);
+                if (!countryKey.isEmpty()) {
+                    countryNames.putIfAbsent(countryKey, city.getCountry());
+                }
+            }
+        }
+        for (Map.Entry<String, String> country : countryNames.entrySet()) {
+            entries.add(new Entry(country.getValue(), country.getKey(), false, null, null));
+        }
+        return new SearchIndex(entries);
+    }
+
+    public static SearchIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Ranked suggestions for a partly typed name
+     *
+     * @param query Raw user input; folded the same way as the indexed names
+     * @param limit Maximum number of suggestions
+     */
+    public List<SearchSuggestion> search(String query, int limit) {
+        String q = LookupKeys.normalize(query);
+        if (q == null || q.isEmpty() || limit <= 0 || names.length == 0) {
+            return Collections.emptyList();
+        }
+
+        int max = Math.min(limit, MAX_RESULTS);
+        long[] ranks;
+        int count;
+        if (q.length() <= PRECOMPUTED_PREFIX_LENGTH) {
+            ranks = shortPrefixes.getOrDefault(q, new long[0]);
+            count = Math.min(max, ranks.length);
+        } else {
+            TopK top = new TopK(max);
+            for (int i = lowerBound(q); i < keys.length && keys[i].startsWith(q); i++) {
+                top.offer(prefixRank(i, q.length()));
+            }
+            if (!top.isFull() && q.length() >= MIN_FUZZY_LENGTH) {
+                addFuzzy(q, top);
+            }
+            ranks = top.ranks;
+            count = top.size;
+        }
+
+        List<SearchSuggestion> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long rank = ranks[i];
+            int entry = entryOf(rank);
+            String type = isCity[entry] ? "city" : "country";
+            result.add(new SearchSuggestion(type, names[entry], countries[entry], aqis[entry],
+                MATCH_NAMES[matchOf(rank)]));
+        }
+        return result;
+    }
+
+    // Counts, per entry, how many of the query's trigrams it contains; keeps those covering enough of them
+    private void addFuzzy(String q, TopK top) {
+        List<String> grams = trigrams("$" + q);
+        int[] shared = new int[names.length];
+        int[] touched = new int[names.length];
+        int touchedCount = 0;
+        for (String gram : grams) {
+            int[] list = postings.get(gram);
+            if (list == null) {
+                continue;
+            }
+            for (int entry : list) {
+                if (shared[entry]++ == 0) {
+                    touched[touchedCount++] = entry;
+                }
+            }
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            int entry = touched[i];
+            double similarity = (double) shared[entry] / grams.size();
+            if (shared[entry] >= MIN_FUZZY_SHARED && similarity >= MIN_FUZZY_SIMILARITY
+                    && !folded[entry].startsWith(q)) {
+                int distance = (int) Math.round((1 - similarity) * 1000);
+                top.offer(rank(FUZZY, distance, folded[entry].length(), entry));
+            }
+        }
+    }
+
+    // Rank of key i for a query of the given length that the key starts with
+    private long prefixRank(int keyIndex, int queryLength) {
+        int entry = keyEntries[keyIndex];
+        int match = keyIsWord[keyIndex] ? WORD_PREFIX : folded[entry].length() == queryLength ? EXACT : PREFIX;
+        return rank(match, 0, folded[entry].length(), entry);
+    }
+
+    private int lowerBound(String q) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(q) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static List<String> trigrams(String text) {
+        List<String> grams = new ArrayList<>(Math.max(0, text.length() - 2));
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Packs the ranking into one long so candidates compare without allocating:
+    // match (4 bits) | fuzzy distance (16) | name length (16) | entry id (24, alphabetical rank)
+    private static long rank(int match, int distance, int length, int entry) {
+        return ((long) match << 56) | ((long) Math.min(distance, 0xFFFF) << 40)
+            | ((long) Math.min(length, 0xFFFF) << 24) | entry;
+    }
+
+    private static int matchOf(long rank) {
+        return (int) (rank >>> 56);
+    }
+
+    private static int entryOf(long rank) {
+        return (int) (rank & 0xFFFFFF);
+    }
+
+    /**
+     * The best (lowest) k ranks seen so far, sorted, at most one per entry
+     */
+    private static final class TopK {
+        private final long[] ranks;
+        private int size;
+
+        TopK(int capacity) {
+            this.ranks = new long[capacity];
+        }
+
+        boolean isFull() {
+            return size == ranks.length;
+        }
+
+        void offer(long rank) {
+            if (isFull() && rank >= ranks[size - 1]) {
+                return;
+            }
+            int entry = entryOf(rank);
+            for (int i = 0; i < size; i++) {
+                if (entryOf(ranks[i]) == entry) {
+                    if (rank >= ranks[i]) {
+                        return;
+                    }
+                    System.arraycopy(ranks, i + 1, ranks, i, size - i - 1);
+                    size--;
+                    break;
+                }
+            }
+            int position = Arrays.binarySearch(ranks, 0, size, rank);
+            position = position < 0 ? -position - 1 : position;
+            int moved = Math.min(size, ranks.length - 1) - position;
+            if (moved > 0) {
+                System.arraycopy(ranks, position, ranks, position + 1, moved);
+            }
+            ranks[position] = rank;
+            size = Math.min(size + 1, ranks.length);
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        // Postings are built in ascending id order, so a duplicate can only be the last value
+        void addDistinct(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class Entry {
+        final String name;
+        final String folded;
+        final boolean city;
+        final String country;
+        final Integer aqi;
+
+        Entry(String name, String folded, boolean city, String country, Integer aqi) {
+            this.name = name;
+            this.folded = folded;
+            this.city = city;
+            this.country = country;
+            this.aqi = aqi;
+        }
+    }
+
+    private static final class Key {
+        final String text;
+        final int entry;
+        final boolean word;
+
+        Key(String text, int entry, boolean word) {
+            this.text = text;
+            this.entry = entry;
+            this.word = word;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.airquality.api.core.snapshot;
+
+/**
+ * Published by AirQualitySnapshotHolder after a snapshot with a new generation replaces the old one
+ * Listeners run on the thread that rebuilt the snapshot, so they should hand off slow work
+ */
+public class SnapshotPublishedEvent {
+
+    private final AirQualitySnapshot previous;
+    private final AirQualitySnapshot current;
+
+    public SnapshotPublishedEvent(AirQualitySnapshot previous, AirQualitySnapshot current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    // The replaced snapshot; isLoaded() is false for the first publish
+    public AirQualitySnapshot getPrevious() {
+        return previous;
+    }
+
+    public AirQualitySnapshot getCurrent() {
+        return current;
+    }
+}
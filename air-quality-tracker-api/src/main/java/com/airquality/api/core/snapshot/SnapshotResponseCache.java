@@ -0,0 +1,92 @@
+package com.airquality.api.core.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response bodies for the hottest endpoints (/api/global, /api/cities), serialized and
+ * gzip-compressed once per snapshot generation instead of once per request
+ *
+ * Bodies are built lazily by the first request after a new snapshot is published;
+ * every other request just writes the cached bytes.
+ */
+@Component
+public class SnapshotResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotResponseCache.class);
+
+    private final AirQualitySnapshotHolder snapshotHolder;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, EncodedBody> bodies = new ConcurrentHashMap<>();
+
+    public SnapshotResponseCache(AirQualitySnapshotHolder snapshotHolder, ObjectMapper objectMapper) {
+        this.snapshotHolder = snapshotHolder;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return Encoded global statistics, or null until the first snapshot is loaded
+     */
+    public EncodedBody globalStats() {
+        return body("globalStats", AirQualitySnapshot::getGlobalStats);
+    }
+
+    /**
+     * @return Encoded list of all cities, or null until the first snapshot is loaded
+     */
+    public EncodedBody allCities() {
+        return body("cities", AirQualitySnapshot::getCities);
+    }
+
+    private EncodedBody body(String name, Function<AirQualitySnapshot, Object> payload) {
+        AirQualitySnapshot snapshot = snapshotHolder.current();
+        if (!snapshot.isLoaded()) {
+            return null;
+        }
+
+        EncodedBody body = bodies.get(name);
+        if (body != null && body.getGeneration() == snapshot.getGeneration()) {
+            return body;
+        }
+        // compute() serializes concurrent first requests for the same body into one encode
+        return bodies.compute(name, (key, existing) ->
+            existing != null && existing.getGeneration() == snapshot.getGeneration()
+                ? existing
+                : encode(name, snapshot.getGeneration(), payload.apply(snapshot)));
+    }
+
+    private EncodedBody encode(String name, long generation, Object payload) {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(payload);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(identity.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+                {
+                    // Built once per refresh, so spend the CPU on the smallest output
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                gzip.write(identity);
+            }
+            byte[] gzip = compressed.toByteArray();
+
+            logger.info("Encoded {} body for snapshot generation {}: {} bytes, {} bytes gzip",
+                name, generation, identity.length, gzip.length);
+            return new EncodedBody(generation, identity, gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode " + name + " response body", e);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.airquality.api.core.stream;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.DataUpdate;
+import com.airquality.api.core.snapshot.AirQualitySnapshot;
+import com.airquality.api.core.snapshot.AirQualitySnapshotHolder;
+import com.airquality.api.core.snapshot.SnapshotPublishedEvent;
+import com.airquality.api.shared.util.LookupKeys;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes data updates to every GET /api/events subscriber (Server-Sent Events)
+ *
+ * Simple explanation:
+ * - On each new snapshot generation, the diff against the previous snapshot (changed and removed
+ *   cities plus the new global stats) is serialized ONCE into an SSE frame
+ * - That work runs on a publisher thread, not inside the snapshot rebuild that published the event
+ * - The same bytes are queued on every subscriber and written by a small writer pool (see SseSubscriber)
+ * - A subscriber whose queue is full (sse.subscriber-queue-capacity frames behind) is disconnected;
+ *   its EventSource reconnects and reloads, instead of holding memory for a client that can't keep up
+ * - A comment line every sse.heartbeat-interval-ms keeps proxies from closing idle connections and
+ *   detects dead clients
+ *
+ * Metrics: sse.subscribers (gauge), sse.events (frames broadcast), sse.evictions (slow consumers dropped)
+ */
+@Component
+public class DataUpdateBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataUpdateBroadcaster.class);
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final int RECONNECT_DELAY_MS = 5000;
+
+    private final AirQualitySnapshotHolder snapshotHolder;
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int queueCapacity;
+    private final int maxChangedCities;
+
+    private final Set<SseSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberSlots = new AtomicInteger();   // reserved before a subscriber is added
+    private final Counter events;
+    private final Counter evictions;
+    private final ExecutorService publisher;   // diff, serialize, fan out (one thread: events stay in order)
+    private final ExecutorService writers;     // per-subscriber writes
+
+    public DataUpdateBroadcaster(AirQualitySnapshotHolder snapshotHolder,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${sse.max-subscribers:10000}") int maxSubscribers,
+                                 @Value("${sse.subscriber-queue-capacity:16}") int queueCapacity,
+                                 @Value("${sse.max-changed-cities:1000}") int maxChangedCities,
+                                 @Value("${sse.writer-threads:4}") int writerThreads) {
+        this.snapshotHolder = snapshotHolder;
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.queueCapacity = queueCapacity;
+        this.maxChangedCities = maxChangedCities;
+        this.publisher = Executors.newSingleThreadExecutor(daemonThreads("sse-publisher"));
+        this.writers = Executors.newFixedThreadPool(writerThreads, daemonThreads("sse-writer"));
+
+        Gauge.builder("sse.subscribers", subscribers, Set::size)
+                .description("Open GET /api/events connections")
+                .register(meterRegistry);
+        this.events = Counter.builder("sse.events")
+                .description("Data update events broadcast to subscribers")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("sse.evictions")
+                .description("Subscribers disconnected because they fell too far behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a stream; the first frame carries the current generation
+     *
+     * @return the emitter to return from the handler, or null if the subscriber limit is reached
+     */
+    public ResponseBodyEmitter subscribe() {
+        if (!reserveSlot()) {
+            logger.warn("Rejecting event stream subscriber: limit of {} reached", maxSubscribers);
+            return null;
+        }
+
+        SseSubscriber subscriber = null;
+        try {
+            ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);   // no timeout: the stream stays open
+            subscriber = new SseSubscriber(emitter, queueCapacity, writers, this::unsubscribe);
+            subscribers.add(subscriber);
+
+            long generation = snapshotHolder.current().getGeneration();
+            subscriber.offer(frame("connected", generation, "{\"generation\":" + generation + "}",
+                "retry: " + RECONNECT_DELAY_MS + "\n"));
+            logger.debug("Event stream subscriber connected ({} open)", subscribers.size());
+            return emitter;
+        } catch (RuntimeException e) {
+            // close() removes the subscriber and releases its slot
+            if (subscriber != null) {
+                subscriber.close();
+            } else {
+                subscriberSlots.decrementAndGet();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs on the publishing thread, inside AirQualitySnapshotHolder.rebuild(); the diff,
+     * serialization and fan-out are handed to the single publisher thread, which also keeps
+     * events in generation order
+     */
+    @EventListener
+    public void onSnapshotPublished(SnapshotPublishedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            publisher.execute(() -> pushUpdate(event.getPrevious(), event.getCurrent()));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not pushing generation {}: shutting down", event.getCurrent().getGeneration());
+        }
+    }
+
+    private void pushUpdate(AirQualitySnapshot previous, AirQualitySnapshot current) {
+        DataUpdate update = diff(previous, current);
+        try {
+            String json = objectMapper.writeValueAsString(update);
+            broadcast(frame("data-update", current.getGeneration(), json, ""));
+            events.increment();
+            logger.info("Pushed data update for generation {} to {} subscribers ({} changed, {} removed{})",
+                current.getGeneration(), subscribers.size(), update.getChangedCities().size(),
+                update.getRemovedCities().size(), update.isReload() ? ", reload" : "");
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize data update for generation {}", current.getGeneration(), e);
+        }
+    }
+
+    // Check-and-increment in one step, so concurrent subscribes cannot overshoot the limit
+    private boolean reserveSlot() {
+        int taken;
+        do {
+            taken = subscriberSlots.get();
+            if (taken >= maxSubscribers) {
+                return false;
+            }
+        } while (!subscriberSlots.compareAndSet(taken, taken + 1));
+        return true;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Called once per subscriber when its connection closes
+    private void unsubscribe(SseSubscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriberSlots.decrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${sse.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        if (!subscribers.isEmpty()) {
+            broadcast(HEARTBEAT);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        publisher.shutdownNow();
+        for (SseSubscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        writers.shutdown();
+    }
+
+    private void broadcast(byte[] frame) {
+        for (SseSubscriber subscriber : subscribers) {
+            if (!subscriber.offer(frame)) {
+                evictions.increment();
+                logger.debug("Evicting slow event stream subscriber");
+                subscriber.close();
+            }
+        }
+    }
+
+    // Rows are matched by folded city and country; a row counts as changed if any reading differs
+    private DataUpdate diff(AirQualitySnapshot previous, AirQualitySnapshot current) {
+        Map<String, AirQualityData> before = new HashMap<>(previous.size() * 2);
+        for (AirQualityData city : previous.getCities()) {
+            before.put(key(city), city);
+        }
+
+        List<AirQualityData> changed = new ArrayList<>();
+        for (AirQualityData city : current.getCities()) {
+            AirQualityData old = before.remove(key(city));
+            if (old == null || !sameReadings(old, city)) {
+                changed.add(city);
+            }
+        }
+        List<AirQualityData> removed = new ArrayList<>(before.values());
+
+        if (changed.size() + removed.size() > maxChangedCities) {
+            return new DataUpdate(current.getGeneration(), current.getGlobalStats(), true,
+                Collections.emptyList(), Collections.emptyList());
+        }
+        return new DataUpdate(current.getGeneration(), current.getGlobalStats(), false, changed, removed);
+    }
+
+    private static String key(AirQualityData city) {
+        return LookupKeys.cityCountryKey(city.getCity(), city.getCountry());
+    }
+
+    private static boolean sameReadings(AirQualityData a, AirQualityData b) {
+        return Objects.equals(a.getAqi(), b.getAqi())
+            && Objects.equals(a.getPm25(), b.getPm25())
+            && Objects.equals(a.getPm10(), b.getPm10())
+            && Objects.equals(a.getNo2(), b.getNo2())
+            && Objects.equals(a.getO3(), b.getO3())
+            && Objects.equals(a.getCo(), b.getCo())
+            && Objects.equals(a.getSo2(), b.getSo2())
+            && Objects.equals(a.getLatitude(), b.getLatitude())
+            && Objects.equals(a.getLongitude(), b.getLongitude())
+            && Objects.equals(a.getLastUpdated(), b.getLastUpdated());
+    }
+
+    // SSE wire format: optional prefix lines, id, event name, one data line (JSON has no newlines)
+    private static byte[] frame(String event, long id, String data, String prefix) {
+        return (prefix + "id: " + id + "\nevent: " + event + "\ndata: " + data + "\n\n")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package com.airquality.api.core.stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One open GET /api/events connection, written through Spring MVC's ResponseBodyEmitter
+ *
+ * Frames are queued and written by at most one writer task at a time on the shared writer executor,
+ * so a broadcast never waits on a client: it either queues the frame or, when the queue is full,
+ * reports the subscriber as too slow. A client whose socket is stuck holds one writer thread until
+ * the container's write times out; every other subscriber keeps its own queue moving.
+ * close() is safe from any thread, including the emitter's completion callbacks.
+ */
+final class SseSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseSubscriber.class);
+
+    private final ResponseBodyEmitter emitter;
+    private final int capacity;
+    private final Executor writer;
+    private final Consumer<SseSubscriber> onClose;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Queue<byte[]> queue = new ArrayDeque<>();
+    private boolean writing;   // guarded by queue
+
+    SseSubscriber(ResponseBodyEmitter emitter, int capacity, Executor writer, Consumer<SseSubscriber> onClose) {
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.writer = writer;
+        this.onClose = onClose;
+
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(error -> close());
+    }
+
+    /**
+     * Queue a frame for the writer task
+     *
+     * @return false if the queue is full (the client is not keeping up)
+     */
+    boolean offer(byte[] frame) {
+        if (closed.get()) {
+            return true;
+        }
+        synchronized (queue) {
+            if (queue.size() >= capacity) {
+                return false;
+            }
+            queue.add(frame);
+            if (writing) {
+                return true;
+            }
+            writing = true;
+        }
+        try {
+            writer.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            close();
+        }
+        return true;
+    }
+
+    // Completes the response; safe to call more than once and from any thread
+    void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        onClose.accept(this);
+        synchronized (queue) {
+            queue.clear();
+        }
+        try {
+            emitter.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container (client went away)
+        }
+    }
+
+    // Sends queued frames until the queue is empty; the frames are complete SSE events, so they
+    // are written as-is rather than wrapped again by SseEmitter
+    private void drain() {
+        while (true) {
+            byte[] frame;
+            synchronized (queue) {
+                frame = queue.poll();
+                if (frame == null || closed.get()) {
+                    writing = false;
+                    return;
+                }
+            }
+            try {
+                emitter.send(frame, MediaType.TEXT_EVENT_STREAM);
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Event stream closed by client: {}", e.getMessage());
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.airquality.api.shared.cache;
+
+import com.airquality.api.shared.exception.LoadTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key into one
+ *
+ * Simple explanation:
+ * - The first caller for a key (the leader) registers a future and runs the load on its own thread
+ * - Callers arriving while it runs wait on that future instead of querying the database again
+ * - The leader's result, or its exception, is handed to every waiter; the key is then released,
+ *   so the next miss after that starts a fresh load (nothing is cached here)
+ * - Waiters give up after single-flight.timeout-ms with LoadTimeoutException (503), so a stuck
+ *   query cannot pile up request threads
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    private final Counter loads;
+    private final Counter shared;
+    private final Counter timeouts;
+
+    public SingleFlight(MeterRegistry meterRegistry,
+                        @Value("${single-flight.timeout-ms:5000}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+
+        Gauge.builder("singleflight.in.flight", inFlight, Map::size)
+                .description("Keys with a load currently running")
+                .register(meterRegistry);
+        this.loads = Counter.builder("singleflight.loads")
+                .description("Loads actually executed (one per key per stampede)")
+                .register(meterRegistry);
+        this.shared = Counter.builder("singleflight.shared")
+                .description("Callers that reused another caller's in-flight load")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("singleflight.timeouts")
+                .description("Callers that gave up waiting for an in-flight load")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run loader for key, or wait for the identical load already running
+     *
+     * @param key Identifies the load; equal keys share one execution
+     * @param loader Runs on the calling thread if no load for key is in flight
+     * @return The loaded value (shared by all callers of the same flight; do not mutate)
+     * @throws LoadTimeoutException if the in-flight load does not finish in time
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(Object key, Supplier<T> loader) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            return (T) await(key, existing);
+        }
+
+        loads.increment();
+        try {
+            T value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // Rethrows the leader's exception as-is, so waiters fail the same way (e.g. 404 for all)
+    private Object await(Object key, CompletableFuture<Object> flight) {
+        try {
+            return flight.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Load failed for " + key, cause);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new LoadTimeoutException("Timed out after " + timeoutMillis + " ms waiting for in-flight load of " + key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoadTimeoutException("Interrupted while waiting for in-flight load of " + key);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.airquality.api.shared.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Two-level cache: bounded in-process Caffeine L1 in front of an optional shared Redis L2
+ *
+ * Simple explanation:
+ * - Reads check L1, then L2 (an L2 hit is copied into L1), then fall through to the method
+ * - Writes and evictions go to both levels
+ * - Redis errors are logged and treated as misses, so a Redis outage only costs latency
+ * - swap() replaces the whole L1 with a prefilled one in a single reference write
+ *
+ * L2 keys carry the data generation of this node's snapshot ("<generation>|<key>"), set by swap().
+ * A node still on an older generation reads and writes its own keys, so it can never put old
+ * values where nodes on the new generation look. A value is stored under the generation seen when
+ * its read missed (before the method ran), so a request that straddles a swap stores its possibly
+ * older result under the older generation. Keys of past generations expire with the L2 TTL.
+ */
+public class TieredCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredCache.class);
+
+    private final String name;
+    private final Supplier<CaffeineCache> l1Factory;
+    private final Cache l2;
+    private volatile CaffeineCache l1;
+    private volatile long generation;
+
+    // Generation at this thread's last miss, used by the put() that follows it (see class comment)
+    private final ThreadLocal<Long> missGeneration = new ThreadLocal<>();
+
+    // Counters across both levels (exposed as cache.gets / cache.puts by TieredCacheMeterBinderProvider)
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l2Misses = new LongAdder();
+    private final LongAdder l2Errors = new LongAdder();
+    private final LongAdder retiredL1Evictions = new LongAdder();
+
+    /**
+     * @param l1Factory Creates an empty in-process cache (size- and time-bounded); called again per swap
+     * @param l2 Shared cache, or null when Redis is disabled
+     */
+    public TieredCache(Supplier<CaffeineCache> l1Factory, Cache l2) {
+        this.l1Factory = l1Factory;
+        this.l1 = l1Factory.get();
+        this.name = l1.getName();
+        this.l2 = l2;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        CaffeineCache local = l1;
+        ValueWrapper value = local.get(key);
+        if (value == null) {
+            value = getFromL2(key);
+            if (value != null) {
+                local.put(key, value.get());
+            }
+        }
+
+        if (value != null) {
+            hits.increment();
+            missGeneration.remove();
+        } else {
+            misses.increment();
+            missGeneration.set(generation);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper value = get(key);
+        Object stored = value != null ? value.get() : null;
+        if (stored != null && type != null && !type.isInstance(stored)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + stored);
+        }
+        return (T) stored;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper value = get(key);
+        if (value != null) {
+            return (T) value.get();
+        }
+        // Caffeine runs the loader once per key in this JVM; the result is shared through L2
+        long loadGeneration = generation;
+        missGeneration.remove();
+        return l1.get(key, () -> {
+            T loaded = valueLoader.call();
+            putToL2(loadGeneration, key, loaded);
+            puts.increment();
+            return loaded;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Long missed = missGeneration.get();
+        missGeneration.remove();
+        l1.put(key, value);
+        putToL2(missed != null ? Math.min(missed, generation) : generation, key, value);
+        puts.increment();
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = get(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        l1.evict(key);
+        if (l2 != null) {
+            try {
+                l2.evict(l2Key(generation, key));
+            } catch (RuntimeException e) {
+                l2Error("evict", e);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        l1.clear();
+        if (l2 != null) {
+            try {
+                l2.clear();
+            } catch (RuntimeException e) {
+                l2Error("clear", e);
+            }
+        }
+    }
+
+    /**
+     * Replace the L1 contents with exactly these entries in one step, so readers see either the old
+     * entries or the new ones and never an empty cache, and move L2 reads and writes to the new
+     * generation's keys
+     *
+     * @param entries Prefilled values, by cache key
+     * @param generation Data generation the entries were built from
+     * @param includeL2 Also write the entries to L2 (the node that ran the refresh); other nodes
+     *                  only swap their own L1 and then read what that node wrote
+     */
+    public void swap(Map<?, ?> entries, long generation, boolean includeL2) {
+        CaffeineCache next = l1Factory.get();
+        entries.forEach(next::put);
+
+        CaffeineCache previous = l1;
+        l1 = next;
+        this.generation = generation;
+        retiredL1Evictions.add(previous.getNativeCache().stats().evictionCount());
+
+        if (includeL2) {
+            entries.forEach((key, value) -> putToL2(generation, key, value));
+        }
+    }
+
+    public CaffeineCache getL1() {
+        return l1;
+    }
+
+    public boolean hasL2() {
+        return l2 != null;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    public long getL2HitCount() {
+        return l2Hits.sum();
+    }
+
+    public long getL2MissCount() {
+        return l2Misses.sum();
+    }
+
+    public long getL2ErrorCount() {
+        return l2Errors.sum();
+    }
+
+    // Size- and time-based L1 evictions, including those of L1 instances replaced by swap()
+    public long getL1EvictionCount() {
+        return retiredL1Evictions.sum() + l1.getNativeCache().stats().evictionCount();
+    }
+
+    private ValueWrapper getFromL2(Object key) {
+        if (l2 == null) {
+            return null;
+        }
+        try {
+            ValueWrapper value = l2.get(l2Key(generation, key));
+            if (value != null) {
+                l2Hits.increment();
+            } else {
+                l2Misses.increment();
+            }
+            return value;
+        } catch (RuntimeException e) {
+            l2Error("get", e);
+            return null;
+        }
+    }
+
+    private void putToL2(long valueGeneration, Object key, Object value) {
+        if (l2 == null || value == null) {
+            return;
+        }
+        try {
+            l2.put(l2Key(valueGeneration, key), value);
+        } catch (RuntimeException e) {
+            l2Error("put", e);
+        }
+    }
+
+    private static String l2Key(long generation, Object key) {
+        return generation + "|" + key;
+    }
+
+    private void l2Error(String operation, RuntimeException e) {
+        l2Errors.increment();
+        logger.warn("Redis L2 {} failed for cache {}: {}", operation, name, e.getMessage());
+    }
+}
@@ -0,0 +1,34 @@
+package com.airquality.api.shared.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CacheManager over a fixed set of TieredCaches (built by CacheConfig)
+ * Unknown cache names return null, so a typo in a cache name fails fast instead of silently not caching
+ */
+public class TieredCacheManager implements CacheManager {
+
+    private final Map<String, TieredCache> caches = new LinkedHashMap<>();
+
+    public TieredCacheManager(Collection<TieredCache> caches) {
+        for (TieredCache cache : caches) {
+            this.caches.put(cache.getName(), cache);
+        }
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.get(name);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+}
@@ -0,0 +1,83 @@
+package com.airquality.api.shared.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+
+/**
+ * Exposes per-cache metrics for TieredCache under the standard cache.* meter names
+ * (cache.gets{result=hit|miss}, cache.puts, cache.evictions, cache.size), tagged cache=<name>,
+ * plus cache.l2.gets{result=hit|miss} and cache.l2.errors when Redis is enabled
+ *
+ * Registered as a bean so Spring Boot's cache metrics registrar picks it up for every cache
+ */
+public class TieredCacheMeterBinderProvider implements CacheMeterBinderProvider<TieredCache> {
+
+    @Override
+    public MeterBinder getMeterBinder(TieredCache cache, Iterable<Tag> tags) {
+        return new TieredCacheMetrics(cache, tags);
+    }
+
+    private static final class TieredCacheMetrics extends CacheMeterBinder<TieredCache> {
+
+        TieredCacheMetrics(TieredCache cache, Iterable<Tag> tags) {
+            super(cache, cache.getName(), tags);
+        }
+
+        @Override
+        protected Long size() {
+            TieredCache cache = getCache();
+            return cache != null ? cache.getL1().getNativeCache().estimatedSize() : null;
+        }
+
+        @Override
+        protected long hitCount() {
+            TieredCache cache = getCache();
+            return cache != null ? cache.getHitCount() : 0;
+        }
+
+        @Override
+        protected Long missCount() {
+            TieredCache cache = getCache();
+            return cache != null ? cache.getMissCount() : null;
+        }
+
+        // Size- and time-based evictions from L1 (Redis expiry is not observable from here)
+        @Override
+        protected Long evictionCount() {
+            TieredCache cache = getCache();
+            return cache != null ? cache.getL1EvictionCount() : null;
+        }
+
+        @Override
+        protected long putCount() {
+            TieredCache cache = getCache();
+            return cache != null ? cache.getPutCount() : 0;
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+            TieredCache cache = getCache();
+            if (cache == null || !cache.hasL2()) {
+                return;
+            }
+            FunctionCounter.builder("cache.l2.gets", cache, TieredCache::getL2HitCount)
+                    .tags(getTagsWithCacheName())
+                    .tag("result", "hit")
+                    .description("Redis L2 lookups after an L1 miss")
+                    .register(registry);
+            FunctionCounter.builder("cache.l2.gets", cache, TieredCache::getL2MissCount)
+                    .tags(getTagsWithCacheName())
+                    .tag("result", "miss")
+                    .description("Redis L2 lookups after an L1 miss")
+                    .register(registry);
+            FunctionCounter.builder("cache.l2.errors", cache, TieredCache::getL2ErrorCount)
+                    .tags(getTagsWithCacheName())
+                    .description("Redis L2 operations that failed and were treated as misses")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.airquality.api.shared.config;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Binary response formats, chosen by the Accept header
+ * - application/cbor              CBOR (RFC 8949)
+ * - application/x-jackson-smile   Smile (binary JSON with back-references for repeated names)
+ *
+ * Both reuse Spring Boot's Jackson settings (java.time handling, spring.jackson.*) and drop null
+ * fields, which JSON keeps for compatibility with existing clients.
+ * Registered as beans so they replace Spring MVC's default converters for the same types.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(binaryMapper(builder, new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(binaryMapper(builder, new SmileFactory()));
+    }
+
+    // The builder bean is prototype-scoped, so each converter gets its own copy of Boot's settings
+    private static ObjectMapper binaryMapper(Jackson2ObjectMapperBuilder builder,
+                                             JsonFactory factory) {
+        return builder.factory(factory)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.airquality.api.shared.config;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.shared.cache.TieredCache;
+import com.airquality.api.shared.cache.TieredCacheManager;
+import com.airquality.api.shared.cache.TieredCacheMeterBinderProvider;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache configuration - tiered cache for AirQualityServiceImpl's database fallback (lookups made
+ * before the first snapshot is loaded; the snapshot itself is never cached a second time)
+ * - L1: Caffeine per node, bounded by size and TTL (cache.l1.ttl, cache.<name>.max-size)
+ * - L2: Redis shared by all nodes, only when spring.cache.redis.enabled=true (cache.l2.ttl)
+ *
+ * L2 entries live for one refresh interval by default and are keyed by data generation (see
+ * TieredCache), so a node only ever reads values built from the generation it is serving.
+ * Per-cache overrides: cache.<name>.l1-ttl, cache.<name>.l2-ttl, cache.<name>.max-size
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    private static final String REDIS_KEY_PREFIX = "air-quality:";
+
+    /**
+     * Redis connection for the L2 cache (Redis auto-configuration is excluded in application.properties)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.redis.enabled", havingValue = "true")
+    public LettuceConnectionFactory redisConnectionFactory(
+            @Value("${spring.redis.host:localhost}") String host,
+            @Value("${spring.redis.port:6379}") int port,
+            @Value("${spring.redis.password:}") String password,
+            @Value("${spring.redis.timeout:2000ms}") Duration timeout) {
+
+        RedisStandaloneConfiguration server = new RedisStandaloneConfiguration(host, port);
+        if (!password.isEmpty()) {
+            server.setPassword(password);
+        }
+        LettuceClientConfiguration client = LettuceClientConfiguration.builder()
+                .commandTimeout(timeout)
+                .build();
+        return new LettuceConnectionFactory(server, client);
+    }
+
+    @Bean
+    public CacheManager cacheManager(Environment environment,
+                                     ObjectMapper objectMapper,
+                                     ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        TypeFactory types = objectMapper.getTypeFactory();
+        JavaType cityList = types.constructCollectionType(List.class, AirQualityData.class);
+
+        // Cache name -> cached value type (L2 deserializes into exactly this type) and default L1 size
+        Map<String, CacheSpec> specs = new LinkedHashMap<>();
+        specs.put("globalStats", new CacheSpec(types.constructType(GlobalAirQualityStats.class), 1));
+        specs.put("cities", new CacheSpec(cityList, 1));
+        specs.put("city", new CacheSpec(types.constructType(AirQualityData.class), 5000));
+        specs.put("country", new CacheSpec(cityList, 500));
+        specs.put("countries", new CacheSpec(types.constructCollectionType(List.class, String.class), 1));
+
+        Duration defaultL1Ttl = environment.getProperty("cache.l1.ttl", Duration.class, Duration.ofMinutes(5));
+        Duration defaultL2Ttl = environment.getProperty("cache.l2.ttl", Duration.class,
+            Duration.ofMillis(environment.getProperty("scheduler.data.refresh.rate", Long.class, 21600000L)));
+
+        Map<String, Cache> redisCaches = redisCaches(redisConnectionFactory.getIfAvailable(), specs,
+            environment, defaultL2Ttl, objectMapper);
+
+        List<TieredCache> caches = new ArrayList<>();
+        for (Map.Entry<String, CacheSpec> entry : specs.entrySet()) {
+            String name = entry.getKey();
+            long maxSize = environment.getProperty("cache." + name + ".max-size", Long.class, entry.getValue().maxSize);
+            Duration l1Ttl = environment.getProperty("cache." + name + ".l1-ttl", Duration.class, defaultL1Ttl);
+
+            caches.add(new TieredCache(() -> new CaffeineCache(name, Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(l1Ttl)
+                    .recordStats()
+                    .build(), false), redisCaches.get(name)));
+
+            logger.info("Cache '{}': L1 max {} entries, TTL {}{}", name, maxSize, l1Ttl,
+                redisCaches.containsKey(name) ? "; L2 Redis" : "");
+        }
+        return new TieredCacheManager(caches);
+    }
+
+    @Bean
+    public TieredCacheMeterBinderProvider tieredCacheMeterBinderProvider() {
+        return new TieredCacheMeterBinderProvider();
+    }
+
+    // One RedisCache per spec, each with its own TTL and a serializer bound to the cached value type
+    private static Map<String, Cache> redisCaches(RedisConnectionFactory connectionFactory, Map<String, CacheSpec> specs,
+                                                  Environment environment, Duration defaultTtl, ObjectMapper objectMapper) {
+        Map<String, Cache> caches = new HashMap<>();
+        if (connectionFactory == null) {
+            return caches;
+        }
+
+        // Spring's mapper already handles java.time and ignores derived properties such as aqiCategory
+        ObjectMapper redisMapper = objectMapper.copy();
+        Map<String, RedisCacheConfiguration> configurations = new HashMap<>();
+        for (Map.Entry<String, CacheSpec> entry : specs.entrySet()) {
+            String name = entry.getKey();
+            Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(entry.getValue().valueType);
+            serializer.setObjectMapper(redisMapper);
+
+            configurations.put(name, RedisCacheConfiguration.defaultCacheConfig()
+                    .entryTtl(environment.getProperty("cache." + name + ".l2-ttl", Duration.class, defaultTtl))
+                    .disableCachingNullValues()
+                    .prefixCacheNameWith(REDIS_KEY_PREFIX)
+                    .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer)));
+        }
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .withInitialCacheConfigurations(configurations)
+                .disableCreateOnMissingCache()
+                .build();
+        redisCacheManager.afterPropertiesSet();
+        for (String name : specs.keySet()) {
+            caches.put(name, redisCacheManager.getCache(name));
+        }
+        return caches;
+    }
+
+    private static final class CacheSpec {
+        final JavaType valueType;
+        final long maxSize;
+
+        CacheSpec(JavaType valueType, long maxSize) {
+            this.valueType = valueType;
+            this.maxSize = maxSize;
+        }
+    }
+}
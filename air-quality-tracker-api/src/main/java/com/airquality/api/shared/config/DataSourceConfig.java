@@ -0,0 +1,136 @@
+package com.airquality.api.shared.config;
+
+import com.airquality.api.shared.datasource.ReplicaRoutingDataSource;
+import com.airquality.api.shared.metrics.AcquireTimingMetricsTrackerFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSource configuration - separate pools so background writes never starve user reads
+ * - "primary" pool (spring.datasource.hikari.*): user-facing reads on the primary database
+ * - "ingestion" pool (datasource.ingestion.*): refresh writes, backfills and startup checks
+ * - "replica-N" pools (datasource.replica.*): optional read replicas
+ * With no replica URLs configured, all reads are served by the "primary" pool
+ * Wait times per pool: /actuator/metrics/hikaricp.connections.acquire?tag=pool:<name>
+ * Not active under the "embedded" profile (no MySQL)
+ */
+@Configuration
+@Profile("!embedded")
+public class DataSourceConfig {
+
+    /**
+     * Primary MySQL pool for API reads (same settings Spring Boot would build from spring.datasource.hikari.*)
+     */
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        dataSource.setMetricsTrackerFactory(metricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Ingestion pool on the primary database, sized independently of the API pool
+     */
+    @Bean
+    public HikariDataSource ingestionDataSource(
+            DataSourceProperties properties,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${datasource.ingestion.maximum-pool-size:5}") int maximumPoolSize,
+            @Value("${datasource.ingestion.minimum-idle:1}") int minimumIdle,
+            @Value("${datasource.ingestion.connection-timeout:60000}") long connectionTimeout) {
+        
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("ingestion");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setMinimumIdle(minimumIdle);
+        dataSource.setConnectionTimeout(connectionTimeout);
+        dataSource.setMetricsTrackerFactory(metricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    @Bean
+    public JdbcTemplate ingestionJdbcTemplate(@Qualifier("ingestionDataSource") DataSource ingestionDataSource) {
+        return new JdbcTemplate(ingestionDataSource);
+    }
+
+    /**
+     * @Transactional methods are all writes, so transactions run on the ingestion pool
+     * (replaces the auto-configured manager, which would bind to the API pool)
+     */
+    @Bean
+    public DataSourceTransactionManager transactionManager(
+            @Qualifier("ingestionDataSource") DataSource ingestionDataSource) {
+        return new DataSourceTransactionManager(ingestionDataSource);
+    }
+
+    /**
+     * Read DataSource - one Hikari pool per replica, routed by ReplicaRoutingDataSource
+     */
+    @Bean
+    public ReplicaRoutingDataSource readDataSource(
+            @Qualifier("dataSource") HikariDataSource dataSource,
+            DataSourceProperties properties,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${datasource.replica.urls:}") String[] replicaUrls,
+            @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${datasource.replica.maximum-pool-size:20}") int maximumPoolSize,
+            @Value("${datasource.replica.minimum-idle:5}") int minimumIdle,
+            @Value("${datasource.replica.connection-timeout:30000}") long connectionTimeout,
+            @Value("${datasource.replica.sticky-window-ms:30000}") long stickyWindowMs) {
+        
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setMinimumIdle(minimumIdle);
+            replica.setConnectionTimeout(connectionTimeout);
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(metricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        
+        return new ReplicaRoutingDataSource(dataSource, replicas, stickyWindowMs);
+    }
+
+    // hikaricp.* pool meters (when a registry exists) plus per-query acquire time for QueryMetrics
+    private static AcquireTimingMetricsTrackerFactory metricsTrackerFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new AcquireTimingMetricsTrackerFactory(meterRegistry);
+    }
+}
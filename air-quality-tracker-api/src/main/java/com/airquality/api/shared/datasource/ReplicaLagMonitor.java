@@ -0,0 +1,78 @@
+package com.airquality.api.shared.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically checks replication lag on each read replica
+ * Replicas lagging more than datasource.replica.max-lag-seconds (or with replication stopped,
+ * or unreachable) are taken out of read rotation until they catch up
+ * The first check runs at startup; replicas serve no reads before it passes
+ */
+@Component
+@Profile("!embedded")
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final ReplicaRoutingDataSource readDataSource;
+    private final long maxLagSeconds;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource readDataSource,
+                             @Value("${datasource.replica.max-lag-seconds:10}") long maxLagSeconds) {
+        this.readDataSource = readDataSource;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void checkReplicaLag() {
+        List<DataSource> replicas = readDataSource.getReplicas();
+        for (int i = 0; i < replicas.size(); i++) {
+            Long lagSeconds = readLagSeconds(replicas.get(i), i);
+            boolean healthy = lagSeconds != null && lagSeconds <= maxLagSeconds;
+            logger.debug("Replica {} lag: {}s (healthy={})", i, lagSeconds, healthy);
+            readDataSource.setReplicaHealthy(i, healthy);
+        }
+    }
+
+    /**
+     * Returns replication lag in seconds, 0 if the server is not configured as a replica,
+     * or null if replication is stopped or the replica is unreachable
+     */
+    private Long readLagSeconds(DataSource replica, int index) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(replica);
+        try {
+            List<Map<String, Object>> status;
+            try {
+                // MySQL 8.0.22+
+                status = jdbcTemplate.queryForList("SHOW REPLICA STATUS");
+            } catch (Exception e) {
+                // Older MySQL versions
+                status = jdbcTemplate.queryForList("SHOW SLAVE STATUS");
+            }
+            
+            if (status.isEmpty()) {
+                // Standalone server (e.g. a second local instance): no lag to measure
+                return 0L;
+            }
+            
+            Map<String, Object> row = status.get(0);
+            Object lag = row.containsKey("Seconds_Behind_Source") 
+                    ? row.get("Seconds_Behind_Source") 
+                    : row.get("Seconds_Behind_Master");
+            return lag != null ? ((Number) lag).longValue() : null;
+        } catch (Exception e) {
+            logger.warn("Could not read replication status from replica {}: {}", index, e.getMessage());
+            return null;
+        }
+    }
+}
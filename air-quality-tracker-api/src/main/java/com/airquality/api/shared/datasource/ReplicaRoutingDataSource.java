@@ -0,0 +1,144 @@
+package com.airquality.api.shared.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+/**
+ * Routes read-only queries to healthy read replicas (round-robin), falling back to the primary
+ * 
+ * Reads go to the primary when:
+ * - no replicas are configured
+ * - the caller asked for it with onPrimary() (reads that must see every committed write)
+ * - the calling thread wrote within the sticky window (read-your-writes for the writer only;
+ *   other threads keep reading from replicas)
+ * - every replica is lagging beyond the threshold or unreachable (see ReplicaLagMonitor)
+ *
+ * Replicas start out of rotation and join once ReplicaLagMonitor has seen them caught up.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final String PRIMARY_KEY = "primary";
+
+    private final List<DataSource> replicas;
+    private final AtomicIntegerArray replicaHealthy;   // 1 = in rotation, 0 = lagging/unreachable/unchecked
+    private final long stickyWindowMs;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    // Per thread: when its last write's sticky window ends
+    private final ThreadLocal<Long> stickyUntil = new ThreadLocal<>();
+    // Per thread: set while inside onPrimary()
+    private final ThreadLocal<Boolean> forcePrimary = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long stickyWindowMs) {
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.replicaHealthy = new AtomicIntegerArray(replicas.size());
+        this.stickyWindowMs = stickyWindowMs;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(replicaKey(i), replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        logger.info("ReplicaRoutingDataSource initialized with {} replica(s)", replicas.size());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || forcePrimary.get() != null || isSticky()) {
+            return PRIMARY_KEY;
+        }
+
+        // Round-robin over healthy replicas
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int offset = 0; offset < replicas.size(); offset++) {
+            int index = (start + offset) % replicas.size();
+            if (replicaHealthy.get(index) == 1) {
+                return replicaKey(index);
+            }
+        }
+        return PRIMARY_KEY;
+    }
+
+    /**
+     * Pin this thread's reads to the primary for the sticky window so the writer sees its own
+     * writes before replication catches up
+     */
+    public void markWrite() {
+        stickyUntil.set(System.currentTimeMillis() + stickyWindowMs);
+    }
+
+    /**
+     * Run the action with this thread's reads on the primary, whatever the replicas' health
+     * Uses this DataSource's primary pool, so callers need no connection from the ingestion pool
+     */
+    public <T> T onPrimary(Supplier<T> action) {
+        boolean outermost = forcePrimary.get() == null;
+        forcePrimary.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (outermost) {
+                forcePrimary.remove();
+            }
+        }
+    }
+
+    /**
+     * Include or exclude a replica from read routing (called by ReplicaLagMonitor)
+     */
+    public void setReplicaHealthy(int index, boolean healthy) {
+        int previous = replicaHealthy.getAndSet(index, healthy ? 1 : 0);
+        if (previous != (healthy ? 1 : 0)) {
+            logger.warn("Replica {} is now {}", index, healthy ? "in rotation" : "out of rotation (reads fall back)");
+        }
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable) {
+                ((Closeable) replica).close();
+            }
+        }
+    }
+
+    // Clears an expired window so pooled threads do not keep the entry
+    private boolean isSticky() {
+        Long until = stickyUntil.get();
+        if (until == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() < until) {
+            return true;
+        }
+        stickyUntil.remove();
+        return false;
+    }
+
+    private static String replicaKey(int index) {
+        return "replica-" + index;
+    }
+}
@@ -2,11 +2,13 @@ package com.airquality.api.shared.exception;
 
 /**
  * Exception thrown when a requested city is not found
+ * Stackless: an unknown name is an expected outcome (typos, bots), answered with a 404, so the
+ * stack trace is never used and not worth capturing on every miss
  */
 public class CityNotFoundException extends RuntimeException {
     
     public CityNotFoundException(String cityName) {
-        super("City not found: " + cityName);
+        super("City not found: " + cityName, null, false, false);
     }
     
     public CityNotFoundException(String message, Throwable cause) {
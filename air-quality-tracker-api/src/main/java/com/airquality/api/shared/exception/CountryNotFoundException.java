@@ -2,11 +2,12 @@ package com.airquality.api.shared.exception;
 
 /**
  * Exception thrown when a country is not found in the air quality database
+ * Stackless, like CityNotFoundException
  */
 public class CountryNotFoundException extends RuntimeException {
     
     public CountryNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
     
     public CountryNotFoundException(String message, Throwable cause) {
@@ -3,6 +3,7 @@ package com.airquality.api.shared.exception;
 import com.airquality.api.core.model.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -17,9 +18,10 @@ public class GlobalExceptionHandler {
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
     // Triggered when: user searches for non-existent city | Returns: 404 with error details
+    // Logged at debug: unknown names are routine (typos, bots) and counted by the lookup.filter metric
     @ExceptionHandler(CityNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleCityNotFoundException(CityNotFoundException ex) {
-        logger.warn("City not found: {}", ex.getMessage());
+        logger.debug("City not found: {}", ex.getMessage());
         ErrorResponse error = new ErrorResponse(404, "Not Found", ex.getMessage());
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
@@ -27,7 +29,7 @@ public class GlobalExceptionHandler {
     // Triggered when: user searches for non-existent country | Returns: 404 with error details
     @ExceptionHandler(CountryNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleCountryNotFoundException(CountryNotFoundException ex) {
-        logger.warn("Country not found: {}", ex.getMessage());
+        logger.debug("Country not found: {}", ex.getMessage());
         ErrorResponse error = new ErrorResponse(404, "Not Found", ex.getMessage());
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
@@ -40,6 +42,16 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
 
+    // Triggered when: a coalesced database load takes too long | Returns: 503 so clients retry shortly
+    @ExceptionHandler(LoadTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleLoadTimeoutException(LoadTimeoutException ex) {
+        logger.warn("Load timed out: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(503, "Service Unavailable", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
     // Triggered when: invalid parameters in request | Returns: 400 with validation error message
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
@@ -0,0 +1,11 @@
+package com.airquality.api.shared.exception;
+
+/**
+ * Exception thrown when a request gives up waiting for an identical load already in progress
+ */
+public class LoadTimeoutException extends RuntimeException {
+
+    public LoadTimeoutException(String message) {
+        super(message);
+    }
+}
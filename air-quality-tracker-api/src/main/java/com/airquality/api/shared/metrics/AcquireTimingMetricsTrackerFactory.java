@@ -0,0 +1,60 @@
+package com.airquality.api.shared.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Hikari metrics tracker that attributes connection wait time to the query running on the
+ * current thread (QueryMetrics), then forwards everything to the Micrometer pool tracker
+ * (hikaricp.* meters) when a MeterRegistry exists
+ *
+ * The registry is looked up when the pool starts, not when the DataSource bean is created:
+ * the registry's own DataSource meter binders depend on the DataSource beans.
+ */
+public class AcquireTimingMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public AcquireTimingMetricsTrackerFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        IMetricsTracker pool = registry != null
+                ? new MicrometerMetricsTrackerFactory(registry).create(poolName, poolStats)
+                : new IMetricsTracker() { };
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                pool.recordConnectionCreatedMillis(connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                QueryMetrics.addAcquireNanos(elapsedAcquiredNanos);
+                pool.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                pool.recordConnectionUsageMillis(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                pool.recordConnectionTimeout();
+            }
+
+            @Override
+            public void close() {
+                pool.close();
+            }
+        };
+    }
+}
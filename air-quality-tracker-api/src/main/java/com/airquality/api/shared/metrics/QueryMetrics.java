@@ -0,0 +1,322 @@
+package com.airquality.api.shared.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-query JDBC instrumentation
+ *
+ * For every named query it records (Micrometer, tag query=<name>):
+ * - jdbc.query                     latency histogram (p50/p95/p99), tag outcome=success|error
+ * - jdbc.query.rows                rows returned or affected
+ * - jdbc.query.connection.acquire  time spent waiting for a pooled connection
+ *
+ * Queries slower than jdbc.slow-query.threshold-ms are kept with their bind parameters
+ * (most recent jdbc.slow-query.max-entries) and logged. See QueryMetricsEndpoint for the report.
+ */
+@Component
+public class QueryMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+
+    private static final int MAX_PARAM_LENGTH = 200;
+
+    // Connection acquire time accumulated by the pool on the current thread (see AcquireTimingMetricsTrackerFactory)
+    private static final ThreadLocal<AcquireTime> ACQUIRE_NANOS = ThreadLocal.withInitial(AcquireTime::new);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean slowQueryCaptureEnabled;
+    private final long slowQueryThresholdNanos;
+    private final int slowQueryMaxEntries;
+
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<SlowQuery> slowQueries = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger slowQueryCount = new AtomicInteger();
+
+    public QueryMetrics(MeterRegistry meterRegistry,
+                        @Value("${jdbc.slow-query.enabled:true}") boolean slowQueryCaptureEnabled,
+                        @Value("${jdbc.slow-query.threshold-ms:500}") long slowQueryThresholdMs,
+                        @Value("${jdbc.slow-query.max-entries:100}") int slowQueryMaxEntries) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryCaptureEnabled = slowQueryCaptureEnabled;
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMs);
+        this.slowQueryMaxEntries = slowQueryMaxEntries;
+    }
+
+    /**
+     * Run a query and record its latency, row count and connection-acquire time
+     * Rows are derived from the result: collection size, update count, batch count sum, or 1 per object
+     *
+     * @param name Stable query name (used as the metric tag)
+     * @param query Executes the statement
+     * @param params Bind parameters, only read when the query turns out to be slow
+     * @return The query result
+     */
+    public <T> T record(String name, Supplier<T> query, Object... params) {
+        AcquireTime acquire = ACQUIRE_NANOS.get();
+        long outerAcquireNanos = acquire.nanos;
+        acquire.nanos = 0;
+        acquire.depth++;
+
+        long start = System.nanoTime();
+        T result = null;
+        boolean failed = true;
+        try {
+            result = query.get();
+            failed = false;
+            return result;
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            long acquireNanos = acquire.nanos;
+            // Nested queries (e.g. refreshGlobalStats inside bulkUpsert) also count toward the outer one;
+            // the outermost query leaves the thread clean for whatever runs on it next
+            acquire.depth--;
+            acquire.nanos = acquire.depth > 0 ? outerAcquireNanos + acquireNanos : 0;
+
+            long rows = rowCount(result);
+            QueryStats queryStats = stats.computeIfAbsent(name, this::register);
+            queryStats.record(elapsedNanos, acquireNanos, rows, failed);
+
+            if (slowQueryCaptureEnabled && elapsedNanos >= slowQueryThresholdNanos) {
+                queryStats.slow.increment();
+                captureSlowQuery(name, elapsedNanos, acquireNanos, rows, failed, params);
+            }
+        }
+    }
+
+    /**
+     * Called by the connection pool when the current thread obtains a connection
+     */
+    static void addAcquireNanos(long nanos) {
+        AcquireTime acquire = ACQUIRE_NANOS.get();
+        // Connections taken outside record() belong to no query
+        if (acquire.depth > 0) {
+            acquire.nanos += nanos;
+        }
+    }
+
+    /**
+     * Queries ranked by total time spent (count x mean), highest first
+     *
+     * @param limit Maximum number of queries to return
+     * @return One summary map per query
+     */
+    public List<Map<String, Object>> topQueries(int limit) {
+        List<QueryStats> ranked = new ArrayList<>(stats.values());
+        ranked.sort(Comparator.comparingDouble(QueryStats::totalTimeMs).reversed());
+
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (QueryStats queryStats : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            report.add(queryStats.summary());
+        }
+        return report;
+    }
+
+    /**
+     * Most recent slow queries, newest first
+     */
+    public List<SlowQuery> slowQueries() {
+        return new ArrayList<>(slowQueries);
+    }
+
+    public long getSlowQueryThresholdMs() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    private QueryStats register(String name) {
+        return new QueryStats(name, meterRegistry);
+    }
+
+    private void captureSlowQuery(String name, long elapsedNanos, long acquireNanos, long rows,
+                                  boolean failed, Object[] params) {
+        SlowQuery slowQuery = new SlowQuery(name, nanosToMs(elapsedNanos), nanosToMs(acquireNanos),
+                rows, failed, formatParams(params), Instant.now().toString());
+        logger.warn("Slow query {}: {} ms (connection acquire {} ms), {} rows, params {}",
+                name, slowQuery.getDurationMs(), slowQuery.getAcquireMs(), rows, slowQuery.getParams());
+
+        slowQueries.addFirst(slowQuery);
+        if (slowQueryCount.incrementAndGet() > slowQueryMaxEntries && slowQueries.pollLast() != null) {
+            slowQueryCount.decrementAndGet();
+        }
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            return Arrays.stream((int[]) result).filter(count -> count > 0).sum();
+        }
+        return result != null ? 1 : 0;
+    }
+
+    private static List<String> formatParams(Object[] params) {
+        List<String> formatted = new ArrayList<>(params.length);
+        for (Object param : params) {
+            String value = String.valueOf(param);
+            formatted.add(value.length() > MAX_PARAM_LENGTH ? value.substring(0, MAX_PARAM_LENGTH) + "..." : value);
+        }
+        return formatted;
+    }
+
+    private static double nanosToMs(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    /**
+     * Meters for one named query
+     */
+    private static final class QueryStats {
+        private final String name;
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary rows;
+        private final Timer acquire;
+        private final Counter slow;
+
+        QueryStats(String name, MeterRegistry registry) {
+            this.name = name;
+            this.success = latencyTimer(name, "success", registry);
+            this.error = latencyTimer(name, "error", registry);
+            this.rows = DistributionSummary.builder("jdbc.query.rows")
+                    .description("Rows returned or affected per query")
+                    .tag("query", name)
+                    .register(registry);
+            this.acquire = Timer.builder("jdbc.query.connection.acquire")
+                    .description("Time waiting for a pooled connection per query")
+                    .tag("query", name)
+                    .register(registry);
+            this.slow = Counter.builder("jdbc.query.slow")
+                    .description("Queries over the slow-query threshold")
+                    .tag("query", name)
+                    .register(registry);
+        }
+
+        private static Timer latencyTimer(String name, String outcome, MeterRegistry registry) {
+            return Timer.builder("jdbc.query")
+                    .description("JDBC query latency")
+                    .tag("query", name)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        void record(long elapsedNanos, long acquireNanos, long rowCount, boolean failed) {
+            (failed ? error : success).record(elapsedNanos, TimeUnit.NANOSECONDS);
+            rows.record(rowCount);
+            acquire.record(acquireNanos, TimeUnit.NANOSECONDS);
+        }
+
+        double totalTimeMs() {
+            return success.totalTime(TimeUnit.MILLISECONDS) + error.totalTime(TimeUnit.MILLISECONDS);
+        }
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            long count = success.count() + error.count();
+            summary.put("query", name);
+            summary.put("count", count);
+            summary.put("errors", error.count());
+            summary.put("totalMs", round(totalTimeMs()));
+            summary.put("meanMs", round(count > 0 ? totalTimeMs() / count : 0));
+            summary.put("maxMs", round(Math.max(success.max(TimeUnit.MILLISECONDS), error.max(TimeUnit.MILLISECONDS))));
+            for (ValueAtPercentile percentile : success.takeSnapshot().percentileValues()) {
+                summary.put("p" + Math.round(percentile.percentile() * 100) + "Ms",
+                        round(percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            summary.put("meanRows", round(rows.mean()));
+            summary.put("meanAcquireMs", round(acquire.mean(TimeUnit.MILLISECONDS)));
+            summary.put("slowCount", (long) slow.count());
+            return summary;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+
+    /**
+     * Acquire time of the innermost running query on one thread, and how many record() calls are open
+     */
+    private static final class AcquireTime {
+        long nanos;
+        int depth;
+    }
+
+    /**
+     * One captured slow query execution
+     */
+    public static final class SlowQuery {
+        private final String query;
+        private final double durationMs;
+        private final double acquireMs;
+        private final long rows;
+        private final boolean failed;
+        private final List<String> params;
+        private final String timestamp;
+
+        SlowQuery(String query, double durationMs, double acquireMs, long rows, boolean failed,
+                  List<String> params, String timestamp) {
+            this.query = query;
+            this.durationMs = durationMs;
+            this.acquireMs = acquireMs;
+            this.rows = rows;
+            this.failed = failed;
+            this.params = params;
+            this.timestamp = timestamp;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public double getDurationMs() {
+            return durationMs;
+        }
+
+        public double getAcquireMs() {
+            return acquireMs;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        public List<String> getParams() {
+            return params;
+        }
+
+        public String getTimestamp() {
+            return timestamp;
+        }
+    }
+}
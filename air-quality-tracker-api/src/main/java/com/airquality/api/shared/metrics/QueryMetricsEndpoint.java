@@ -0,0 +1,35 @@
+package com.airquality.api.shared.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint: GET /actuator/queries?limit=20
+ * Named JDBC queries ranked by total database time, plus the most recent slow queries
+ */
+@Component
+@Endpoint(id = "queries")
+public class QueryMetricsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final QueryMetrics queryMetrics;
+
+    public QueryMetricsEndpoint(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> queries(@Nullable Integer limit) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("topQueries", queryMetrics.topQueries(limit != null && limit > 0 ? limit : DEFAULT_LIMIT));
+        report.put("slowQueryThresholdMs", queryMetrics.getSlowQueryThresholdMs());
+        report.put("slowQueries", queryMetrics.slowQueries());
+        return report;
+    }
+}
@@ -0,0 +1,67 @@
+package com.airquality.api.shared.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps country names to continents, from the classpath resource continents.txt
+ *
+ * Simple explanation:
+ * - The file lists countries under [Continent] headers, loaded once at class initialization
+ * - Lookups use LookupKeys.normalize, so "Türkiye", "turkiye" and " TURKIYE " all match
+ * - Countries not in the file belong to OTHER
+ */
+public final class Continents {
+
+    public static final String OTHER = "Other";
+
+    private static final String RESOURCE = "/continents.txt";
+
+    private static final Map<String, String> BY_COUNTRY = load();
+
+    private Continents() {
+    }
+
+    // Continent for a country name, or OTHER if unknown
+    // Example: "Brazil" → "South America"
+    public static String of(String country) {
+        if (country == null) {
+            return OTHER;
+        }
+        return BY_COUNTRY.getOrDefault(LookupKeys.normalize(country), OTHER);
+    }
+
+    private static Map<String, String> load() {
+        InputStream in = Continents.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("Missing classpath resource " + RESOURCE);
+        }
+
+        Map<String, String> byCountry = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String continent = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("[") && line.endsWith("]")) {
+                    continent = line.substring(1, line.length() - 1).trim();
+                } else if (continent != null) {
+                    byCountry.put(LookupKeys.normalize(line), continent);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + RESOURCE, e);
+        }
+        return Collections.unmodifiableMap(byCountry);
+    }
+}
@@ -0,0 +1,66 @@
+package com.airquality.api.shared.util;
+
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Builds normalized lookup keys for city and country names.
+ *
+ * Simple explanation:
+ * - "São Paulo", "SAO PAULO" and " sao paulo " all become "sao paulo"
+ * - Keys are stored in city_key / country_key so MySQL can use a plain
+ *   index lookup instead of scanning with LOWER(city) = LOWER(?)
+ * - City listings are ordered by (city key, id). The key columns use the utf8mb4_bin collation,
+ *   which orders by code point, and KEY_ORDER is that same order in Java: the database, the
+ *   embedded store and the in-memory snapshot page through cities identically
+ */
+public final class LookupKeys {
+
+    // Combining marks left behind after NFD decomposition (accents, umlauts, cedillas)
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    // Runs of whitespace collapse to a single space
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Code point order, as MySQL's utf8mb4_bin compares city_key / country_key
+    // (String.compareTo would put characters above U+FFFF before U+E000-U+FFFF)
+    public static final Comparator<String> KEY_ORDER = LookupKeys::compareKeys;
+
+    private LookupKeys() {
+    }
+
+    // Folds case and accents, trims and collapses whitespace
+    // Example: "  Zürich " → "zurich"
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        String stripped = DIACRITICS.matcher(decomposed).replaceAll("");
+        String collapsed = WHITESPACE.matcher(stripped.trim()).replaceAll(" ");
+        return collapsed.toLowerCase(Locale.ROOT);
+    }
+
+    // Key for one city within one country, e.g. ("São Paulo", "Brazil") → "sao paulo|brazil"
+    public static String cityCountryKey(String city, String country) {
+        return normalize(city) + "|" + normalize(country);
+    }
+
+    private static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
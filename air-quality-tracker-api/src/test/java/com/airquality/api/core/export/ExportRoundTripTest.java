@@ -0,0 +1,164 @@
+package com.airquality.api.core.export;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every export format read back into rows must give the rows that were written
+ * (CSV and NDJSON are the only formats; see ExportFormat)
+ */
+class ExportRoundTripTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    // Names that need quoting in CSV or escaping in JSON, missing values and fractional timestamps
+    private static List<AirQualityData> rows() {
+        return Arrays.asList(
+            AirQualityData.builder().id(1L).city("Washington, D.C.").country("United States").locationId("loc-1")
+                .aqi(42).pm25(10.5).pm10(20.25).no2(3.0).o3(40.125).co(0.3).so2(1.0)
+                .latitude(38.9072).longitude(-77.0369).lastUpdated(LocalDateTime.of(2024, 5, 1, 12, 0)).build(),
+            AirQualityData.builder().id(2L).city("Say \"Cheese\"").country("Côte d'Ivoire").locationId(null)
+                .aqi(null).pm25(null).pm10(null).no2(null).o3(null).co(null).so2(null)
+                .latitude(null).longitude(null).lastUpdated(null).build(),
+            AirQualityData.builder().id(3L).city("Line\r\nBreak").country("São Tomé").locationId("a,b")
+                .aqi(301).pm25(0.1 + 0.2).pm10(1e-7).no2(123456.789).o3(0.0).co(-0.0).so2(Double.MIN_VALUE)
+                .latitude(-90.0).longitude(180.0).lastUpdated(LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789))
+                .build(),
+            AirQualityData.builder().id(4L).city("東京").country("Japan").locationId("")
+                .aqi(0).pm25(5.0).lastUpdated(LocalDateTime.of(2024, 5, 1, 0, 0, 1)).build());
+    }
+
+    // Every field, since AirQualityData.equals only compares city and country
+    private static String describe(AirQualityData row) {
+        return String.join("|", Objects.toString(row.getId()), row.getCity(), row.getCountry(),
+            Objects.toString(row.getLocationId()), Objects.toString(row.getAqi()), Objects.toString(row.getPm25()),
+            Objects.toString(row.getPm10()), Objects.toString(row.getNo2()), Objects.toString(row.getO3()),
+            Objects.toString(row.getCo()), Objects.toString(row.getSo2()), Objects.toString(row.getLatitude()),
+            Objects.toString(row.getLongitude()), Objects.toString(row.getLastUpdated()));
+    }
+
+    private static List<String> describe(List<AirQualityData> rows) {
+        return rows.stream().map(ExportRoundTripTest::describe).collect(Collectors.toList());
+    }
+
+    private String export(ExportFormat format, List<AirQualityData> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AirQualityExportWriter writer = format.createWriter(out, objectMapper);
+        writer.writeHeader();
+        for (AirQualityData row : rows) {
+            writer.writeRow(row);
+        }
+        writer.finish();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void csvReadsBackToTheSameRows() throws IOException {
+        String csv = export(ExportFormat.CSV, rows());
+
+        List<List<String>> records = parseCsv(csv);
+        assertEquals("id,city,country,location_id,aqi,aqi_category,pm25,pm10,no2,o3,co,so2,latitude,longitude,"
+            + "last_updated", String.join(",", records.get(0)));
+        List<AirQualityData> read = new ArrayList<>();
+        for (List<String> record : records.subList(1, records.size())) {
+            assertEquals(15, record.size(), record.toString());
+            AirQualityData row = AirQualityData.builder()
+                .id(parse(record.get(0), Long::valueOf))
+                .city(record.get(1))
+                .country(record.get(2))
+                // CSV writes null and "" alike as an empty cell, so both read back as null
+                .locationId(record.get(3).isEmpty() ? null : record.get(3))
+                .aqi(parse(record.get(4), Integer::valueOf))
+                .pm25(parse(record.get(6), Double::valueOf))
+                .pm10(parse(record.get(7), Double::valueOf))
+                .no2(parse(record.get(8), Double::valueOf))
+                .o3(parse(record.get(9), Double::valueOf))
+                .co(parse(record.get(10), Double::valueOf))
+                .so2(parse(record.get(11), Double::valueOf))
+                .latitude(parse(record.get(12), Double::valueOf))
+                .longitude(parse(record.get(13), Double::valueOf))
+                .lastUpdated(parse(record.get(14), LocalDateTime::parse))
+                .build();
+            assertEquals(Objects.toString(row.getAqiCategory(), ""), record.get(5));
+            read.add(row);
+        }
+
+        List<AirQualityData> expected = rows();
+        expected.get(3).setLocationId(null);
+        assertEquals(describe(expected), describe(read));
+    }
+
+    @Test
+    void ndjsonReadsBackToTheSameRows() throws IOException {
+        String ndjson = export(ExportFormat.NDJSON, rows());
+
+        assertTrue(ndjson.endsWith("\n"));
+        List<AirQualityData> read = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            read.add(objectMapper.readValue(line, AirQualityData.class));
+        }
+        assertEquals(describe(rows()), describe(read));
+    }
+
+    @Test
+    void emptyExportsAreJustTheHeader() throws IOException {
+        assertEquals(1, parseCsv(export(ExportFormat.CSV, List.of())).size());
+        assertEquals("", export(ExportFormat.NDJSON, List.of()));
+    }
+
+    private static <T> T parse(String cell, Function<String, T> parser) {
+        return cell.isEmpty() ? null : parser.apply(cell);
+    }
+
+    // RFC 4180: quoted cells may hold commas, doubled quotes and line breaks; records end with CRLF
+    private static List<List<String>> parseCsv(String csv) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(cell.toString());
+                cell.setLength(0);
+            } else if (c == '\r' && i + 1 < csv.length() && csv.charAt(i + 1) == '\n') {
+                record.add(cell.toString());
+                cell.setLength(0);
+                records.add(record);
+                record = new ArrayList<>();
+                i++;
+            } else {
+                cell.append(c);
+            }
+        }
+        assertTrue(record.isEmpty() && cell.length() == 0, "CSV must end with CRLF");
+        return records;
+    }
+}
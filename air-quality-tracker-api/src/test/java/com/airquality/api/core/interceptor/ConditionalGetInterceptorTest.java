@@ -0,0 +1,176 @@
+package com.airquality.api.core.interceptor;
+
+import com.airquality.api.core.controller.AirQualityController;
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.DataVersion;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.VersionedData;
+import com.airquality.api.core.repository.AirQualityRepository;
+import com.airquality.api.core.service.impl.AirQualityServiceImpl;
+import com.airquality.api.core.snapshot.AirQualitySnapshotHolder;
+import com.airquality.api.core.snapshot.LookupFilter;
+import com.airquality.api.core.snapshot.SnapshotResponseCache;
+import com.airquality.api.shared.cache.SingleFlight;
+import com.airquality.api.shared.cache.TieredCache;
+import com.airquality.api.shared.cache.TieredCacheManager;
+import com.airquality.api.shared.exception.GlobalExceptionHandler;
+import com.airquality.api.shared.external.openaq.OpenAQApiClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ConditionalGetInterceptorTest {
+
+    private static final LocalDateTime REFRESHED = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private static final AirQualityData BERLIN = city(1, "Berlin", "Germany");
+    private static final AirQualityData PARIS = city(2, "Paris", "France");
+
+    private AirQualityRepository repository;
+    private AirQualityServiceImpl service;
+    private AirQualitySnapshotHolder snapshotHolder;
+    private MockMvc mockMvc;
+
+    private static AirQualityData city(long id, String name, String country) {
+        return AirQualityData.builder().id(id).city(name).country(country).aqi(40).lastUpdated(REFRESHED).build();
+    }
+
+    private static VersionedData generation(long generation, AirQualityData... cities) {
+        GlobalAirQualityStats stats = new GlobalAirQualityStats();
+        stats.setTotalCities(cities.length);
+        return new VersionedData(new DataVersion(generation, REFRESHED.plusHours(generation)),
+            Arrays.asList(cities), stats);
+    }
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(AirQualityRepository.class);
+        when(repository.findVersionedData()).thenReturn(generation(1, BERLIN), generation(2, BERLIN, PARIS));
+        when(repository.findAllCountries()).thenReturn(Collections.singletonList("Germany"));
+        OpenAQApiClient openAQApiClient = mock(OpenAQApiClient.class);
+        when(openAQApiClient.fetchAirQualityData(50)).thenReturn(Arrays.asList(BERLIN, PARIS));
+        when(repository.bulkUpsert(anyList())).thenReturn(2);
+
+        List<TieredCache> caches = new ArrayList<>();
+        for (String name : Arrays.asList("globalStats", "cities", "city", "country", "countries")) {
+            caches.add(new TieredCache(() -> new CaffeineCache(name, Caffeine.newBuilder().recordStats().build()), null));
+        }
+        TieredCacheManager cacheManager = new TieredCacheManager(caches);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        snapshotHolder = new AirQualitySnapshotHolder(repository, mock(ApplicationEventPublisher.class), cacheManager);
+        service = new AirQualityServiceImpl(repository, openAQApiClient, objectMapper, snapshotHolder,
+            new SingleFlight(meterRegistry, 5000), cacheManager, new LookupFilter(snapshotHolder, meterRegistry), "upsert");
+        AirQualityController controller = new AirQualityController(service,
+            new SnapshotResponseCache(snapshotHolder, objectMapper));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+            .setMessageConverters(new ByteArrayHttpMessageConverter(), new MappingJackson2HttpMessageConverter(objectMapper))
+            .addMappedInterceptors(new String[] {"/api/**"}, new ConditionalGetInterceptor(snapshotHolder))
+            .setControllerAdvice(new GlobalExceptionHandler(), new ConditionalGetValidatorAdvice())
+            .build();
+    }
+
+    @Test
+    void refreshThenConditionalGetServesTheNewBodyUnderTheNewTag() throws Exception {
+        snapshotHolder.rebuild();
+        mockMvc.perform(get("/api/global"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"1\""))
+            .andExpect(jsonPath("$.totalCities").value(1));
+
+        service.refreshData();
+
+        mockMvc.perform(get("/api/global").header(HttpHeaders.IF_NONE_MATCH, "W/\"1\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"2\""))
+            .andExpect(jsonPath("$.totalCities").value(2));
+        mockMvc.perform(get("/api/global").header(HttpHeaders.IF_NONE_MATCH, "W/\"2\""))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void bodiesCachedBeforeTheFirstSnapshotAreNotServedAfterIt() throws Exception {
+        mockMvc.perform(get("/api/countries"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+            .andExpect(content().json("[\"Germany\"]"));
+
+        snapshotHolder.rebuild();
+        service.refreshData();
+
+        mockMvc.perform(get("/api/countries").header(HttpHeaders.IF_NONE_MATCH, "W/\"1\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"2\""))
+            .andExpect(content().json("[\"France\",\"Germany\"]"));
+    }
+
+    @Test
+    void errorResponsesCarryNoValidators() throws Exception {
+        snapshotHolder.rebuild();
+
+        mockMvc.perform(get("/api/city/Atlantis"))
+            .andExpect(status().isNotFound())
+            .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+            .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+        mockMvc.perform(get("/api/city/Berlin"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"1\""))
+            .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void eachRepresentationRevalidatesAgainstItsOwnTag() throws Exception {
+        snapshotHolder.rebuild();
+
+        String jsonTag = mockMvc.perform(get("/api/city/Berlin").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().stringValues(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String projectedTag = mockMvc.perform(get("/api/city/Berlin").param("fields", "city,aqi"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals("W/\"1\"", jsonTag);
+        assertNotEquals("W/\"1\"", projectedTag);
+        assertNotEquals(jsonTag, projectedTag);
+
+        // A tag from another representation does not validate this one
+        mockMvc.perform(get("/api/city/Berlin").param("fields", "city,aqi").header(HttpHeaders.IF_NONE_MATCH, "W/\"1\""))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.aqi").value(40));
+        mockMvc.perform(get("/api/city/Berlin").param("fields", "city,aqi").header(HttpHeaders.IF_NONE_MATCH, projectedTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, projectedTag))
+            .andExpect(header().stringValues(HttpHeaders.VARY, "Accept, Accept-Encoding"));
+        mockMvc.perform(get("/api/city/Berlin").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, jsonTag))
+            .andExpect(status().isNotModified());
+    }
+}
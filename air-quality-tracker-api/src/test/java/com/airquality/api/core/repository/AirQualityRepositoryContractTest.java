@@ -0,0 +1,272 @@
+package com.airquality.api.core.repository;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.CityCursor;
+import com.airquality.api.core.model.CityQuery;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.VersionedData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Behaviour every AirQualityRepository must share, run against each implementation
+ *
+ * Subclasses hand out an empty repository per test; the checks only use the interface, so the
+ * embedded store and MySQL answer the same calls the same way.
+ */
+public abstract class AirQualityRepositoryContractTest {
+
+    protected static final LocalDateTime UPDATED = LocalDateTime.of(2024, 5, 1, 12, 0, 0);
+
+    protected AirQualityRepository repository;
+
+    // A new, empty repository
+    protected abstract AirQualityRepository createRepository() throws Exception;
+
+    @BeforeEach
+    void createEmptyRepository() throws Exception {
+        repository = createRepository();
+    }
+
+    protected static AirQualityData city(String city, String country, Integer aqi, Double pm25) {
+        return AirQualityData.builder()
+                .city(city)
+                .country(country)
+                .aqi(aqi)
+                .pm25(pm25)
+                .latitude(10.0)
+                .longitude(20.0)
+                .lastUpdated(UPDATED)
+                .build();
+    }
+
+    @Test
+    void startsEmpty() {
+        assertTrue(repository.isEmpty());
+        assertEquals(0, repository.count());
+        assertTrue(repository.findAll().isEmpty());
+        assertNull(repository.findGlobalStats());
+        assertEquals(0, repository.findDataVersion().getGeneration());
+    }
+
+    @Test
+    void upsertCountsOneRowPerInsertAndTwoPerUpdate() {
+        assertEquals(2, repository.bulkUpsert(Arrays.asList(
+            city("Berlin", "Germany", 40, 10.0),
+            city("Paris", "France", 60, 20.0))));
+        long berlinId = repository.findByCity("Berlin").getId();
+
+        assertEquals(3, repository.bulkUpsert(Arrays.asList(
+            city("Berlin", "Germany", 45, 11.0),
+            city("Madrid", "Spain", 70, 25.0))));
+
+        assertEquals(3, repository.count());
+        AirQualityData berlin = repository.findByCity("Berlin");
+        assertEquals(berlinId, berlin.getId());
+        assertEquals(45, berlin.getAqi());
+        assertEquals(UPDATED, berlin.getLastUpdated());
+    }
+
+    @Test
+    void lookupsIgnoreCaseAndAccents() {
+        repository.bulkUpsert(Arrays.asList(
+            city("São Paulo", "Brazil", 80, 30.0),
+            city("Zürich", "Switzerland", 20, 5.0),
+            city("Lyon", "France", 30, 8.0)));
+
+        AirQualityData saoPaulo = repository.findByCity("  SAO   paulo ");
+        assertNotNull(saoPaulo);
+        assertEquals("São Paulo", saoPaulo.getCity());
+        assertEquals(1, repository.findByCountry("BRAZIL").size());
+        assertTrue(repository.existsByCityAndCountry("sao paulo", "brazil"));
+        assertFalse(repository.existsByCityAndCountry("sao paulo", "France"));
+        assertNull(repository.findByCity("Nowhere"));
+
+        List<String> found = repository.findByCities(Arrays.asList("zurich", "SÃO PAULO", "Nowhere")).stream()
+                .map(AirQualityData::getCity)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("São Paulo", "Zürich"), found);
+    }
+
+    @Test
+    void countriesAreDistinctAndSorted() {
+        repository.bulkUpsert(Arrays.asList(
+            city("Munich", "Germany", 30, 8.0),
+            city("Nice", "France", 30, 8.0),
+            city("Hamburg", "Germany", 30, 8.0)));
+
+        assertEquals(Arrays.asList("France", "Germany"), repository.findAllCountries());
+    }
+
+    @Test
+    void pagesVisitEveryMatchingRowOnceInCityOrder() {
+        // Alternating case, distinct first letters: one unambiguous order under any case-insensitive collation
+        List<AirQualityData> input = new ArrayList<>();
+        for (int i = 0; i < 26; i++) {
+            char letter = (char) ((i % 2 == 0 ? 'A' : 'a') + i);
+            String country = i % 3 == 0 ? "Chile" : "Peru";
+            Double pm25 = i % 4 == 0 ? null : (double) i;
+            input.add(city(letter + "town", country, 10 * i, pm25));
+        }
+        Collections.shuffle(input, new Random(7));
+        repository.bulkUpsert(input);
+
+        CityQuery query = new CityQuery();
+        query.setCountry("peru");
+        query.setMinAqi(30);
+        query.setMaxPm25(22.0);
+
+        List<String> expected = input.stream()
+                .filter(data -> data.getCountry().equals("Peru"))
+                .filter(data -> data.getAqi() >= 30)
+                .filter(data -> data.getPm25() != null && data.getPm25() <= 22.0)
+                .map(AirQualityData::getCity)
+                .sorted(String.CASE_INSENSITIVE_ORDER)
+                .collect(Collectors.toList());
+
+        List<String> paged = new ArrayList<>();
+        CityCursor cursor = null;
+        List<AirQualityData> page;
+        do {
+            page = repository.findPage(query, cursor, 3);
+            for (AirQualityData data : page) {
+                paged.add(data.getCity());
+            }
+            if (!page.isEmpty()) {
+                AirQualityData last = page.get(page.size() - 1);
+                cursor = new CityCursor(last.getCity(), last.getId());
+            }
+        } while (page.size() == 3);
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, paged);
+
+        List<Map<String, Object>> projected = repository.findPageProjected(query, null, 2, Arrays.asList("id", "city", "aqi"));
+        assertEquals(expected.subList(0, 2),
+            projected.stream().map(row -> row.get("city")).collect(Collectors.toList()));
+        assertEquals(3, projected.get(0).size());
+    }
+
+    @Test
+    void pagesFollowTheLookupKeyOrder() {
+        // Accents and case fold into the key; "Zürich" and "Zurich" share a key and fall back to id
+        // (insertion) order; a one-row page makes every step go through the cursor
+        repository.bulkUpsert(Arrays.asList(
+            city("Zürich", "Switzerland", 20, 5.0),
+            city("zagreb", "Croatia", 30, 6.0),
+            city("Óbidos", "Portugal", 40, 7.0),
+            city("Oslo", "Norway", 50, 8.0),
+            city("Zurich", "Canada", 60, 9.0),
+            city("Odense", "Denmark", 70, 10.0)));
+        List<String> paged = new ArrayList<>();
+        CityCursor cursor = null;
+        List<AirQualityData> page;
+        while (!(page = repository.findPage(new CityQuery(), cursor, 1)).isEmpty()) {
+            AirQualityData data = page.get(0);
+            paged.add(data.getCity() + "/" + data.getCountry());
+            cursor = new CityCursor(data.getCity(), data.getId());
+        }
+
+        assertEquals(Arrays.asList("Óbidos/Portugal", "Odense/Denmark", "Oslo/Norway", "zagreb/Croatia",
+            "Zürich/Switzerland", "Zurich/Canada"), paged);
+    }
+
+    @Test
+    void everyWriteAdvancesTheGeneration() {
+        long start = repository.findDataVersion().getGeneration();
+
+        repository.bulkUpsert(Collections.singletonList(city("Oslo", "Norway", 15, 4.0)));
+        long afterUpsert = repository.findDataVersion().getGeneration();
+        assertTrue(afterUpsert > start);
+
+        repository.refreshGlobalStats();
+        long afterRefresh = repository.findDataVersion().getGeneration();
+        assertTrue(afterRefresh > afterUpsert);
+
+        repository.swapRefresh(Collections.singletonList(city("Bergen", "Norway", 25, 6.0)));
+        long afterSwap = repository.findDataVersion().getGeneration();
+        assertTrue(afterSwap > afterRefresh);
+
+        repository.deleteAll();
+        assertTrue(repository.findDataVersion().getGeneration() > afterSwap);
+        assertTrue(repository.isEmpty());
+    }
+
+    @Test
+    void versionedDataDescribesOnePointInTime() {
+        repository.bulkUpsert(Arrays.asList(
+            city("Lima", "Peru", 90, 40.0),
+            city("Cusco", "Peru", 35, 9.0)));
+
+        VersionedData data = repository.findVersionedData();
+        assertEquals(repository.findDataVersion().getGeneration(), data.getVersion().getGeneration());
+        assertNotNull(data.getVersion().getRefreshedAt());
+        assertEquals(Arrays.asList("Cusco", "Lima"),
+            data.getCities().stream().map(AirQualityData::getCity).collect(Collectors.toList()));
+        assertEquals(2, data.getStats().getTotalCities());
+    }
+
+    @Test
+    void globalStatsSummariseTheRows() {
+        repository.bulkUpsert(Arrays.asList(
+            city("Reykjavik", "Iceland", 20, 3.0),
+            city("Akureyri", "Iceland", 70, 18.0),
+            city("Delhi", "India", 150, 60.0),
+            city("Pune", "India", null, null)));
+
+        GlobalAirQualityStats stats = repository.findGlobalStats();
+        assertNotNull(stats);
+        assertEquals(4, stats.getTotalCities());
+        assertEquals(2, stats.getTotalCountries());
+        assertEquals(80.0, stats.getAverageGlobalAqi(), 1e-9);
+        assertEquals(1, stats.getCitiesWithGoodAir());
+        assertEquals(1, stats.getCitiesWithModerateAir());
+        assertEquals(1, stats.getCitiesWithUnhealthyAir());
+        assertEquals("Reykjavik", stats.getCleanestCity());
+        assertEquals(20, stats.getCleanestAqi());
+        assertEquals("Delhi", stats.getMostPollutedCity());
+        assertEquals("India", stats.getMostPollutedCountry());
+        assertNotNull(stats.getLastUpdated());
+    }
+
+    @Test
+    void swapRefreshMergesLikeBulkUpsert() {
+        repository.bulkUpsert(Arrays.asList(
+            city("Quito", "Ecuador", 50, 12.0),
+            city("Cuenca", "Ecuador", 40, 10.0)));
+
+        assertEquals(3, repository.swapRefresh(Arrays.asList(
+            city("Quito", "Ecuador", 55, 13.0),
+            city("Guayaquil", "Ecuador", 65, 16.0))));
+
+        assertEquals(3, repository.count());
+        assertEquals(55, repository.findByCity("quito").getAqi());
+        assertEquals(3, repository.findGlobalStats().getTotalCities());
+    }
+
+    @Test
+    void deleteAllEmptiesTheRepository() {
+        repository.bulkUpsert(Collections.singletonList(city("Accra", "Ghana", 60, 15.0)));
+        repository.deleteAll();
+
+        assertTrue(repository.isEmpty());
+        assertEquals(0, repository.count());
+        assertNull(repository.findByCity("Accra"));
+        assertEquals(0, repository.findGlobalStats().getTotalCities());
+    }
+}
@@ -0,0 +1,172 @@
+package com.airquality.api.core.repository.impl;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.repository.AirQualityRepository;
+import com.airquality.api.core.repository.AirQualityRepositoryContractTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedAirQualityRepositoryTest extends AirQualityRepositoryContractTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<EmbeddedAirQualityRepository> opened = new ArrayList<>();
+
+    @Override
+    protected AirQualityRepository createRepository() throws IOException {
+        return open(2.0);
+    }
+
+    @AfterEach
+    void closeRepositories() throws IOException {
+        for (EmbeddedAirQualityRepository repository : opened) {
+            repository.close();
+        }
+    }
+
+    private EmbeddedAirQualityRepository open(double compactionRatio) throws IOException {
+        EmbeddedAirQualityRepository repository = new EmbeddedAirQualityRepository(
+            Jackson2ObjectMapperBuilder.json().build(), directory.toString(), compactionRatio);
+        repository.open();
+        opened.add(repository);
+        return repository;
+    }
+
+    // Simulates a crash: the next open() reads whatever is on disk
+    private EmbeddedAirQualityRepository reopen(double compactionRatio) throws IOException {
+        ((EmbeddedAirQualityRepository) repository).close();
+        return open(compactionRatio);
+    }
+
+    private Path logFile() {
+        return directory.resolve("air-quality-data.log");
+    }
+
+    private Path compactFile() {
+        return directory.resolve("air-quality-data.log.compact");
+    }
+
+    private static List<AirQualityData> cities(int count, int aqi) {
+        List<AirQualityData> cities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cities.add(city("City " + i, "Testland", aqi, 5.0));
+        }
+        return cities;
+    }
+
+    @Test
+    void reopenRestoresCommittedRowsAndGeneration() throws IOException {
+        repository.bulkUpsert(cities(3, 40));
+        repository.bulkUpsert(Collections.singletonList(city("City 1", "Testland", 90, 30.0)));
+        long generation = repository.findDataVersion().getGeneration();
+
+        AirQualityRepository reopened = reopen(2.0);
+
+        assertEquals(3, reopened.count());
+        assertEquals(90, reopened.findByCity("city 1").getAqi());
+        assertEquals(generation, reopened.findDataVersion().getGeneration());
+    }
+
+    @Test
+    void tornTailAfterLastCommitIsTruncated() throws IOException {
+        repository.bulkUpsert(cities(2, 40));
+        byte[] committed = Files.readAllBytes(logFile());
+
+        // An uncommitted batch: one complete PUT line, then a write cut off mid-line
+        String uncommitted = "{\"op\":\"PUT\",\"data\":{\"id\":99,\"city\":\"Ghost\",\"country\":\"Testland\"}}\n"
+            + "{\"op\":\"PUT\",\"data\":{\"city\":\"Ha";
+        Files.write(logFile(), uncommitted.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        AirQualityRepository reopened = reopen(2.0);
+
+        assertEquals(2, reopened.count());
+        assertEquals(null, reopened.findByCity("Ghost"));
+        assertArrayEquals(committed, Files.readAllBytes(logFile()));
+
+        // The truncated log keeps accepting batches
+        reopened.bulkUpsert(Collections.singletonList(city("Later", "Testland", 10, 1.0)));
+        assertEquals(3, reopen(2.0).count());
+    }
+
+    @Test
+    void unreadableLineInTheTailIsTruncated() throws IOException {
+        repository.bulkUpsert(cities(2, 40));
+        byte[] committed = Files.readAllBytes(logFile());
+        Files.write(logFile(), "#garbage\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        AirQualityRepository reopened = reopen(2.0);
+
+        assertEquals(2, reopened.count());
+        assertArrayEquals(committed, Files.readAllBytes(logFile()));
+    }
+
+    @Test
+    void corruptionBeforeACommitFailsStartupAndKeepsTheLog() throws IOException {
+        repository.bulkUpsert(cities(2, 40));
+        repository.bulkUpsert(cities(2, 60));
+        ((EmbeddedAirQualityRepository) repository).close();
+
+        // Damage the first line; later batches are still intact and must not be thrown away
+        byte[] bytes = Files.readAllBytes(logFile());
+        bytes[0] = '#';
+        Files.write(logFile(), bytes);
+
+        EmbeddedAirQualityRepository damaged = new EmbeddedAirQualityRepository(
+            Jackson2ObjectMapperBuilder.json().build(), directory.toString(), 2.0);
+        IOException failure = assertThrows(IOException.class, damaged::open);
+
+        assertTrue(failure.getMessage().contains("refusing to truncate"));
+        assertArrayEquals(bytes, Files.readAllBytes(logFile()));
+    }
+
+    @Test
+    void failedCompactionKeepsTheBatchAndRetriesAfterTheNextOne() throws IOException {
+        EmbeddedAirQualityRepository compacting = reopen(0.0);
+
+        // A non-empty directory where the compact file goes: writing it fails, deleting it fails too
+        Files.createDirectories(compactFile());
+        Files.write(compactFile().resolve("blocker"), new byte[] {1});
+
+        // 1000 PUT lines + COMMIT passes the 1000-entry minimum and triggers compaction
+        assertEquals(1000, compacting.bulkUpsert(cities(1000, 40)));
+        assertEquals(1000, compacting.count());
+        assertEquals(1001, Files.readAllLines(logFile()).size());
+
+        Files.delete(compactFile().resolve("blocker"));
+        Files.delete(compactFile());
+
+        // Next batch: appended to the old log, then the retried compaction rewrites it as CLEAR + rows + COMMIT
+        compacting.bulkUpsert(cities(1001, 50));
+        assertEquals(1001, compacting.count());
+        assertEquals(1003, Files.readAllLines(logFile()).size());
+        assertTrue(Files.notExists(compactFile()));
+        long generation = compacting.findDataVersion().getGeneration();
+
+        // Writes after the compaction land in the new log file (still past the minimum, so it compacts again)
+        compacting.bulkUpsert(Collections.singletonList(city("After", "Testland", 70, 20.0)));
+        assertEquals(1004, Files.readAllLines(logFile()).size());
+
+        compacting.close();
+        EmbeddedAirQualityRepository reopened = open(0.0);
+        assertEquals(1002, reopened.count());
+        assertEquals(50, reopened.findByCity("City 7").getAqi());
+        assertEquals(generation + 1, reopened.findDataVersion().getGeneration());
+    }
+}
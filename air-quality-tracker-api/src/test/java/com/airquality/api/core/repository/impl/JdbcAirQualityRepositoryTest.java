@@ -0,0 +1,68 @@
+package com.airquality.api.core.repository.impl;
+
+import com.airquality.api.core.repository.AirQualityRepository;
+import com.airquality.api.core.repository.AirQualityRepositoryContractTest;
+import com.airquality.api.shared.datasource.ReplicaRoutingDataSource;
+import com.airquality.api.shared.metrics.QueryMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the repository contract against a real MariaDB server (see MariaDbTestDatabase)
+ */
+class JdbcAirQualityRepositoryTest extends AirQualityRepositoryContractTest {
+
+    private static final String SWAP_LOCK_NAME = "air_quality_swap_refresh";
+
+    private DataSource dataSource;
+
+    @Override
+    protected AirQualityRepository createRepository() throws Exception {
+        dataSource = MariaDbTestDatabase.dataSource();
+        MariaDbTestDatabase.clear(dataSource);
+
+        return createRepository(5);
+    }
+
+    private JdbcAirQualityRepository createRepository(int swapLockWaitTimeoutSeconds) {
+        return new JdbcAirQualityRepository(new JdbcTemplate(dataSource),
+            new ReplicaRoutingDataSource(dataSource, Collections.emptyList(), 0),
+            new QueryMetrics(new SimpleMeterRegistry(), true, 500, 100),
+            swapLockWaitTimeoutSeconds);
+    }
+
+    @Test
+    void inPlaceWritesWaitForARunningSwapRefresh() throws Exception {
+        JdbcAirQualityRepository impatient = createRepository(1);
+
+        // Another node's swap refresh holds the lock on its own connection
+        try (Connection connection = dataSource.getConnection()) {
+            JdbcTemplate swapSession = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            assertEquals(1, swapSession.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, SWAP_LOCK_NAME));
+
+            assertThrows(IllegalStateException.class,
+                () -> impatient.bulkUpsert(List.of(city("Berlin", "Germany", 40, 10.0))));
+            assertThrows(IllegalStateException.class, impatient::deleteAll);
+            assertTrue(impatient.isEmpty());
+
+            swapSession.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, SWAP_LOCK_NAME);
+        }
+
+        assertEquals(1, impatient.bulkUpsert(List.of(city("Berlin", "Germany", 40, 10.0))));
+
+        // The write released the lock again: a swap refresh can start straight away
+        assertEquals(1, impatient.swapRefresh(List.of(city("Paris", "France", 30, 8.0))));
+        assertEquals(2, impatient.count());
+    }
+}
@@ -0,0 +1,203 @@
+package com.airquality.api.core.repository.impl;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.CityCursor;
+import com.airquality.api.core.model.CityQuery;
+import com.airquality.api.shared.datasource.ReplicaRoutingDataSource;
+import com.airquality.api.shared.metrics.QueryMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query-plan checks for the lookups served from the database
+ *
+ * Each test calls the real repository method, captures the statement it sent (SQL and bind values)
+ * and runs EXPLAIN on exactly that statement, so a query or index change that falls back to a
+ * table scan or a filesort fails here rather than in production.
+ */
+class JdbcQueryPlanTest {
+
+    private static final int COUNTRIES = 40;
+    private static final int CITIES_PER_COUNTRY = 50;
+
+    private static DataSource dataSource;
+    private static JdbcAirQualityRepository repository;
+    private static RecordingDataSource recorder;
+
+    @BeforeAll
+    static void loadData() throws Exception {
+        dataSource = MariaDbTestDatabase.dataSource();
+        MariaDbTestDatabase.clear(dataSource);
+
+        recorder = new RecordingDataSource(dataSource);
+        repository = new JdbcAirQualityRepository(new JdbcTemplate(dataSource),
+            new ReplicaRoutingDataSource(recorder, Collections.emptyList(), 0),
+            new QueryMetrics(new SimpleMeterRegistry(), false, 500, 100),
+            5);
+
+        // Enough distinct keys that an index lookup is clearly cheaper than a scan
+        List<AirQualityData> rows = new ArrayList<>();
+        for (int country = 0; country < COUNTRIES; country++) {
+            for (int city = 0; city < CITIES_PER_COUNTRY; city++) {
+                rows.add(AirQualityData.builder()
+                    .city("City " + country + "-" + city)
+                    .country("Country " + country)
+                    .aqi((country * 7 + city) % 300)
+                    .pm25((double) city)
+                    .lastUpdated(LocalDateTime.of(2024, 5, 1, 12, 0))
+                    .build());
+            }
+        }
+        repository.bulkUpsert(rows);
+        new JdbcTemplate(dataSource).execute("ANALYZE TABLE air_quality_data");
+    }
+
+    @BeforeEach
+    void resetRecorder() {
+        recorder.statements.clear();
+    }
+
+    // EXPLAIN rows for the last statement the repository ran
+    private List<Map<String, Object>> explainLast() {
+        assertFalse(recorder.statements.isEmpty(), "repository did not run a statement");
+        Statement last = recorder.statements.get(recorder.statements.size() - 1);
+        return new JdbcTemplate(dataSource).queryForList("EXPLAIN " + last.sql, last.params.values().toArray());
+    }
+
+    private static void assertUsesIndex(List<Map<String, Object>> plan, String index) {
+        assertEquals(1, plan.size(), plan::toString);
+        Map<String, Object> row = plan.get(0);
+        assertEquals(index, row.get("key"), plan::toString);
+        assertFalse(String.valueOf(row.get("Extra")).contains("filesort"), plan::toString);
+    }
+
+    @Test
+    void findByCityUsesCityKeyIndex() {
+        assertNotNull(repository.findByCity("city 3-7"));
+        assertUsesIndex(explainLast(), "idx_city_key");
+    }
+
+    @Test
+    void existsByCityAndCountryIsCoveredByCountryKeyIndex() {
+        repository.existsByCityAndCountry("City 3-7", "country 3");
+        List<Map<String, Object>> plan = explainLast();
+        assertUsesIndex(plan, "idx_country_key");
+        assertTrue(String.valueOf(plan.get(0).get("Extra")).contains("Using index"), plan::toString);
+    }
+
+    @Test
+    void findByCitiesUsesCityKeyIndex() {
+        assertEquals(2, repository.findByCities(Arrays.asList("City 1-1", "City 2-2")).size());
+        List<Map<String, Object>> plan = explainLast();
+        assertEquals("idx_city_key", plan.get(0).get("key"), plan::toString);
+    }
+
+    @Test
+    void findByCountryUsesCountryKeyIndexInCityOrder() {
+        assertEquals(CITIES_PER_COUNTRY, repository.findByCountry("COUNTRY 12").size());
+        assertUsesIndex(explainLast(), "idx_country_key");
+    }
+
+    @Test
+    void cityPageSeeksPastTheCursorInIndexOrder() {
+        List<AirQualityData> first = repository.findPage(new CityQuery(), null, 20);
+        AirQualityData last = first.get(first.size() - 1);
+        recorder.statements.clear();
+
+        assertEquals(20, repository.findPage(new CityQuery(), new CityCursor(last.getCity(), last.getId()), 20).size());
+        List<Map<String, Object>> plan = explainLast();
+        assertUsesIndex(plan, "idx_city_key");
+        assertEquals("range", plan.get(0).get("type"), plan::toString);
+    }
+
+    @Test
+    void countryPageSeeksPastTheCursorInIndexOrder() {
+        CityQuery query = new CityQuery();
+        query.setCountry("Country 12");
+        List<AirQualityData> first = repository.findPage(query, null, 10);
+        AirQualityData last = first.get(first.size() - 1);
+        recorder.statements.clear();
+
+        assertEquals(10, repository.findPage(query, new CityCursor(last.getCity(), last.getId()), 10).size());
+        assertUsesIndex(explainLast(), "idx_country_key");
+    }
+
+    /**
+     * DataSource whose connections record every prepared statement's SQL and bind values
+     */
+    private static final class RecordingDataSource extends DelegatingDataSource {
+
+        final List<Statement> statements = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement && args != null && args[0] instanceof String) {
+                        Statement statement = new Statement((String) args[0]);
+                        statements.add(statement);
+                        return record((PreparedStatement) result, statement);
+                    }
+                    return result;
+                });
+        }
+
+        private static PreparedStatement record(PreparedStatement target, Statement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length >= 2
+                            && args[0] instanceof Integer) {
+                        statement.params.put((Integer) args[0], args[1]);
+                    }
+                    return invoke(target, method, args);
+                });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static final class Statement {
+        final String sql;
+        final Map<Integer, Object> params = new TreeMap<>();
+
+        Statement(String sql) {
+            this.sql = sql;
+        }
+    }
+}
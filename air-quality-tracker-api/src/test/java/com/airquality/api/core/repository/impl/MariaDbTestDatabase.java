@@ -0,0 +1,91 @@
+package com.airquality.api.core.repository.impl;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import ch.vorburger.exec.ManagedProcessException;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+/**
+ * One embedded MariaDB server (MariaDB4j) shared by the JDBC tests of a test run
+ *
+ * The schema comes from the same sql/ scripts used to set up MySQL, migrations included;
+ * the server stops when the JVM exits. replicaDataSource() is a second database on the same
+ * server with the same tables, standing in for a read replica that never receives the writes.
+ */
+final class MariaDbTestDatabase {
+
+    private static final String DATABASE = "air_quality_db";
+    private static final String REPLICA_DATABASE = "air_quality_replica_db";
+    private static final String OPTIONS = "?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true"
+        + "&characterEncoding=UTF-8&connectionCollation=utf8mb4_unicode_ci";
+
+    private static String server;
+    private static DataSource dataSource;
+    private static DataSource replicaDataSource;
+
+    private MariaDbTestDatabase() {
+    }
+
+    static synchronized DataSource dataSource() throws ManagedProcessException {
+        if (dataSource == null) {
+            dataSource = start();
+        }
+        return dataSource;
+    }
+
+    // The scripts USE air_quality_db, so the replica's tables are copied from it instead
+    static synchronized DataSource replicaDataSource() throws ManagedProcessException {
+        if (replicaDataSource == null) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource());
+            jdbcTemplate.execute("CREATE DATABASE " + REPLICA_DATABASE
+                + " CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci");
+            for (String table : new String[] {"air_quality_data", "air_quality_global_stats"}) {
+                jdbcTemplate.execute("CREATE TABLE " + REPLICA_DATABASE + "." + table + " LIKE " + DATABASE + "." + table);
+            }
+            replicaDataSource = new DriverManagerDataSource(server + REPLICA_DATABASE + OPTIONS, "root", "");
+        }
+        return replicaDataSource;
+    }
+
+    private static DataSource start() throws ManagedProcessException {
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        builder.setPort(0);
+        builder.addArg("--user=root");
+        DBConfiguration configuration = builder.build();
+        DB database = DB.newEmbeddedDB(configuration);
+        database.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                database.stop();
+            } catch (ManagedProcessException e) {
+                // JVM is exiting; the process dies with it
+            }
+        }));
+
+        // Over JDBC rather than DB.createDB, which needs the mysql command-line client
+        server = "jdbc:mysql://localhost:" + configuration.getPort() + "/";
+        new JdbcTemplate(new DriverManagerDataSource(server + OPTIONS, "root", ""))
+            .execute("CREATE DATABASE " + DATABASE + " CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci");
+
+        DataSource schemaDataSource = new DriverManagerDataSource(server + DATABASE + OPTIONS, "root", "");
+        new ResourceDatabasePopulator(
+            new FileSystemResource("sql/02_create_air_quality_data_table.sql"),
+            new FileSystemResource("sql/04_create_global_stats_table.sql"),
+            new FileSystemResource("sql/06_require_lookup_keys.sql"),
+            new FileSystemResource("sql/07_order_pages_by_city_key.sql")).execute(schemaDataSource);
+        return schemaDataSource;
+    }
+
+    // Empties both tables so each test starts from a fresh schema
+    static void clear(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DELETE FROM air_quality_data");
+        jdbcTemplate.execute("DELETE FROM air_quality_global_stats");
+    }
+}
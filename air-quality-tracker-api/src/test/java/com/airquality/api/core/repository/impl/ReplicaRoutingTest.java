@@ -0,0 +1,156 @@
+package com.airquality.api.core.repository.impl;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.shared.datasource.ReplicaLagMonitor;
+import com.airquality.api.shared.datasource.ReplicaRoutingDataSource;
+import com.airquality.api.shared.metrics.QueryMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Read routing between the primary and a replica on a real MariaDB server (see MariaDbTestDatabase)
+ *
+ * The replica database never receives the writes, so a read that returns the written rows went
+ * to the primary and a read that returns nothing went to the replica.
+ */
+class ReplicaRoutingTest {
+
+    private static final long STICKY_WINDOW_MS = 30_000;
+
+    private DataSource primary;
+    private DataSource replica;
+    private final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = MariaDbTestDatabase.dataSource();
+        replica = MariaDbTestDatabase.replicaDataSource();
+        MariaDbTestDatabase.clear(primary);
+        MariaDbTestDatabase.clear(replica);
+    }
+
+    @AfterEach
+    void tearDown() {
+        otherThread.shutdownNow();
+    }
+
+    private static AirQualityData city(String city, String country) {
+        return AirQualityData.builder()
+                .city(city)
+                .country(country)
+                .aqi(40)
+                .pm25(10.0)
+                .lastUpdated(LocalDateTime.of(2024, 5, 1, 12, 0))
+                .build();
+    }
+
+    private JdbcAirQualityRepository repository(ReplicaRoutingDataSource routing) {
+        return new JdbcAirQualityRepository(new JdbcTemplate(primary), routing,
+            new QueryMetrics(new SimpleMeterRegistry(), true, 500, 100), 5);
+    }
+
+    // Written through a repository of its own, so the routing under test never saw the write
+    private void seedPrimary() {
+        repository(new ReplicaRoutingDataSource(primary, Collections.emptyList(), 0))
+            .bulkUpsert(List.of(city("Berlin", "Germany")));
+    }
+
+    // findAll goes through the read routing (count() always asks the primary)
+    private static int reads(JdbcAirQualityRepository repository) {
+        return repository.findAll().size();
+    }
+
+    private int countOnOtherThread(JdbcAirQualityRepository repository) throws Exception {
+        return otherThread.submit(() -> reads(repository)).get();
+    }
+
+    @Test
+    void replicasServeNoReadsBeforeTheirFirstLagCheckPasses() throws Exception {
+        seedPrimary();
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica), STICKY_WINDOW_MS);
+        JdbcAirQualityRepository repository = repository(routing);
+
+        assertEquals(1, reads(repository));
+
+        // A standalone server reports no replication status, i.e. no lag
+        new ReplicaLagMonitor(routing, 10).checkReplicaLag();
+        assertEquals(0, reads(repository));
+    }
+
+    @Test
+    void laggingOrUnreachableReplicasFallBackToThePrimary() throws Exception {
+        seedPrimary();
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica), STICKY_WINDOW_MS);
+        JdbcAirQualityRepository repository = repository(routing);
+
+        new ReplicaLagMonitor(routing, 10).checkReplicaLag();
+        assertEquals(0, reads(repository));
+
+        // Any lag is too much with a negative threshold
+        new ReplicaLagMonitor(routing, -1).checkReplicaLag();
+        assertEquals(1, reads(repository));
+
+        DataSource unreachable = new DriverManagerDataSource("jdbc:mysql://localhost:1/air_quality_db?connectTimeout=1000",
+            "root", "");
+        ReplicaRoutingDataSource down = new ReplicaRoutingDataSource(primary, List.of(unreachable), STICKY_WINDOW_MS);
+        new ReplicaLagMonitor(down, 10).checkReplicaLag();
+        assertEquals(1, reads(repository(down)));
+    }
+
+    @Test
+    void onlyTheWritingThreadReadsItsWritesFromThePrimary() throws Exception {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica), STICKY_WINDOW_MS);
+        new ReplicaLagMonitor(routing, 10).checkReplicaLag();
+        JdbcAirQualityRepository repository = repository(routing);
+
+        repository.bulkUpsert(List.of(city("Berlin", "Germany"), city("Paris", "France")));
+
+        assertEquals(2, reads(repository));
+        assertEquals(0, countOnOtherThread(repository));
+    }
+
+    @Test
+    void writerReturnsToTheReplicaAfterTheStickyWindow() throws Exception {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica), 200);
+        new ReplicaLagMonitor(routing, 10).checkReplicaLag();
+        JdbcAirQualityRepository repository = repository(routing);
+
+        repository.bulkUpsert(List.of(city("Berlin", "Germany")));
+        assertEquals(1, reads(repository));
+
+        Thread.sleep(250);
+        assertEquals(0, reads(repository));
+    }
+
+    @Test
+    void generationPollReadsThePrimaryWithoutTheIngestionPool() throws Exception {
+        seedPrimary();
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica), STICKY_WINDOW_MS);
+        new ReplicaLagMonitor(routing, 10).checkReplicaLag();
+        // An ingestion pool that cannot hand out connections
+        DataSource exhausted = new DriverManagerDataSource("jdbc:mysql://localhost:1/air_quality_db?connectTimeout=1000",
+            "root", "");
+        JdbcAirQualityRepository repository = new JdbcAirQualityRepository(new JdbcTemplate(exhausted), routing,
+            new QueryMetrics(new SimpleMeterRegistry(), true, 500, 100), 5);
+
+        // The replica has no statistics row, so generation 0 would mean the poll read the replica
+        assertTrue(repository.findDataVersion().getGeneration() > 0);
+        assertTrue(otherThread.submit(() -> repository.findDataVersion().getGeneration()).get() > 0);
+        // Other reads still go to the replica afterwards
+        assertEquals(0, reads(repository));
+    }
+}
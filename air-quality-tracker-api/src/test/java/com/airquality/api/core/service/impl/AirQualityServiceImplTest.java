@@ -0,0 +1,118 @@
+package com.airquality.api.core.service.impl;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.DataVersion;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.model.VersionedData;
+import com.airquality.api.core.repository.AirQualityRepository;
+import com.airquality.api.core.snapshot.AirQualitySnapshotHolder;
+import com.airquality.api.core.snapshot.LookupFilter;
+import com.airquality.api.shared.cache.SingleFlight;
+import com.airquality.api.shared.cache.TieredCache;
+import com.airquality.api.shared.cache.TieredCacheManager;
+import com.airquality.api.shared.exception.CityNotFoundException;
+import com.airquality.api.shared.external.openaq.OpenAQApiClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AirQualityServiceImplTest {
+
+    private static final AirQualityData BERLIN = AirQualityData.builder()
+        .id(1L).city("Berlin").country("Germany").aqi(42).lastUpdated(LocalDateTime.of(2024, 5, 1, 12, 0)).build();
+
+    private AirQualityRepository repository;
+    private AirQualitySnapshotHolder snapshotHolder;
+    private List<TieredCache> caches;
+    private AirQualityServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(AirQualityRepository.class);
+        when(repository.findVersionedData()).thenReturn(new VersionedData(
+            new DataVersion(1, LocalDateTime.of(2024, 5, 1, 12, 0)), Collections.singletonList(BERLIN),
+            new GlobalAirQualityStats()));
+        when(repository.findByCity("Berlin")).thenReturn(BERLIN);
+        when(repository.findAllCountries()).thenReturn(Collections.singletonList("Germany"));
+
+        caches = new ArrayList<>();
+        for (String name : Arrays.asList("globalStats", "cities", "city", "country", "countries")) {
+            caches.add(new TieredCache(() -> new CaffeineCache(name, Caffeine.newBuilder().recordStats().build()), null));
+        }
+        TieredCacheManager cacheManager = new TieredCacheManager(caches);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        snapshotHolder = new AirQualitySnapshotHolder(repository, mock(ApplicationEventPublisher.class), cacheManager);
+        service = new AirQualityServiceImpl(repository, mock(OpenAQApiClient.class), new ObjectMapper(),
+            snapshotHolder, new SingleFlight(meterRegistry, 5000), cacheManager,
+            new LookupFilter(snapshotHolder, meterRegistry), "upsert");
+    }
+
+    private long cacheReads() {
+        return caches.stream().mapToLong(cache -> cache.getHitCount() + cache.getMissCount()).sum();
+    }
+
+    @Test
+    void lookupsBeforeTheFirstSnapshotGoThroughTheCache() {
+        assertEquals(BERLIN, service.getCityData("Berlin"));
+        assertEquals(BERLIN, service.getCityData("berlin"));
+        assertEquals(Collections.singletonList("Germany"), service.getAllCountries());
+        assertEquals(Collections.singletonList("Germany"), service.getAllCountries());
+
+        verify(repository, times(1)).findByCity(anyString());
+        verify(repository, times(1)).findAllCountries();
+        assertEquals(4, cacheReads());
+    }
+
+    @Test
+    void notFoundResultsAreNotCached() {
+        assertThrows(CityNotFoundException.class, () -> service.getCityData("Atlantis"));
+        assertThrows(CityNotFoundException.class, () -> service.getCityData("Atlantis"));
+
+        verify(repository, times(2)).findByCity("Atlantis");
+    }
+
+    @Test
+    void loadedSnapshotIsServedWithoutReadingTheCaches() {
+        snapshotHolder.rebuild();
+
+        assertEquals(BERLIN, service.getCityData("BERLIN"));
+        assertEquals(Collections.singletonList(BERLIN), service.getAllCities());
+        assertEquals(Collections.singletonList(BERLIN), service.getCitiesByCountry("germany"));
+        assertEquals(Collections.singletonList("Germany"), service.getAllCountries());
+        service.getGlobalStats();
+
+        assertEquals(0, cacheReads());
+        verify(repository, never()).findByCity(anyString());
+        verify(repository, never()).findAllCountries();
+    }
+
+    @Test
+    void unknownNamesFailFastOnceTheSnapshotIsLoaded() {
+        snapshotHolder.rebuild();
+
+        assertThrows(CityNotFoundException.class, () -> service.getCityData("Atlantis"));
+
+        assertEquals(0, cacheReads());
+        verify(repository, never()).findByCity(anyString());
+    }
+}
@@ -0,0 +1,225 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.CityQuery;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.shared.util.LookupKeys;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AirQualitySnapshotTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AirQualitySnapshotTest.class);
+
+    private static final String[] COUNTRIES = {"Germany", "France", "Chile", "India", "Japan", "Kenya"};
+
+    // Row order of the snapshot: normalized city in code point order, then id
+    private static final Comparator<AirQualityData> ROW_ORDER = Comparator
+        .comparing((AirQualityData data) -> LookupKeys.normalize(data.getCity()), LookupKeys.KEY_ORDER)
+        .thenComparing(AirQualityData::getId);
+
+    private static List<AirQualityData> randomCities(Random random, int count) {
+        List<AirQualityData> cities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean located = random.nextInt(20) != 0;
+            cities.add(AirQualityData.builder()
+                .id((long) i + 1)
+                .city("City " + random.nextInt(count))
+                .country(COUNTRIES[random.nextInt(COUNTRIES.length)])
+                .locationId(random.nextBoolean() ? "loc-" + i : null)
+                .aqi(random.nextInt(10) == 0 ? null : random.nextInt(300))
+                .pm25(random.nextInt(10) == 0 ? null : random.nextDouble() * 100)
+                .pm10(random.nextInt(10) == 0 ? null : random.nextDouble() * 150)
+                .no2(random.nextInt(10) == 0 ? null : random.nextDouble() * 60)
+                .o3(random.nextInt(10) == 0 ? null : random.nextDouble() * 80)
+                .co(random.nextInt(10) == 0 ? null : random.nextDouble() * 10)
+                .so2(random.nextInt(10) == 0 ? null : random.nextDouble() * 20)
+                .latitude(located ? random.nextDouble() * 180 - 90 : null)
+                .longitude(located ? random.nextDouble() * 360 - 180 : null)
+                .lastUpdated(LocalDateTime.of(2024, 5, 1, 12, 0).plusSeconds(i).plusNanos(random.nextInt(1_000_000_000)))
+                .build());
+        }
+        return cities;
+    }
+
+    private static AirQualitySnapshot snapshot(List<AirQualityData> cities) {
+        return AirQualitySnapshot.build(cities, new GlobalAirQualityStats(), 1, LocalDateTime.of(2024, 5, 1, 12, 0),
+            AirQualitySnapshot.empty());
+    }
+
+    // Every field, since AirQualityData.equals only compares city and country
+    private static String describe(AirQualityData row) {
+        return row == null ? "null" : String.join("|", Objects.toString(row.getId()), row.getCity(), row.getCountry(),
+            row.getLocationId(), Objects.toString(row.getAqi()), Objects.toString(row.getPm25()),
+            Objects.toString(row.getPm10()), Objects.toString(row.getNo2()), Objects.toString(row.getO3()),
+            Objects.toString(row.getCo()), Objects.toString(row.getSo2()), Objects.toString(row.getLatitude()),
+            Objects.toString(row.getLongitude()), Objects.toString(row.getLastUpdated()));
+    }
+
+    private static List<String> describe(List<AirQualityData> rows) {
+        return rows.stream().map(AirQualitySnapshotTest::describe).collect(Collectors.toList());
+    }
+
+    @Test
+    void rowsBuiltFromTheColumnsKeepEveryField() {
+        List<AirQualityData> cities = randomCities(new Random(3), 2000);
+        AirQualitySnapshot snapshot = snapshot(cities);
+
+        List<AirQualityData> ordered = new ArrayList<>(cities);
+        ordered.sort(ROW_ORDER);
+        assertEquals(describe(ordered), describe(snapshot.getCities()));
+    }
+
+    @Test
+    void rankingsMatchSortingTheRows() {
+        List<AirQualityData> cities = randomCities(new Random(11), 3000);
+        AirQualitySnapshot snapshot = snapshot(cities);
+
+        // Stable sorts of the row order, so ties keep row order in both directions
+        List<AirQualityData> rated = cities.stream().filter(c -> c.getAqi() != null).sorted(ROW_ORDER)
+            .collect(Collectors.toList());
+        List<AirQualityData> ascending = rated.stream().sorted(Comparator.comparing(AirQualityData::getAqi))
+            .collect(Collectors.toList());
+        List<AirQualityData> descending = rated.stream()
+            .sorted(Comparator.comparing(AirQualityData::getAqi).reversed()).collect(Collectors.toList());
+
+        for (int limit : new int[] {0, 1, 7, 100, 5000}) {
+            assertEquals(describe(descending.stream().limit(limit).collect(Collectors.toList())),
+                describe(snapshot.mostPolluted(limit)), "mostPolluted " + limit);
+            assertEquals(describe(ascending.stream().filter(c -> c.getAqi() > 0).limit(limit).collect(Collectors.toList())),
+                describe(snapshot.cleanest(limit)), "cleanest " + limit);
+        }
+        assertEquals(describe(ascending.stream().filter(c -> c.getAqi() <= 50).collect(Collectors.toList())),
+            describe(snapshot.goodAir()));
+        assertEquals(describe(descending.stream().filter(c -> c.getAqi() > 100).collect(Collectors.toList())),
+            describe(snapshot.unhealthyAir()));
+    }
+
+    @Test
+    void lookupsMatchFilteringTheRows() {
+        Random random = new Random(5);
+        List<AirQualityData> cities = randomCities(random, 2000);
+        AirQualitySnapshot snapshot = snapshot(cities);
+        List<AirQualityData> ordered = new ArrayList<>(cities);
+        ordered.sort(ROW_ORDER);
+
+        for (int run = 0; run < 300; run++) {
+            AirQualityData probe = cities.get(random.nextInt(cities.size()));
+            String city = random.nextBoolean() ? probe.getCity().toUpperCase() : probe.getCity();
+            String country = random.nextBoolean() ? probe.getCountry().toLowerCase() : probe.getCountry();
+
+            AirQualityData firstByCity = ordered.stream()
+                .filter(c -> c.getCity().equals(probe.getCity())).findFirst().orElse(null);
+            AirQualityData firstByBoth = ordered.stream()
+                .filter(c -> c.getCity().equals(probe.getCity()) && c.getCountry().equals(probe.getCountry()))
+                .findFirst().orElse(null);
+            assertEquals(describe(firstByCity), describe(snapshot.findByCity(city)));
+            assertEquals(describe(firstByBoth), describe(snapshot.findByCityAndCountry(city, country)));
+            assertEquals(describe(ordered.stream().filter(c -> c.getCountry().equals(probe.getCountry()))
+                .collect(Collectors.toList())), describe(snapshot.findByCountry(country)));
+        }
+
+        assertNull(snapshot.findByCity("Atlantis"));
+        assertNull(snapshot.findByCityAndCountry(cities.get(0).getCity(), "Atlantis"));
+        assertTrue(snapshot.findByCountry("Atlantis").isEmpty());
+        assertTrue(snapshot.containsCountry("KENYA"));
+        assertEquals(List.of("Chile", "France", "Germany", "India", "Japan", "Kenya"), snapshot.getCountries());
+    }
+
+    @Test
+    void snapshotKeepsNoRowObjects() throws InterruptedException {
+        List<AirQualityData> cities = randomCities(new Random(13), 20_000);
+        List<WeakReference<AirQualityData>> references = new ArrayList<>(cities.size());
+        for (AirQualityData city : cities) {
+            references.add(new WeakReference<>(city));
+        }
+
+        AirQualitySnapshot snapshot = snapshot(cities);
+        cities = null;
+        long retained = references.size();
+        for (int attempt = 0; attempt < 10 && retained > 0; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+            retained = references.stream().filter(reference -> reference.get() != null).count();
+        }
+
+        // Only the worst city of each country and continent stays referenced (by the region rollup)
+        assertTrue(retained < 100, retained + " of 20000 input rows still reachable");
+        assertEquals(20_000, snapshot.size());
+    }
+
+    @Test
+    void columnsTakeLessHeapThanRowObjectsAndScanFaster() {
+        int count = 200_000;
+        Random random = new Random(29);
+
+        long baseline = usedHeapAfterGc();
+        List<AirQualityData> cities = randomCities(random, count);
+        long rowBytes = usedHeapAfterGc() - baseline;
+        CityColumns columns = CityColumns.build(cities);
+
+        CityQuery query = new CityQuery();
+        query.setCountry("france");
+        query.setMinAqi(50);
+        query.setMaxAqi(150);
+        query.setMaxPm25(40.0);
+
+        // Warm up both scans, then time one full pass each (no limit short-circuits either)
+        long[] sink = new long[1];
+        for (int round = 0; round < 5; round++) {
+            sink[0] += scanRows(cities, query) + columns.scan(query, null, count).length;
+        }
+        long start = System.nanoTime();
+        int rowMatches = scanRows(cities, query);
+        long rowNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        int columnMatches = columns.scan(query, null, count).length;
+        long columnNanos = System.nanoTime() - start;
+
+        // Measured without the rows, so strings shared with them count for the columns too
+        cities = null;
+        long columnBytes = usedHeapAfterGc() - baseline;
+
+        logger.info("{} cities: row objects {} bytes/row, columns {} bytes/row; filter scan {} us over rows, "
+                + "{} us over columns (checksum {})", count, rowBytes / count, columnBytes / count,
+            rowNanos / 1000, columnNanos / 1000, sink[0] + columns.size());
+        assertEquals(rowMatches, columnMatches);
+        assertTrue(columnBytes < rowBytes, "columns " + columnBytes + " bytes, rows " + rowBytes + " bytes");
+    }
+
+    // The same filter as CityColumns.scan, over boxed row objects
+    private static int scanRows(List<AirQualityData> cities, CityQuery query) {
+        String countryKey = LookupKeys.normalize(query.getCountry());
+        int matches = 0;
+        for (AirQualityData city : cities) {
+            if (countryKey.equals(LookupKeys.normalize(city.getCountry()))
+                    && city.getAqi() != null && city.getAqi() >= query.getMinAqi() && city.getAqi() <= query.getMaxAqi()
+                    && city.getPm25() != null && city.getPm25() <= query.getMaxPm25()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
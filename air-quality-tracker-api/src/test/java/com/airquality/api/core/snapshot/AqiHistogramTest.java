@@ -0,0 +1,114 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.AqiDistribution;
+import com.airquality.api.core.model.CityPercentile;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AqiHistogramTest {
+
+    private static List<AirQualityData> randomCities(Random random, int count) {
+        List<AirQualityData> cities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int roll = random.nextInt(20);
+            // Unrated cities, values above the 500 cap and plenty of ties
+            Integer aqi = roll == 0 ? null : roll == 1 ? 500 + random.nextInt(300) : random.nextInt(200);
+            cities.add(city(i, aqi));
+        }
+        return cities;
+    }
+
+    private static AirQualityData city(long id, Integer aqi) {
+        return AirQualityData.builder().id(id).city("City " + id).country("Testland").aqi(aqi).build();
+    }
+
+    // AQI as counted: capped at 500
+    private static List<Integer> cappedValues(List<AirQualityData> cities) {
+        return cities.stream()
+            .filter(city -> city.getAqi() != null)
+            .map(city -> Math.min(city.getAqi(), AqiHistogram.MAX_AQI))
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void percentileRanksMatchCountingEveryCity() {
+        List<AirQualityData> cities = randomCities(new Random(37), 5_000);
+        AqiHistogram histogram = AqiHistogram.build(CityColumns.build(cities));
+        List<Integer> values = cappedValues(cities);
+
+        for (AirQualityData city : cities) {
+            if (city.getAqi() == null) {
+                continue;
+            }
+            int value = Math.min(city.getAqi(), AqiHistogram.MAX_AQI);
+            long cleaner = values.stream().filter(v -> v < value).count();
+            long morePolluted = values.stream().filter(v -> v > value).count();
+            double tied = values.size() - cleaner - morePolluted;
+
+            CityPercentile percentile = histogram.percentile(city);
+            assertEquals(cleaner, percentile.getCleanerCities());
+            assertEquals(morePolluted, percentile.getMorePollutedCities());
+            assertEquals(values.size(), percentile.getRatedCities());
+            assertEquals(Math.round((cleaner + tied / 2) / values.size() * 100 * 10) / 10.0,
+                percentile.getPercentileRank(), 1e-9);
+        }
+    }
+
+    @Test
+    void distributionMatchesSortingEveryCity() {
+        List<AirQualityData> cities = randomCities(new Random(41), 5_000);
+        AqiHistogram histogram = AqiHistogram.build(CityColumns.build(cities));
+        List<Integer> values = cappedValues(cities);
+
+        for (int width : new int[] {1, 7, 25, 50, 500}) {
+            AqiDistribution distribution = histogram.distribution(width);
+            assertEquals(values.size(), distribution.getRatedCities());
+            assertEquals(cities.stream().filter(c -> c.getAqi() != null).mapToInt(AirQualityData::getAqi).min().getAsInt(),
+                distribution.getMinAqi());
+            assertEquals(cities.stream().filter(c -> c.getAqi() != null).mapToInt(AirQualityData::getAqi).max().getAsInt(),
+                distribution.getMaxAqi());
+
+            int total = 0;
+            for (AqiDistribution.Bucket bucket : distribution.getBuckets()) {
+                long expected = values.stream().filter(v -> v >= bucket.getMinAqi() && v <= bucket.getMaxAqi()).count();
+                assertEquals(expected, bucket.getCount(), "bucket " + bucket.getMinAqi() + "-" + bucket.getMaxAqi());
+                total += bucket.getCount();
+            }
+            assertEquals(values.size(), total, "width " + width);
+
+            // Nearest rank on the sorted values
+            for (Map.Entry<String, Integer> quantile : distribution.getQuantiles().entrySet()) {
+                int q = Integer.parseInt(quantile.getKey().substring(1));
+                int rank = Math.max(1, (int) Math.ceil(q / 100.0 * values.size()));
+                assertEquals(values.get(rank - 1), quantile.getValue(), quantile.getKey());
+            }
+        }
+    }
+
+    @Test
+    void withoutRatedCitiesThereIsNothingToRank() {
+        AqiHistogram histogram = AqiHistogram.build(CityColumns.build(List.of(city(1, null), city(2, null))));
+
+        AqiDistribution distribution = histogram.distribution(50);
+        assertEquals(0, histogram.getRatedCities());
+        assertNull(distribution.getMinAqi());
+        assertTrue(distribution.getBuckets().isEmpty());
+        assertTrue(distribution.getQuantiles().isEmpty());
+
+        // A lone city is in the middle of its own ranking
+        AqiHistogram single = AqiHistogram.build(CityColumns.build(List.of(city(1, 42))));
+        assertEquals(50.0, single.percentile(city(1, 42)).getPercentileRank());
+        assertEquals(42, single.distribution(10).getQuantiles().get("p99"));
+    }
+}
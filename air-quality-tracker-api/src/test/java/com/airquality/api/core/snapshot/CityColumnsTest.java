@@ -0,0 +1,168 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.CityCursor;
+import com.airquality.api.core.model.CityQuery;
+import com.airquality.api.shared.util.LookupKeys;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CityColumnsTest {
+
+    // Accents, case variants and names that fold to the same key
+    private static final String[] CITIES = {
+        "Óbidos", "obidos", "Oslo", "Zürich", "Zurich", "zagreb", "São Paulo", "Sao Paulo", "Ålesund",
+        "Aachen", "'s-Hertogenbosch", "L'Aquila", "Saint-Étienne", "St. Gallen", "Łódź", "Lodz", "Ærø"
+    };
+    private static final String[] COUNTRIES = {"Portugal", "Norway", "Switzerland", "Brazil", "Poland", "Österreich"};
+
+    // The repositories' page order: normalized city in code point order, then id
+    private static final Comparator<AirQualityData> PAGE_ORDER = Comparator
+        .comparing((AirQualityData data) -> LookupKeys.normalize(data.getCity()), LookupKeys.KEY_ORDER)
+        .thenComparing(AirQualityData::getId);
+
+    private static List<AirQualityData> randomCities(Random random, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, random);
+
+        List<AirQualityData> cities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cities.add(AirQualityData.builder()
+                .id(ids.get(i))
+                .city(CITIES[random.nextInt(CITIES.length)] + (random.nextInt(4) == 0 ? " " + i : ""))
+                .country(COUNTRIES[random.nextInt(COUNTRIES.length)])
+                .aqi(random.nextInt(10) == 0 ? null : random.nextInt(300))
+                .pm25(random.nextInt(10) == 0 ? null : random.nextDouble() * 100)
+                .no2(random.nextInt(10) == 0 ? null : random.nextDouble() * 60)
+                .latitude(random.nextDouble() * 180 - 90)
+                .longitude(random.nextDouble() * 360 - 180)
+                .lastUpdated(LocalDateTime.of(2024, 5, 1, 12, 0).plusMinutes(i))
+                .build());
+        }
+        return cities;
+    }
+
+    // What the repositories' findPage returns for the whole listing: filter the rows, sort by page order
+    private static List<AirQualityData> filterList(List<AirQualityData> cities, CityQuery query) {
+        String countryKey = LookupKeys.normalize(query.getCountry());
+        Predicate<AirQualityData> matches = data ->
+            (countryKey == null || countryKey.equals(LookupKeys.normalize(data.getCountry())))
+                && (query.getMinAqi() == null || (data.getAqi() != null && data.getAqi() >= query.getMinAqi()))
+                && (query.getMaxAqi() == null || (data.getAqi() != null && data.getAqi() <= query.getMaxAqi()))
+                && (query.getMaxPm25() == null || (data.getPm25() != null && data.getPm25() <= query.getMaxPm25()))
+                && (query.getMaxNo2() == null || (data.getNo2() != null && data.getNo2() <= query.getMaxNo2()));
+        return cities.stream().filter(matches).sorted(PAGE_ORDER).collect(Collectors.toList());
+    }
+
+    private static List<AirQualityData> pageThrough(CityColumns columns, CityQuery query, CityCursor start, int limit) {
+        List<AirQualityData> result = new ArrayList<>();
+        CityCursor cursor = start;
+        int[] page;
+        do {
+            page = columns.scan(query, cursor, limit);
+            List<AirQualityData> rows = columns.rows(page);
+            result.addAll(rows);
+            if (!rows.isEmpty()) {
+                AirQualityData last = rows.get(rows.size() - 1);
+                cursor = new CityCursor(last.getCity(), last.getId());
+            }
+        } while (page.length == limit);
+        return result;
+    }
+
+    private static CityQuery randomQuery(Random random) {
+        CityQuery query = new CityQuery();
+        if (random.nextBoolean()) {
+            // Any spelling of the country selects it
+            String country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+            query.setCountry(random.nextBoolean() ? country.toUpperCase() : LookupKeys.normalize(country));
+        }
+        if (random.nextBoolean()) {
+            query.setMinAqi(random.nextInt(150));
+        }
+        if (random.nextBoolean()) {
+            query.setMaxAqi(150 + random.nextInt(150));
+        }
+        if (random.nextBoolean()) {
+            query.setMaxPm25(random.nextDouble() * 100);
+        }
+        if (random.nextBoolean()) {
+            query.setMaxNo2(random.nextDouble() * 60);
+        }
+        return query;
+    }
+
+    @Test
+    void pagingThroughColumnsMatchesFilteringTheList() {
+        Random random = new Random(42);
+        List<AirQualityData> cities = randomCities(random, 3000);
+        CityColumns columns = CityColumns.build(cities);
+
+        for (int run = 0; run < 200; run++) {
+            CityQuery query = randomQuery(random);
+            int limit = 1 + random.nextInt(50);
+            assertEquals(filterList(cities, query), pageThrough(columns, query, null, limit),
+                () -> "country=" + query.getCountry() + " minAqi=" + query.getMinAqi() + " limit=" + limit);
+        }
+    }
+
+    @Test
+    void cursorFromAnyRowContinuesWithTheNextRowInPageOrder() {
+        Random random = new Random(7);
+        List<AirQualityData> cities = randomCities(random, 1000);
+        CityColumns columns = CityColumns.build(cities);
+        List<AirQualityData> ordered = filterList(cities, new CityQuery());
+
+        for (int run = 0; run < 100; run++) {
+            int position = random.nextInt(ordered.size());
+            AirQualityData row = ordered.get(position);
+            // The cursor may carry any spelling of the city, e.g. from a database page: only its key counts
+            String spelling = random.nextBoolean() ? row.getCity().toUpperCase() : LookupKeys.normalize(row.getCity());
+            int[] next = columns.scan(new CityQuery(), new CityCursor(spelling, row.getId()), 1);
+
+            if (position + 1 < ordered.size()) {
+                assertEquals(ordered.get(position + 1), columns.row(next[0]));
+            } else {
+                assertEquals(0, next.length);
+            }
+        }
+    }
+
+    @Test
+    void accentedNamesSortByTheirFoldedKey() {
+        List<AirQualityData> cities = new ArrayList<>();
+        long id = 1;
+        for (String city : new String[] {"Zürich", "zagreb", "Óbidos", "Oslo", "Zurich", "Odense"}) {
+            cities.add(AirQualityData.builder().id(id++).city(city).country("Testland").build());
+        }
+        CityColumns columns = CityColumns.build(cities);
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            order.add(columns.city(i));
+        }
+        assertEquals(List.of("Óbidos", "Odense", "Oslo", "zagreb", "Zürich", "Zurich"), order);
+
+        // Rows without an AQI never match an AQI bound
+        CityQuery query = new CityQuery();
+        query.setMinAqi(0);
+        assertEquals(0, columns.scan(query, null, 10).length);
+        assertTrue(columns.scan(new CityQuery(), null, 10).length == 6);
+        assertNull(columns.lastUpdated(0));
+    }
+}
@@ -0,0 +1,131 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.BoundingBox;
+import com.airquality.api.core.model.MapCluster;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterIndexTest {
+
+    private static final BoundingBox WORLD = new BoundingBox(-180, -90, 180, 90);
+
+    // Cities scattered around a few hundred centres, so every zoom has both clusters and single cities
+    private static List<AirQualityData> clusteredCities(Random random, int count) {
+        double[][] centres = new double[300][2];
+        for (double[] centre : centres) {
+            centre[0] = random.nextDouble() * 160 - 80;
+            centre[1] = random.nextDouble() * 360 - 180;
+        }
+        List<AirQualityData> cities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double[] centre = centres[random.nextInt(centres.length)];
+            cities.add(city(i,
+                Math.max(-90, Math.min(90, centre[0] + random.nextGaussian() * 3)),
+                Math.max(-180, Math.min(180, centre[1] + random.nextGaussian() * 3)),
+                random.nextInt(6) == 0 ? null : random.nextInt(300)));
+        }
+        return cities;
+    }
+
+    private static AirQualityData city(long id, Double latitude, Double longitude, Integer aqi) {
+        return AirQualityData.builder()
+            .id(id)
+            .city("City " + id)
+            .country("Testland")
+            .aqi(aqi)
+            .latitude(latitude)
+            .longitude(longitude)
+            .build();
+    }
+
+    private static int totalCount(List<MapCluster> markers) {
+        return markers.stream().mapToInt(MapCluster::getCount).sum();
+    }
+
+    @Test
+    void everyZoomAccountsForEveryCityOnce() {
+        Random random = new Random(3);
+        List<AirQualityData> cities = clusteredCities(random, 20_000);
+        // Rows the map cannot place are left out
+        cities.add(city(-1, null, null, 50));
+        cities.add(city(-2, 95.0, 10.0, 50));
+        ClusterIndex index = ClusterIndex.build(CityColumns.build(cities));
+
+        int placed = cities.size() - 2;
+        int worstAqi = cities.stream().filter(c -> c.getAqi() != null).mapToInt(AirQualityData::getAqi).max().getAsInt();
+        assertEquals(placed, index.size());
+
+        int previousMarkers = 0;
+        for (int zoom = 0; zoom <= ClusterIndex.MAX_ZOOM + 1; zoom++) {
+            List<MapCluster> markers = index.clusters(WORLD, zoom);
+            assertEquals(placed, totalCount(markers), "zoom " + zoom);
+            assertEquals(worstAqi, markers.stream().filter(m -> m.getMaxAqi() != null)
+                .mapToInt(MapCluster::getMaxAqi).max().getAsInt(), "zoom " + zoom);
+            // Zooming in only ever splits markers
+            assertTrue(markers.size() >= previousMarkers, "zoom " + zoom);
+            previousMarkers = markers.size();
+
+            for (MapCluster marker : markers) {
+                if (marker.getCount() > 1) {
+                    assertTrue(marker.getExpansionZoom() > zoom, "expansion zoom must be deeper than " + zoom);
+                }
+            }
+        }
+    }
+
+    @Test
+    void deepestZoomShowsEachCityOnItsOwn() {
+        List<AirQualityData> cities = clusteredCities(new Random(5), 2_000);
+        ClusterIndex index = ClusterIndex.build(CityColumns.build(cities));
+
+        List<MapCluster> markers = index.clusters(WORLD, ClusterIndex.MAX_ZOOM + 1);
+        assertTrue(markers.stream().allMatch(m -> m.getCount() == 1 && m.getCity() != null));
+        assertEquals(cities.stream().map(AirQualityData::getCity).collect(Collectors.toSet()),
+            markers.stream().map(MapCluster::getCity).collect(Collectors.toSet()));
+        // Zooms past the deepest level behave like it
+        assertEquals(markers.size(), index.clusters(WORLD, 30).size());
+    }
+
+    @Test
+    void boxAcrossTheAntimeridianFindsBothSidesAtEveryZoom() {
+        Random random = new Random(11);
+        List<AirQualityData> cities = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            double lat = random.nextDouble() * 80 - 40;
+            double lon = random.nextBoolean() ? 172 + random.nextDouble() * 8 : -180 + random.nextDouble() * 8;
+            cities.add(city(i, lat, lon, random.nextInt(300)));
+        }
+        ClusterIndex index = ClusterIndex.build(CityColumns.build(cities));
+
+        BoundingBox fiji = new BoundingBox(170, -60, -170, 60);
+        BoundingBox greenwich = new BoundingBox(-10, -60, 10, 60);
+        for (int zoom = 0; zoom <= ClusterIndex.MAX_ZOOM + 1; zoom++) {
+            List<MapCluster> markers = index.clusters(fiji, zoom);
+            assertEquals(cities.size(), totalCount(markers), "zoom " + zoom);
+            // Clusters never span the antimeridian, so neither side is pulled towards longitude 0
+            assertTrue(markers.stream().allMatch(m -> Math.abs(m.getLongitude()) >= 170), "zoom " + zoom);
+            Set<Boolean> sides = markers.stream().map(m -> m.getLongitude() > 0).collect(Collectors.toSet());
+            assertEquals(2, sides.size(), "zoom " + zoom);
+
+            assertTrue(index.clusters(greenwich, zoom).isEmpty(), "zoom " + zoom);
+        }
+
+        // At the deepest zoom a box selects exactly the cities inside it
+        BoundingBox part = new BoundingBox(178, -10, -178, 10);
+        List<MapCluster> inPart = index.clusters(part, ClusterIndex.MAX_ZOOM + 1);
+        assertEquals(cities.stream().filter(c -> part.contains(c.getLatitude(), c.getLongitude()))
+            .map(AirQualityData::getCity).collect(Collectors.toSet()),
+            inPart.stream().map(MapCluster::getCity).collect(Collectors.toSet()));
+        assertNotNull(inPart.get(0).getAqi());
+    }
+}
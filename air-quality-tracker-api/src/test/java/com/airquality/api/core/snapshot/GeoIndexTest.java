@@ -0,0 +1,143 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.BoundingBox;
+import com.airquality.api.core.model.NearbyCity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoIndexTest {
+
+    // NearbyCity reports distances rounded to the metre
+    private static final double KM_TOLERANCE = 1e-3;
+
+    private static List<AirQualityData> randomCities(Random random, int count) {
+        List<AirQualityData> cities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double lat;
+            double lon;
+            switch (random.nextInt(4)) {
+                case 0:
+                    // Near the poles, where longitude lines converge
+                    lat = (random.nextBoolean() ? 1 : -1) * (80 + random.nextDouble() * 10);
+                    lon = random.nextDouble() * 360 - 180;
+                    break;
+                case 1:
+                    // Either side of the antimeridian
+                    lat = random.nextDouble() * 120 - 60;
+                    lon = random.nextBoolean() ? 175 + random.nextDouble() * 5 : -180 + random.nextDouble() * 5;
+                    break;
+                default:
+                    lat = random.nextDouble() * 180 - 90;
+                    lon = random.nextDouble() * 360 - 180;
+            }
+            cities.add(city(i, lat, lon));
+        }
+        return cities;
+    }
+
+    private static AirQualityData city(long id, Double latitude, Double longitude) {
+        return AirQualityData.builder()
+            .id(id)
+            .city("City " + id)
+            .country("Testland")
+            .latitude(latitude)
+            .longitude(longitude)
+            .build();
+    }
+
+    // Great-circle distance by the haversine formula, independent of the index's chord arithmetic
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * GeoIndex.EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static List<Long> ids(List<AirQualityData> cities) {
+        return cities.stream().map(AirQualityData::getId).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void nearestMatchesBruteForceDistances() {
+        Random random = new Random(17);
+        List<AirQualityData> cities = randomCities(random, 5_000);
+        GeoIndex index = GeoIndex.build(CityColumns.build(cities));
+
+        for (int run = 0; run < 300; run++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            int k = 1 + random.nextInt(25);
+
+            List<Double> expected = cities.stream()
+                .map(c -> haversineKm(lat, lon, c.getLatitude(), c.getLongitude()))
+                .sorted()
+                .limit(k)
+                .collect(Collectors.toList());
+            List<NearbyCity> nearest = index.nearest(lat, lon, k);
+
+            assertEquals(k, nearest.size());
+            for (int i = 0; i < k; i++) {
+                NearbyCity found = nearest.get(i);
+                // Ties may come back in either order, so compare distances rather than cities
+                assertEquals(expected.get(i), found.getDistanceKm(), KM_TOLERANCE, "query " + lat + "," + lon + " #" + i);
+                assertEquals(haversineKm(lat, lon, found.getCity().getLatitude(), found.getCity().getLongitude()),
+                    found.getDistanceKm(), KM_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    void withinMatchesFilteringEveryCity() {
+        Random random = new Random(23);
+        List<AirQualityData> cities = randomCities(random, 5_000);
+        GeoIndex index = GeoIndex.build(CityColumns.build(cities));
+
+        for (int run = 0; run < 300; run++) {
+            double minLat = random.nextDouble() * 180 - 90;
+            double maxLat = Math.min(90, minLat + random.nextDouble() * 60);
+            double minLon = random.nextDouble() * 360 - 180;
+            // About a third of the boxes wrap past 180 and cross the antimeridian
+            double maxLon = minLon + random.nextDouble() * 90;
+            if (maxLon > 180) {
+                maxLon -= 360;
+            }
+            BoundingBox box = new BoundingBox(minLon, minLat, maxLon, maxLat);
+
+            List<AirQualityData> expected = cities.stream()
+                .filter(c -> box.contains(c.getLatitude(), c.getLongitude()))
+                .collect(Collectors.toList());
+            assertEquals(ids(expected), ids(index.within(box)), box::toString);
+        }
+
+        // Edges are inclusive, including the poles and the antimeridian itself
+        List<AirQualityData> edges = List.of(city(1L, 90.0, 0.0), city(2L, -90.0, 180.0), city(3L, 0.0, -180.0));
+        GeoIndex edgeIndex = GeoIndex.build(CityColumns.build(edges));
+        assertEquals(List.of(1L, 2L, 3L), ids(edgeIndex.within(new BoundingBox(-180, -90, 180, 90))));
+        assertEquals(List.of(2L, 3L), ids(edgeIndex.within(new BoundingBox(180, -90, -180, 0))));
+    }
+
+    @Test
+    void citiesWithoutValidCoordinatesAreLeftOut() {
+        List<AirQualityData> cities = List.of(
+            city(1L, 52.52, 13.405),
+            city(2L, null, 13.0),
+            city(3L, 91.0, 0.0),
+            city(4L, 0.0, 181.0));
+        GeoIndex index = GeoIndex.build(CityColumns.build(cities));
+
+        assertEquals(1, index.size());
+        assertEquals(1, index.nearest(0, 0, 10).size());
+        assertTrue(GeoIndex.empty().nearest(0, 0, 5).isEmpty());
+        assertTrue(index.nearest(0, 0, 0).isEmpty());
+        assertEquals(List.of(1L), ids(index.within(new BoundingBox(-180, -90, 180, 90))));
+    }
+}
@@ -0,0 +1,149 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.RegionStats;
+import com.airquality.api.shared.util.LookupKeys;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RegionRollupTest {
+
+    // Several per continent, plus one that falls under "Other"
+    private static final String[] COUNTRIES = {
+        "Germany", "France", "Österreich", "Brazil", "Chile", "India", "Japan", "Kenya", "Egypt", "Canada", "Atlantis"
+    };
+
+    private final Random random = new Random(31);
+    private final Map<String, AirQualityData> current = new LinkedHashMap<>();
+    private int nextCity;
+
+    private AirQualityData randomCity(String name, String country) {
+        int roll = random.nextInt(20);
+        // Some unrated cities, some above the 500 cap, many ties on the same AQI
+        Integer aqi = roll == 0 ? null : roll == 1 ? 500 + random.nextInt(200) : random.nextInt(60) * 5;
+        return AirQualityData.builder().city(name).country(country).aqi(aqi).build();
+    }
+
+    private static String key(AirQualityData city) {
+        return city.getCity() + "|" + city.getCountry();
+    }
+
+    private List<AirQualityData> cities() {
+        return new ArrayList<>(current.values());
+    }
+
+    private Function<String, List<AirQualityData>> countryCities() {
+        return country -> current.values().stream()
+            .filter(city -> LookupKeys.normalize(city.getCountry()).equals(LookupKeys.normalize(country)))
+            .collect(Collectors.toList());
+    }
+
+    // Every figure of every region, so two rollups compare equal only if they answer alike
+    private static String describe(List<RegionStats> regions) {
+        StringBuilder text = new StringBuilder();
+        for (RegionStats region : regions) {
+            describe(region, text);
+            for (RegionStats country : region.getCountries()) {
+                text.append("  ");
+                describe(country, text);
+            }
+        }
+        return text.toString();
+    }
+
+    private static void describe(RegionStats region, StringBuilder text) {
+        text.append(region.getLevel()).append(' ').append(region.getName())
+            .append(" continent=").append(region.getContinent())
+            .append(" total=").append(region.getTotalCities())
+            .append(" rated=").append(region.getRatedCities())
+            .append(" avg=").append(region.getAverageAqi())
+            .append(" median=").append(region.getMedianAqi())
+            .append(" max=").append(region.getMaxAqi())
+            .append(" categories=").append(region.getCategoryCounts())
+            .append(" worst=").append(region.getWorstCity()).append('/').append(region.getWorstCityCountry())
+            .append('\n');
+    }
+
+    @Test
+    void updateMatchesAFreshBuildAfterEveryRound() {
+        for (int i = 0; i < 400; i++) {
+            AirQualityData city = randomCity("City " + nextCity++, COUNTRIES[random.nextInt(COUNTRIES.length - 1)]);
+            current.put(key(city), city);
+        }
+        RegionRollup rollup = RegionRollup.build(cities());
+
+        for (int round = 0; round < 60; round++) {
+            List<AirQualityData> removed = new ArrayList<>();
+            List<AirQualityData> added = new ArrayList<>();
+            List<AirQualityData> existing = cities();
+
+            for (int change = random.nextInt(30); change > 0 && !existing.isEmpty(); change--) {
+                AirQualityData old = existing.remove(random.nextInt(existing.size()));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        // Left the dataset
+                        current.remove(key(old));
+                        removed.add(old);
+                        break;
+                    case 1:
+                        // AQI changed; a changed row appears in both lists
+                        AirQualityData changed = randomCity(old.getCity(), old.getCountry());
+                        current.put(key(changed), changed);
+                        removed.add(old);
+                        added.add(changed);
+                        break;
+                    default:
+                        AirQualityData joined = randomCity("City " + nextCity++, COUNTRIES[random.nextInt(COUNTRIES.length)]);
+                        current.put(key(joined), joined);
+                        added.add(joined);
+                }
+            }
+            // Now and then the current worst city improves, so its country has to find a new one
+            if (round % 5 == 0) {
+                AirQualityData worst = current.values().stream()
+                    .filter(city -> city.getAqi() != null && !removed.contains(city))
+                    .max((a, b) -> Integer.compare(a.getAqi(), b.getAqi())).orElse(null);
+                if (worst != null) {
+                    AirQualityData improved = AirQualityData.builder()
+                        .city(worst.getCity()).country(worst.getCountry()).aqi(0).build();
+                    current.put(key(improved), improved);
+                    removed.add(worst);
+                    added.add(improved);
+                }
+            }
+
+            String before = describe(rollup.getRegions());
+            RegionRollup updated = rollup.update(removed, added, countryCities());
+
+            assertEquals(describe(RegionRollup.build(cities()).getRegions()), describe(updated.getRegions()),
+                "round " + round);
+            // The previous rollup is still served to readers of the old snapshot and must not change
+            assertEquals(before, describe(rollup.getRegions()), "round " + round);
+            rollup = updated;
+        }
+    }
+
+    @Test
+    void countryDisappearsWithItsLastCity() {
+        AirQualityData santiago = AirQualityData.builder().city("Santiago").country("Chile").aqi(90).build();
+        AirQualityData lima = AirQualityData.builder().city("Lima").country("Peru").aqi(70).build();
+        RegionRollup rollup = RegionRollup.build(List.of(santiago, lima));
+
+        RegionRollup updated = rollup.update(List.of(santiago), List.of(), country -> List.of());
+
+        assertNull(updated.findCountry("chile"));
+        assertEquals("Lima", updated.findCountry("PERU").getWorstCity());
+        assertEquals(describe(RegionRollup.build(List.of(lima)).getRegions()), describe(updated.getRegions()));
+        assertEquals("Santiago", rollup.findCountry("Chile").getWorstCity());
+    }
+}
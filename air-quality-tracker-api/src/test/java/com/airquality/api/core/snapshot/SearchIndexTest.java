@@ -0,0 +1,179 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.SearchSuggestion;
+import com.airquality.api.shared.util.LookupKeys;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+
+    private static final String[] WORDS = {
+        "San", "Santa", "São", "Sao", "New", "York", "Berlin", "Bern", "Óbidos", "Port", "Porto", "Zürich",
+        "Los", "Angeles", "Ciudad", "de", "México", "Saint", "Étienne", "Ho", "Chi", "Minh", "Kraków", "Sankt"
+    };
+    private static final String[] COUNTRIES = {"Brazil", "Portugal", "Schweiz", "São Tomé", "Sanmarino", "Deutschland"};
+
+    private static List<AirQualityData> randomCities(Random random, int count) {
+        List<AirQualityData> cities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int words = 1 + random.nextInt(3);
+            StringBuilder name = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                name.append(w > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            cities.add(AirQualityData.builder()
+                .id((long) i)
+                .city(name.toString())
+                .country(COUNTRIES[random.nextInt(COUNTRIES.length)])
+                .aqi(random.nextInt(5) == 0 ? null : random.nextInt(300))
+                .build());
+        }
+        return cities;
+    }
+
+    /**
+     * Ranks every name by the documented rules, one at a time: exact name, name prefix, later-word
+     * prefix; then shorter folded name, then alphabetical
+     */
+    private static List<String> bruteForcePrefixMatches(List<AirQualityData> cities, String query, int limit) {
+        String q = LookupKeys.normalize(query);
+        List<Candidate> candidates = new ArrayList<>();
+        Map<String, String> countries = new LinkedHashMap<>();
+        for (AirQualityData city : cities) {
+            candidates.add(new Candidate("city", city.getCity(), city.getCountry(), q));
+            countries.putIfAbsent(LookupKeys.normalize(city.getCountry()), city.getCountry());
+        }
+        for (String country : countries.values()) {
+            candidates.add(new Candidate("country", country, null, q));
+        }
+        return candidates.stream()
+            .filter(candidate -> candidate.match >= 0)
+            .sorted(Comparator.comparingInt((Candidate candidate) -> candidate.match)
+                .thenComparingInt(candidate -> candidate.folded.length())
+                .thenComparing(candidate -> candidate.folded)
+                .thenComparing(candidate -> candidate.name))
+            .limit(Math.min(limit, SearchIndex.MAX_RESULTS))
+            .map(candidate -> describe(candidate.type, candidate.name, candidate.country))
+            .collect(Collectors.toList());
+    }
+
+    private static String describe(String type, String name, String country) {
+        return type + ":" + name + (country != null ? "/" + country : "");
+    }
+
+    private static List<String> nonFuzzy(List<SearchSuggestion> suggestions) {
+        return suggestions.stream()
+            .filter(suggestion -> !"fuzzy".equals(suggestion.getMatch()))
+            .map(suggestion -> describe(suggestion.getType(), suggestion.getName(), suggestion.getCountry()))
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void prefixResultsMatchRankingEveryName() {
+        Random random = new Random(29);
+        List<AirQualityData> cities = randomCities(random, 3_000);
+        SearchIndex index = SearchIndex.build(cities);
+
+        for (int run = 0; run < 500; run++) {
+            // A typed prefix of some name or of one of its later words, in any case or accent spelling
+            String name = cities.get(random.nextInt(cities.size())).getCity();
+            String[] words = name.split(" ");
+            String source = random.nextInt(3) == 0 ? words[random.nextInt(words.length)] : name;
+            String typed = source.substring(0, 1 + random.nextInt(source.length()));
+            String query = random.nextBoolean() ? typed.toUpperCase() : typed;
+            int limit = 1 + random.nextInt(60);
+
+            assertEquals(bruteForcePrefixMatches(cities, query, limit), nonFuzzy(index.search(query, limit)),
+                () -> "query '" + query + "' limit " + limit);
+        }
+    }
+
+    @Test
+    void foldsAccentsCaseAndMatchesLaterWords() {
+        List<AirQualityData> cities = List.of(
+            city("São Paulo", "Brazil", 80),
+            city("New York", "United States", 60),
+            city("Newcastle", "United Kingdom", 30),
+            city("Berlin", "Germany", 40));
+        SearchIndex index = SearchIndex.build(cities);
+
+        assertEquals("São Paulo", index.search("SAO", 5).get(0).getName());
+        SearchSuggestion york = index.search("york", 5).get(0);
+        assertEquals("New York", york.getName());
+        assertEquals("prefix", york.getMatch());
+        SearchSuggestion germany = index.search("germany", 5).get(0);
+        assertEquals("country", germany.getType());
+        assertEquals("exact", germany.getMatch());
+
+        // Shorter names first among equal matches
+        assertEquals(List.of("New York", "Newcastle"),
+            index.search("new", 5).stream().map(SearchSuggestion::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    void fuzzyMatchesFillInAfterPrefixes() {
+        SearchIndex index = SearchIndex.build(List.of(
+            city("Berlin", "Germany", 40),
+            city("Bern", "Switzerland", 20),
+            city("Lisbon", "Portugal", 30)));
+
+        List<SearchSuggestion> typo = index.search("berln", 5);
+        assertEquals("Berlin", typo.get(0).getName());
+        assertEquals("fuzzy", typo.get(0).getMatch());
+
+        List<SearchSuggestion> bern = index.search("bern", 5);
+        assertEquals("Bern", bern.get(0).getName());
+        assertEquals("exact", bern.get(0).getMatch());
+        assertTrue(bern.stream().skip(1).allMatch(suggestion -> "fuzzy".equals(suggestion.getMatch())));
+
+        assertTrue(index.search("", 5).isEmpty());
+        assertTrue(index.search("berlin", 0).isEmpty());
+        assertTrue(SearchIndex.empty().search("berlin", 5).isEmpty());
+    }
+
+    private static AirQualityData city(String city, String country, Integer aqi) {
+        return AirQualityData.builder().city(city).country(country).aqi(aqi).build();
+    }
+
+    private static final class Candidate {
+        final String type;
+        final String name;
+        final String country;
+        final String folded;
+        final int match;   // 0 exact, 1 name prefix, 2 later-word prefix, -1 no match
+
+        Candidate(String type, String name, String country, String query) {
+            this.type = type;
+            this.name = name;
+            this.country = country;
+            this.folded = LookupKeys.normalize(name);
+            this.match = match(folded, query);
+        }
+
+        private static int match(String folded, String query) {
+            if (folded.equals(query)) {
+                return 0;
+            }
+            if (folded.startsWith(query)) {
+                return 1;
+            }
+            for (int i = folded.indexOf(' '); i >= 0; i = folded.indexOf(' ', i + 1)) {
+                if (folded.startsWith(query, i + 1)) {
+                    return 2;
+                }
+            }
+            return -1;
+        }
+    }
+}
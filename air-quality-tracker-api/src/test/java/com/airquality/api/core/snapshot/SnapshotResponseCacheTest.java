@@ -0,0 +1,198 @@
+package com.airquality.api.core.snapshot;
+
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.shared.config.BinaryFormatConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SnapshotResponseCacheTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotResponseCacheTest.class);
+
+    private static final String[] COUNTRIES = {"Germany", "France", "Chile", "India", "Japan", "Kenya"};
+    private static final LocalDateTime REFRESHED = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    // Spring Boot's settings for the JSON mapper (java.time as ISO strings)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final AirQualitySnapshotHolder snapshotHolder = mock(AirQualitySnapshotHolder.class);
+    private final SnapshotResponseCache responseCache = new SnapshotResponseCache(snapshotHolder, objectMapper);
+
+    private static AirQualitySnapshot snapshot(long generation, int count) {
+        Random random = new Random(generation);
+        List<AirQualityData> cities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cities.add(AirQualityData.builder()
+                .id((long) i + 1)
+                .city("City " + i)
+                .country(COUNTRIES[random.nextInt(COUNTRIES.length)])
+                .aqi(random.nextInt(300))
+                .pm25(random.nextDouble() * 100)
+                .pm10(random.nextDouble() * 150)
+                .no2(random.nextDouble() * 60)
+                .latitude(random.nextDouble() * 180 - 90)
+                .longitude(random.nextDouble() * 360 - 180)
+                .lastUpdated(REFRESHED.plusSeconds(i))
+                .build());
+        }
+        GlobalAirQualityStats stats = new GlobalAirQualityStats();
+        stats.setTotalCities(count);
+        return AirQualitySnapshot.build(cities, stats, generation, REFRESHED.plusHours(generation),
+            AirQualitySnapshot.empty());
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void bodiesMatchPerRequestSerializationAndAreRebuiltOncePerGeneration() throws IOException {
+        AirQualitySnapshot first = snapshot(1, 500);
+        AirQualitySnapshot second = snapshot(2, 600);
+        when(snapshotHolder.current()).thenReturn(first, first, second);
+
+        EncodedBody cities = responseCache.allCities();
+        assertArrayEquals(objectMapper.writeValueAsBytes(first.getCities()), cities.getIdentity());
+        assertArrayEquals(cities.getIdentity(), gunzip(cities.getGzip()));
+        assertSame(cities, responseCache.allCities());
+
+        EncodedBody rebuilt = responseCache.allCities();
+        assertNotSame(cities, rebuilt);
+        assertArrayEquals(objectMapper.writeValueAsBytes(second.getCities()), rebuilt.getIdentity());
+    }
+
+    @Test
+    void cachedBodiesServeMoreRequestsPerSecondThanEncodingPerRequest() throws IOException {
+        int count = 5000;
+        int requests = 50;
+        AirQualitySnapshot snapshot = snapshot(1, count);
+        when(snapshotHolder.current()).thenReturn(snapshot);
+        List<AirQualityData> cities = snapshot.getCities();   // built once, so only encoding is timed
+        long[] sink = new long[1];
+
+        // Warm up both paths
+        for (int i = 0; i < 10; i++) {
+            sink[0] += encodePerRequest(cities) + writeCached();
+        }
+
+        // Before: what every request cost when the converter serialized and the container gzipped
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            sink[0] += encodePerRequest(cities);
+        }
+        long perRequestNanos = System.nanoTime() - start;
+
+        // After: look up the body for the current generation and copy its bytes
+        start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            sink[0] += writeCached();
+        }
+        long cachedNanos = System.nanoTime() - start;
+
+        long perRequestThroughput = requests * 1_000_000_000L / perRequestNanos;
+        long cachedThroughput = requests * 1_000_000_000L / cachedNanos;
+        logger.info("GET /api/cities with {} cities (gzip): {} requests/s encoding per request, {} requests/s "
+            + "from cached bytes (checksum {})", count, perRequestThroughput, cachedThroughput, sink[0]);
+        assertTrue(cachedThroughput > perRequestThroughput * 10,
+            "cached " + cachedThroughput + "/s, per request " + perRequestThroughput + "/s");
+    }
+
+    @Test
+    void binaryFormatsAreSmallerThanJsonWithAndWithoutGzip() throws IOException {
+        int count = 10_000;
+        AirQualitySnapshot snapshot = snapshot(1, count);
+        when(snapshotHolder.current()).thenReturn(snapshot);
+        List<AirQualityData> cities = snapshot.getCities();
+        BinaryFormatConfig binaryFormats = new BinaryFormatConfig();
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", objectMapper);
+        mappers.put("cbor", binaryFormats.cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json()).getObjectMapper());
+        mappers.put("smile", binaryFormats.smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()).getObjectMapper());
+
+        // JSON is what SnapshotResponseCache pre-encodes; CBOR and Smile go through their converters per request
+        EncodedBody cached = responseCache.allCities();
+        Map<String, long[]> sizes = new LinkedHashMap<>();
+        StringBuilder table = new StringBuilder();
+        for (Map.Entry<String, ObjectMapper> format : mappers.entrySet()) {
+            ObjectMapper mapper = format.getValue();
+            byte[] identity = mapper.writeValueAsBytes(cities);
+            for (int i = 0; i < 5; i++) {
+                mapper.writeValueAsBytes(cities);
+            }
+            long start = System.nanoTime();
+            identity = mapper.writeValueAsBytes(cities);
+            long encodeMicros = (System.nanoTime() - start) / 1000;
+            byte[] gzip = gzip(identity);
+
+            AirQualityData[] decoded = mapper.readValue(identity, AirQualityData[].class);
+            assertEquals(count, decoded.length, format.getKey());
+            assertEquals(cities.get(count - 1).getPm25(), decoded[count - 1].getPm25(), format.getKey());
+
+            sizes.put(format.getKey(), new long[] {identity.length, gzip.length});
+            table.append(String.format("%n  %-5s %9d bytes  %8d bytes gzip  %6d us encode",
+                format.getKey(), identity.length, gzip.length, encodeMicros));
+        }
+        logger.info("{} cities by format:{}", count, table);
+
+        assertEquals(cached.getIdentity().length, sizes.get("json")[0]);
+        assertEquals(cached.getGzip().length, sizes.get("json")[1]);
+        for (String binary : new String[] {"cbor", "smile"}) {
+            assertTrue(sizes.get(binary)[0] < sizes.get("json")[0], binary + " identity");
+            assertTrue(sizes.get(binary)[1] < sizes.get("json")[1], binary + " gzip");
+        }
+    }
+
+    // Same level as SnapshotResponseCache
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    // Serialize, then gzip at the default level the way server.compression does
+    private long encodePerRequest(List<AirQualityData> cities) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, cities);
+        }
+        return out.size();
+    }
+
+    private long writeCached() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(responseCache.allCities().getGzip());
+        return out.size();
+    }
+}
@@ -0,0 +1,131 @@
+package com.airquality.api.core.stream;
+
+import com.airquality.api.core.controller.EventStreamController;
+import com.airquality.api.core.model.AirQualityData;
+import com.airquality.api.core.model.GlobalAirQualityStats;
+import com.airquality.api.core.snapshot.AirQualitySnapshot;
+import com.airquality.api.core.snapshot.AirQualitySnapshotHolder;
+import com.airquality.api.core.snapshot.SnapshotPublishedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DataUpdateBroadcasterTest {
+
+    private static final LocalDateTime REFRESHED = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private final AirQualitySnapshotHolder snapshotHolder = mock(AirQualitySnapshotHolder.class);
+    private DataUpdateBroadcaster broadcaster;
+
+    // Records which thread serialized the update
+    private volatile Thread serializingThread;
+    private final ObjectMapper objectMapper = new ObjectMapper() {
+        @Override
+        public String writeValueAsString(Object value) throws JsonProcessingException {
+            serializingThread = Thread.currentThread();
+            return super.writeValueAsString(value);
+        }
+    }.registerModule(new JavaTimeModule());
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.closeAll();
+    }
+
+    private MockMvc mockMvc(int maxSubscribers) {
+        broadcaster = new DataUpdateBroadcaster(snapshotHolder, objectMapper, new SimpleMeterRegistry(),
+            maxSubscribers, 16, 1000, 2);
+        return MockMvcBuilders.standaloneSetup(new EventStreamController(broadcaster)).build();
+    }
+
+    private static AirQualitySnapshot snapshot(long generation, AirQualitySnapshot previous, AirQualityData... cities) {
+        return AirQualitySnapshot.build(Arrays.asList(cities), new GlobalAirQualityStats(), generation,
+            REFRESHED.plusHours(generation), previous);
+    }
+
+    private static AirQualityData city(String name, String country, int aqi) {
+        return AirQualityData.builder().id(1L).city(name).country(country).aqi(aqi).lastUpdated(REFRESHED).build();
+    }
+
+    // Frames are written by the writer threads, so wait for them
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        for (int attempt = 0; attempt < 250; attempt++) {
+            String content = response.getContentAsString();
+            if (content.contains(expected)) {
+                return content;
+            }
+            Thread.sleep(20);
+        }
+        return response.getContentAsString();
+    }
+
+    @Test
+    void updatesAreDiffedAndSerializedOffThePublishingThread() throws Exception {
+        AirQualitySnapshot first = snapshot(1, AirQualitySnapshot.empty(), city("Berlin", "Germany", 40));
+        AirQualitySnapshot second = snapshot(2, first, city("Berlin", "Germany", 90));
+        when(snapshotHolder.current()).thenReturn(first);
+        MockMvc mockMvc = mockMvc(10);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/events"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+            .andReturn().getResponse();
+        assertTrue(awaitContent(response, "event: connected").contains("id: 1\nevent: connected\n"));
+
+        broadcaster.onSnapshotPublished(new SnapshotPublishedEvent(first, second));
+
+        String content = awaitContent(response, "event: data-update");
+        assertTrue(content.contains("id: 2\nevent: data-update\ndata: {"), content);
+        assertTrue(content.contains("\"aqi\":90"), content);
+        assertNotEquals(Thread.currentThread(), serializingThread);
+    }
+
+    @Test
+    void subscribersBeyondTheLimitAreRejected() throws Exception {
+        when(snapshotHolder.current()).thenReturn(AirQualitySnapshot.empty());
+        MockMvc mockMvc = mockMvc(1);
+
+        mockMvc.perform(get("/api/events")).andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/events"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void failedSubscribeReleasesItsSlot() throws Exception {
+        when(snapshotHolder.current())
+            .thenThrow(new IllegalStateException("snapshot unavailable"))
+            .thenReturn(snapshot(1, AirQualitySnapshot.empty(), city("Berlin", "Germany", 40)));
+        mockMvc(1);
+
+        assertThrows(IllegalStateException.class, () -> broadcaster.subscribe());
+        assertEquals(0, broadcaster.getSubscriberCount());
+
+        // The only slot is free again
+        assertNotNull(broadcaster.subscribe());
+        assertEquals(1, broadcaster.getSubscriberCount());
+    }
+}
@@ -0,0 +1,134 @@
+package com.airquality.api.shared.cache;
+
+import com.airquality.api.shared.exception.LoadTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final int THREADS = 16;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private double count(String meter) {
+        return registry.get(meter).counter().count();
+    }
+
+    private double inFlight() {
+        return registry.get("singleflight.in.flight").gauge().value();
+    }
+
+    // Blocks until every other caller has joined the leader's flight
+    private void awaitWaiters(int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count("singleflight.shared") < waiters) {
+            assertTrue(System.nanoTime() < deadline, "callers did not join the in-flight load");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void concurrentMissesRunTheLoaderOnce() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(registry, 10_000);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object value = new Object();
+
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> singleFlight.load("berlin", () -> {
+                executions.incrementAndGet();
+                awaitQuietly(release);
+                return value;
+            })));
+        }
+        awaitWaiters(THREADS - 1);
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            assertSame(value, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, count("singleflight.loads"));
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void loaderExceptionReachesEveryWaiterAndReleasesTheKey() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(registry, 10_000);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalArgumentException failure = new IllegalArgumentException("City not found: Atlantis");
+
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> singleFlight.load("atlantis", () -> {
+                awaitQuietly(release);
+                throw failure;
+            })));
+        }
+        awaitWaiters(THREADS - 1);
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertSame(failure, thrown.getCause());
+        }
+        assertEquals(0, inFlight());
+
+        // Nothing is cached: the next miss runs the loader again
+        assertEquals("loaded", singleFlight.load("atlantis", () -> "loaded"));
+        assertEquals(2, count("singleflight.loads"));
+    }
+
+    @Test
+    void waiterTimesOutWhileTheLoadIsStuck() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(registry, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> singleFlight.load("lima", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return "slow";
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        assertThrows(LoadTimeoutException.class, () -> singleFlight.load("lima", () -> "duplicate"));
+        assertEquals(1, count("singleflight.timeouts"));
+
+        // The leader is unaffected by the waiter giving up
+        release.countDown();
+        assertEquals("slow", leader.get(10, TimeUnit.SECONDS));
+        assertEquals(0, inFlight());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.airquality.api.shared.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TieredCacheTest {
+
+    private ConcurrentMapCache redis;
+
+    @BeforeEach
+    void setUp() {
+        redis = new ConcurrentMapCache("city");
+    }
+
+    private TieredCache node() {
+        return new TieredCache(() -> new CaffeineCache("city", Caffeine.newBuilder().recordStats().build()), redis);
+    }
+
+    @Test
+    void swapWritesWarmedEntriesUnderTheNewGeneration() {
+        TieredCache writer = node();
+        writer.swap(Collections.singletonMap("berlin", "v2"), 2, true);
+
+        TieredCache reader = node();
+        assertNull(reader.get("berlin"), "a node on generation 0 must not see generation 2 values");
+        reader.swap(Collections.emptyMap(), 2, false);
+        Cache.ValueWrapper value = reader.get("berlin");
+        assertNotNull(value);
+        assertEquals("v2", value.get());
+    }
+
+    @Test
+    void nodeOnOldGenerationCannotOverwriteNewEntries() {
+        TieredCache refreshed = node();
+        TieredCache lagging = node();
+        refreshed.swap(Collections.singletonMap("berlin", "new"), 2, true);
+        lagging.swap(Collections.emptyMap(), 1, false);
+
+        assertNull(lagging.get("berlin"));
+        lagging.put("berlin", "old");
+
+        TieredCache fresh = node();
+        fresh.swap(Collections.emptyMap(), 2, false);
+        assertEquals("new", fresh.get("berlin").get());
+    }
+
+    @Test
+    void putAfterSwapIsStoredUnderTheGenerationOfTheMiss() {
+        TieredCache cache = node();
+        cache.swap(Collections.emptyMap(), 1, false);
+
+        // Request misses on generation 1, the refresh swaps to 2, then the request stores its result
+        assertNull(cache.get("berlin"));
+        cache.swap(Collections.emptyMap(), 2, false);
+        cache.put("berlin", "computed-on-1");
+
+        assertNull(redis.get("2|berlin"));
+        assertEquals("computed-on-1", redis.get("1|berlin").get());
+    }
+}
@@ -0,0 +1,98 @@
+package com.airquality.api.shared.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryMetricsTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetricsTest.class);
+
+    // Per-call cost of record() that would show up next to a real query (a primary-key read is ~100 µs)
+    private static final long MAX_OVERHEAD_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryMetrics metrics = new QueryMetrics(registry, true, 500, 100);
+
+    private double acquireMs(String query) {
+        return registry.get("jdbc.query.connection.acquire").tag("query", query).timer()
+            .totalTime(TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void acquireTimeCountsForTheRunningQueryAndTheQueriesAroundIt() {
+        metrics.record("outer", () -> {
+            QueryMetrics.addAcquireNanos(TimeUnit.MILLISECONDS.toNanos(2));
+            return metrics.record("inner", () -> {
+                QueryMetrics.addAcquireNanos(TimeUnit.MILLISECONDS.toNanos(3));
+                return 1;
+            });
+        });
+
+        assertEquals(3.0, acquireMs("inner"), 1e-9);
+        assertEquals(5.0, acquireMs("outer"), 1e-9);
+    }
+
+    @Test
+    void acquireTimeNeverCarriesOverToTheNextQuery() {
+        // Outside any query, e.g. a connection taken by the transaction manager
+        QueryMetrics.addAcquireNanos(TimeUnit.MILLISECONDS.toNanos(7));
+        metrics.record("first", () -> 1);
+        assertEquals(0.0, acquireMs("first"), 1e-9);
+
+        // A failing query is charged its own wait, and nothing is left behind on the thread
+        assertThrows(IllegalStateException.class, () -> metrics.record("failing", () -> {
+            QueryMetrics.addAcquireNanos(TimeUnit.MILLISECONDS.toNanos(4));
+            throw new IllegalStateException("connection reset");
+        }));
+        assertEquals(4.0, acquireMs("failing"), 1e-9);
+        assertEquals(1, registry.get("jdbc.query").tag("query", "failing").tag("outcome", "error").timer().count());
+
+        metrics.record("second", () -> 1);
+        assertEquals(0.0, acquireMs("second"), 1e-9);
+    }
+
+    @Test
+    void recordingAddsMicrosecondsAtMostPerQuery() {
+        int iterations = 200_000;
+        long[] sink = new long[1];
+
+        // Warm up both paths so the comparison measures compiled code
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < iterations; i++) {
+                sink[0] += direct(i);
+                int value = i;
+                sink[0] += metrics.record("overhead", () -> direct(value), value);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink[0] += direct(i);
+        }
+        long directNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int value = i;
+            sink[0] += metrics.record("overhead", () -> direct(value), value);
+        }
+        long recordedNanos = System.nanoTime() - start;
+
+        long overheadPerCall = (recordedNanos - directNanos) / iterations;
+        logger.info("QueryMetrics.record overhead: {} ns per call (checksum {})", overheadPerCall, sink[0]);
+        assertTrue(overheadPerCall < MAX_OVERHEAD_NANOS, "record() overhead " + overheadPerCall + " ns per call");
+    }
+
+    // Stands in for a query: cheap, but not something the JIT can remove
+    private static int direct(int value) {
+        return Integer.rotateLeft(value, 7) ^ value;
+    }
+}
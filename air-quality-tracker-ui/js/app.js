@@ -7,6 +7,8 @@
  * - Search, filter, and sort functionality
  * - Charts rendering with Highcharts
  * - AI recommendations display
+ * - City name autocomplete (GET /api/search)
+ * - Live updates pushed over Server-Sent Events (GET /api/events)
  */
 
 // ============================================
@@ -15,6 +17,9 @@
 let citiesData = [];
 let sortDirection = 'asc';
 let sortColumn = '';
+let suggestTimer = null;
+let eventSource = null;
+let dataGeneration = null;
 
 // ============================================
 // Application Initialization
@@ -23,6 +28,8 @@ let sortColumn = '';
 document.addEventListener('DOMContentLoaded', function() {
     console.log('[AirQuality] Dashboard initialized');
     loadAllData();
+    subscribeToUpdates();
+    document.getElementById('ai-city-input').addEventListener('input', suggestCities);
 });
 
 /**
@@ -41,9 +48,14 @@ function refreshData() {
     refreshBtn.disabled = true;
     refreshBtn.innerHTML = '<i class="bi bi-arrow-clockwise spin"></i> Refreshing...';
     
-    // Call refresh endpoint first, then reload data
+    // Call refresh endpoint first; the resulting update arrives over the event stream,
+    // so only reload by hand when the stream is not connected
     fetch(`${CONFIG.API_BASE_URL}/refresh`, { method: 'POST' })
-        .then(() => loadAllData())
+        .then(() => {
+            if (!eventSource || eventSource.readyState !== EventSource.OPEN) {
+                loadAllData();
+            }
+        })
         .catch(err => console.error('Refresh failed:', err))
         .finally(() => {
             setTimeout(() => {
@@ -53,6 +65,60 @@ function refreshData() {
         });
 }
 
+// ============================================
+// Live Update Functions
+// ============================================
+
+/**
+ * Listen for data updates instead of polling
+ * 'connected' reports the server's generation: reload if it moved on while we were disconnected
+ * 'data-update' carries new global stats and the changed cities (or reload=true)
+ */
+function subscribeToUpdates() {
+    if (!window.EventSource) {
+        return;
+    }
+    eventSource = new EventSource(`${CONFIG.API_BASE_URL}/events`);
+    
+    eventSource.addEventListener('connected', (event) => {
+        const generation = JSON.parse(event.data).generation;
+        if (dataGeneration !== null && generation !== dataGeneration) {
+            loadAllData();
+        }
+        dataGeneration = generation;
+    });
+    
+    eventSource.addEventListener('data-update', (event) => {
+        const update = JSON.parse(event.data);
+        dataGeneration = update.generation;
+        renderGlobalStats(update.globalStats);
+        
+        if (update.reload) {
+            fetchCitiesData();
+            return;
+        }
+        applyCityChanges(update.changedCities, update.removedCities);
+    });
+}
+
+function applyCityChanges(changedCities, removedCities) {
+    const key = (city) => `${city.city}|${city.country}`;
+    const changed = new Map(changedCities.map(city => [key(city), city]));
+    const removed = new Set(removedCities.map(key));
+    
+    citiesData = citiesData
+        .filter(city => !removed.has(key(city)))
+        .map(city => {
+            const update = changed.get(key(city));
+            changed.delete(key(city));
+            return update || city;
+        })
+        .concat([...changed.values()]);
+    
+    filterCities();
+    createTopPollutedChart(citiesData);
+}
+
 // ============================================
 // Global Statistics Functions
 // ============================================
@@ -308,6 +374,39 @@ function createTopPollutedChart(cities) {
 // AI Recommendations Functions
 // ============================================
 
+/**
+ * Fill the city input's suggestion list as the user types (debounced)
+ * Picking a suggestion sends the exact stored name, so lookups no longer miss on spelling
+ */
+function suggestCities() {
+    clearTimeout(suggestTimer);
+    const query = document.getElementById('ai-city-input').value.trim();
+    if (!query) {
+        return;
+    }
+    
+    suggestTimer = setTimeout(async () => {
+        try {
+            const response = await fetch(`${CONFIG.API_BASE_URL}/search?q=${encodeURIComponent(query)}&limit=8`);
+            if (!response.ok) {
+                return;
+            }
+            const suggestions = await response.json();
+            const list = document.getElementById('ai-city-suggestions');
+            list.replaceChildren(...suggestions
+                .filter(s => s.type === 'city')
+                .map(s => {
+                    const option = document.createElement('option');
+                    option.value = s.name;
+                    option.label = s.country || '';
+                    return option;
+                }));
+        } catch (error) {
+            console.error('[AirQuality] Error fetching suggestions:', error);
+        }
+    }, 150);
+}
+
 async function getAiRecommendations() {
     const cityInput = document.getElementById('ai-city-input').value.trim();
     